@@ -0,0 +1,38 @@
+package testJpa.benchmark;
+
+import java.util.Map;
+
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.DatasourceLogin;
+import org.eclipse.persistence.sessions.Session;
+
+import testJpa.sequencing.PrefetchingSequenceCustomizer;
+
+/**
+ * Overrides the allocation size of all sequences defined by
+ * {@code @SequenceGenerator}. The database sequences must be incremented by
+ * the same value, see {@link BatchWritingBenchmark}. The sequences are then
+ * replaced by prefetching ones like in the standard configuration.
+ * <p>
+ * EclipseLink instantiates the customizer by class name, so the size is passed
+ * by a static field.
+ */
+public class AllocationSizeCustomizer extends PrefetchingSequenceCustomizer {
+
+    static volatile int allocationSize = 50;
+
+    @Override
+    public void customize(Session session) throws Exception {
+        @SuppressWarnings("unchecked")
+        final Map<String, Sequence> sequences = ((DatasourceLogin) session.getDatasourceLogin()).getSequences();
+
+        if (sequences != null) {
+            for (Sequence sequence : sequences.values()) {
+                sequence.setPreallocationSize(allocationSize);
+            }
+        }
+
+        super.customize(session);
+    }
+
+}
@@ -0,0 +1,185 @@
+package testJpa.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.sequencing.SequencePrefetchMetrics;
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Insert throughput for each combination of EclipseLink batch-writing mode,
+ * batch size and sequence allocation size. The score is inserts per second.
+ * The auxiliary counters are taken from the {@link SequencePrefetchMetrics}:
+ * "sequenceRoundTrips" is the number of sequence blocks the inserts used per
+ * iteration, "sequenceStalls" the number of them the inserting thread had to
+ * fetch itself. Blocks prefetched but not used are not counted.
+ * <p>
+ * Each trial starts its own entity manager factory with the properties
+ * overridden through the Spring environment, see
+ * {@link testJpa.TestJpaConfiguration}. The settings of the best combination
+ * can be shipped the same way, e.g. as system properties of a bulk-load node.
+ * <p>
+ * The Liquibase sequences are incremented by 50. They are re-created with the
+ * benchmarked allocation size before the first insert, because EclipseLink
+ * relies on both values being equal.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchWritingBenchmark {
+
+    private static final int INSERTS = 10000;
+
+    private static final String SEQUENCE = "SEQ_SPRING_TABLE_ID";
+
+    /**
+     * value of eclipselink.jdbc.batch-writing
+     */
+    @Param({ "None", "JDBC", "Buffered" })
+    String batchWriting;
+
+    /**
+     * value of eclipselink.jdbc.batch-writing.size
+     */
+    @Param({ "20", "100", "1000" })
+    int batchSize;
+
+    /**
+     * allocation size of the sequence
+     */
+    @Param({ "50", "500" })
+    int allocationSize;
+
+    private BenchmarkContext context;
+
+    private SpringTableDao dao;
+
+    private TransactionTemplate tx;
+
+    private JdbcTemplate jdbc;
+
+    private SequencePrefetchMetrics sequenceMetrics;
+
+    /**
+     * counts sequence blocks used by the inserts
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SequenceCounter {
+
+        /**
+         * number of sequence blocks used by the inserts
+         */
+        public long sequenceRoundTrips;
+
+        /**
+         * number of sequence blocks the inserting thread fetched itself
+         */
+        public long sequenceStalls;
+
+        /**
+         * reset counter for each iteration
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            sequenceRoundTrips = 0;
+            sequenceStalls = 0;
+        }
+    }
+
+    /**
+     * start Spring with the benchmark parameters and re-create the sequence
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        AllocationSizeCustomizer.allocationSize = allocationSize;
+
+        final Map<String, Object> props = new HashMap<>();
+        props.put(PersistenceUnitProperties.BATCH_WRITING, batchWriting);
+        props.put(PersistenceUnitProperties.BATCH_WRITING_SIZE, String.valueOf(batchSize));
+        props.put(PersistenceUnitProperties.SESSION_CUSTOMIZER, AllocationSizeCustomizer.class.getName());
+
+        context = BenchmarkContext.start(props);
+        dao = context.getBean(SpringTableDao.class);
+        tx = context.transactionTemplate();
+        jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+
+        jdbc.execute("DROP SEQUENCE " + SEQUENCE + " RESTRICT");
+        jdbc.execute("CREATE SEQUENCE " + SEQUENCE + " START WITH " + allocationSize + " INCREMENT BY "
+                + allocationSize);
+
+        sequenceMetrics = SequencePrefetchMetrics.of(
+                context.getBean(EntityManagerFactory.class).unwrap(JpaEntityManagerFactory.class).getServerSession(),
+                SEQUENCE);
+    }
+
+    /**
+     * start each iteration with an empty table
+     */
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        dao.deleteAllInBatch();
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * insert rows in one transaction
+     *
+     * @param counter
+     *            the sequence round trip counter
+     */
+    @Benchmark
+    @OperationsPerInvocation(INSERTS)
+    public void insert(SequenceCounter counter) {
+        final long blocks = sequenceMetrics.getBlocks();
+        final long stalls = sequenceMetrics.getStalls();
+
+        tx.execute(status -> {
+            for (int i = 0; i < INSERTS; i++) {
+                final SpringTable st = new SpringTable();
+                st.setData("data");
+                dao.save(st);
+            }
+            return null;
+        });
+
+        counter.sequenceRoundTrips += sequenceMetrics.getBlocks() - blocks;
+        counter.sequenceStalls += sequenceMetrics.getStalls() - stalls;
+    }
+
+}
@@ -0,0 +1,44 @@
+package testJpa.benchmark;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import testJpa.TestJpaConfiguration;
+import testJpa.jdbc.MeteredPoolDataSource;
+
+/**
+ * Configuration for the benchmarks. Imports the standard repository
+ * configuration and connects to the Derby in-memory database given by property
+ * "jdbc.url", see {@link BenchmarkContext}.
+ */
+@Configuration
+@Import(TestJpaConfiguration.class)
+public class BenchmarkConfiguration {
+
+    @Autowired
+    Environment env;
+
+    /**
+     * data source to be used: the connection pool, or a new connection for each
+     * lease if property "jdbc.pool.enabled" is false
+     *
+     * @return the data source
+     */
+    @Bean
+    public DataSource dataSource() {
+        if (env.getProperty("jdbc.pool.enabled", Boolean.class, true)) {
+            return MeteredPoolDataSource.fromProperties(env);
+        }
+
+        final DriverManagerDataSource ds = new DriverManagerDataSource();
+        ds.setUrl(env.getRequiredProperty("jdbc.url"));
+        return ds;
+    }
+
+}
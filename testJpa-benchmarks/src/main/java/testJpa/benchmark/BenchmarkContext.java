@@ -0,0 +1,89 @@
+package testJpa.benchmark;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Spring application context for one benchmark trial. Every context gets its
+ * own Derby in-memory database, so trials don't influence each other. The
+ * database is dropped when the context is closed.
+ */
+public final class BenchmarkContext implements AutoCloseable {
+
+    private static final String DERBY_MEMORY_URL = "jdbc:derby:memory:";
+
+    private final AnnotationConfigApplicationContext context;
+
+    private final String databaseUrl;
+
+    private BenchmarkContext(AnnotationConfigApplicationContext context, String databaseUrl) {
+        this.context = context;
+        this.databaseUrl = databaseUrl;
+    }
+
+    /**
+     * Start a context with the default configuration.
+     *
+     * @return the started context
+     */
+    public static BenchmarkContext start() {
+        return start(new HashMap<>());
+    }
+
+    /**
+     * Start a context. The properties are added with highest precedence to the
+     * Spring environment.
+     *
+     * @param properties
+     *            additional properties
+     * @return the started context
+     */
+    public static BenchmarkContext start(Map<String, Object> properties) {
+        final String databaseUrl = DERBY_MEMORY_URL + "bench-" + UUID.randomUUID();
+
+        final Map<String, Object> props = new HashMap<>(properties);
+        props.put("jdbc.url", databaseUrl + ";create=true");
+
+        final AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+        ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", props));
+        ctx.register(BenchmarkConfiguration.class);
+        ctx.refresh();
+
+        return new BenchmarkContext(ctx, databaseUrl);
+    }
+
+    /**
+     * @param type
+     *            the bean type
+     * @return the bean of the given type
+     */
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * @return a transaction template using the context's transaction manager
+     */
+    public TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(getBean(PlatformTransactionManager.class));
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        try {
+            DriverManager.getConnection(databaseUrl + ";drop=true").close();
+        } catch (SQLException e) {
+            // Derby always signals a successful drop with an exception
+        }
+    }
+
+}
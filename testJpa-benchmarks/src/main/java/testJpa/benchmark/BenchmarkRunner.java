@@ -0,0 +1,47 @@
+package testJpa.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line options
+ * (e.g. a benchmark name pattern or "-prof gc"), but writes the results as JSON
+ * to jmh-result.json unless another result file or format is given.
+ * <p>
+ * Warm-up, measurement and fork settings are defined on the benchmark classes.
+ */
+public final class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * @param args
+     *            JMH command line options
+     * @throws RunnerException
+     *             if the benchmarks fail
+     * @throws CommandLineOptionException
+     *             if the options can't be parsed
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final CommandLineOptions cmdOptions = new CommandLineOptions(args);
+
+        final OptionsBuilder builder = new OptionsBuilder();
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        final Options options = builder.parent(cmdOptions).build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,94 @@
+package testJpa.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Multi-threaded throughput of SpringTableDao with the connection pool and
+ * with a new physical connection for each lease. Both operations need a
+ * database connection: queries are not answered from the shared cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+
+    private static final int ROWS = 1000;
+
+    /**
+     * true to use the connection pool
+     */
+    @Param({ "true", "false" })
+    boolean pooled;
+
+    private BenchmarkContext context;
+
+    private SpringTableDao dao;
+
+    /**
+     * start Spring and fill the table
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext
+                .start(Collections.<String, Object> singletonMap("jdbc.pool.enabled", String.valueOf(pooled)));
+        dao = context.getBean(SpringTableDao.class);
+
+        for (int i = 0; i < ROWS; i++) {
+            final SpringTable st = new SpringTable();
+            st.setData("data " + i);
+            dao.save(st);
+        }
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * @return entities matching a random data value
+     */
+    @Benchmark
+    public List<SpringTable> findByData() {
+        return dao.findByData("data " + ThreadLocalRandom.current().nextInt(ROWS));
+    }
+
+    /**
+     * @return the saved entity
+     */
+    @Benchmark
+    public SpringTable save() {
+        final SpringTable st = new SpringTable();
+        st.setData("data");
+        return dao.save(st);
+    }
+
+}
@@ -0,0 +1,129 @@
+package testJpa.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import testJpa.cache.LongCacheKeyMap;
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.simple.table.domain.SimpleTable;
+
+/**
+ * Lookup by id in the cache keys of an identity map: the
+ * {@link ConcurrentHashMap} of EclipseLink's full identity map against the
+ * {@link LongCacheKeyMap}, and find by id through the DAO with a boxed and a
+ * primitive id. Run with {@code -prof gc} to see the allocation per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdentityMapBenchmark {
+
+    /**
+     * number of cached entities
+     */
+    @Param({ "1000", "100000" })
+    int entries;
+
+    private Map<Object, CacheKey> concurrentMap;
+
+    private LongCacheKeyMap longMap;
+
+    private BenchmarkContext context;
+
+    private SimpleTableDao dao;
+
+    private long firstId;
+
+    /**
+     * fill the maps, start Spring and cache 1000 entities
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        concurrentMap = new ConcurrentHashMap<>(entries);
+        longMap = new LongCacheKeyMap(entries);
+        for (long id = 0; id < entries; id++) {
+            final CacheKey key = new CacheKey(id);
+            concurrentMap.put(id, key);
+            longMap.put(id, key);
+        }
+
+        context = BenchmarkContext.start();
+        dao = context.getBean(SimpleTableDao.class);
+        firstId = context.transactionTemplate().execute(status -> {
+            Long first = null;
+            for (int i = 0; i < 1000; i++) {
+                final SimpleTable st = new SimpleTable();
+                st.setData("data " + i);
+                final Long id = dao.save(st).getId();
+                first = first == null ? id : Math.min(first, id);
+            }
+            return first;
+        });
+        for (long id = firstId; id < firstId + 1000; id++) {
+            dao.findOne(id);
+        }
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * @return the cache key of a random id, the id is boxed for the lookup
+     */
+    @Benchmark
+    public CacheKey concurrentHashMap() {
+        return concurrentMap.get(ThreadLocalRandom.current().nextLong(entries));
+    }
+
+    /**
+     * @return the cache key of a random id
+     */
+    @Benchmark
+    public CacheKey longCacheKeyMap() {
+        return longMap.get(ThreadLocalRandom.current().nextLong(entries));
+    }
+
+    /**
+     * @return a cached entity by a boxed id
+     */
+    @Benchmark
+    public SimpleTable findOneBoxed() {
+        return dao.findOne(Long.valueOf(firstId + ThreadLocalRandom.current().nextInt(1000)));
+    }
+
+    /**
+     * @return a cached entity by a primitive id
+     */
+    @Benchmark
+    public SimpleTable findOnePrimitive() {
+        return dao.findOne(firstId + ThreadLocalRandom.current().nextInt(1000));
+    }
+
+}
@@ -0,0 +1,125 @@
+package testJpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.spring.parentChild.dao.ParentSpringDao;
+import testJpa.spring.parentChild.domain.ChildSpring;
+import testJpa.spring.parentChild.domain.ParentSpring;
+
+/**
+ * Reading parents and their lazily loaded children: batch fetch (two SELECTs)
+ * compared to plain findAll (one SELECT per parent for the children).
+ * <p>
+ * The children are accessed in the same transaction as the parents are read.
+ * The shared cache is cleared before each call, otherwise both variants would
+ * be served from memory after the first invocation.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParentSpringDaoBenchmark {
+
+    /**
+     * number of parent rows
+     */
+    @Param("100")
+    int parents;
+
+    /**
+     * number of child rows per parent
+     */
+    @Param("10")
+    int children;
+
+    private BenchmarkContext context;
+
+    private ParentSpringDao dao;
+
+    private TransactionTemplate tx;
+
+    /**
+     * start Spring and fill the tables
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        dao = context.getBean(ParentSpringDao.class);
+        tx = context.transactionTemplate();
+
+        final List<ParentSpring> entities = new ArrayList<>(parents);
+        for (int i = 0; i < parents; i++) {
+            final ParentSpring ps = new ParentSpring();
+            ps.setData("parent " + i);
+            for (int j = 0; j < children; j++) {
+                final ChildSpring cs = new ChildSpring();
+                cs.setData("child " + i + "/" + j);
+                ps.addChild(cs);
+            }
+            entities.add(ps);
+        }
+        dao.save(entities);
+    }
+
+    /**
+     * clear the shared cache
+     */
+    @Setup(Level.Invocation)
+    public void evictCache() {
+        context.getBean(EntityManagerFactory.class).getCache().evictAll();
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * @return number of children read
+     */
+    @Benchmark
+    public int findAllBatchFetch() {
+        return tx.execute(status -> countChildren(dao.findAllBatchFetch()));
+    }
+
+    /**
+     * @return number of children read
+     */
+    @Benchmark
+    public int findAll() {
+        return tx.execute(status -> countChildren(dao.findAll()));
+    }
+
+    private static int countChildren(List<ParentSpring> list) {
+        int count = 0;
+        for (ParentSpring ps : list) {
+            count += ps.getChildren().size();
+        }
+        return count;
+    }
+
+}
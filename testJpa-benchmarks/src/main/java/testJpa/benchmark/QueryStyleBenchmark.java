@@ -0,0 +1,153 @@
+package testJpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.simple.table.domain.SimpleTable;
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Latency of the same query "find by data" in different styles: a Criteria
+ * query built on every call, a JPQL string, the named query registered by
+ * {@link testJpa.simple.table.dao.SimpleTableDaoImpl} and a Spring Data
+ * derived query. Tables SIMPLE_TABLE and SPRING_TABLE have the same structure
+ * and content.
+ * <p>
+ * Every call runs in its own transaction, so all styles pay the same
+ * transaction overhead.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class QueryStyleBenchmark {
+
+    /**
+     * number of rows in each table
+     */
+    @Param("1000")
+    int rows;
+
+    private BenchmarkContext context;
+
+    private EntityManager em;
+
+    private SimpleTableDao simpleDao;
+
+    private SpringTableDao springDao;
+
+    private TransactionTemplate tx;
+
+    /**
+     * start Spring and fill the tables
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        simpleDao = context.getBean(SimpleTableDao.class);
+        springDao = context.getBean(SpringTableDao.class);
+        tx = context.transactionTemplate();
+
+        final List<SimpleTable> simple = new ArrayList<>(rows);
+        final List<SpringTable> spring = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            final SimpleTable st = new SimpleTable();
+            st.setData("data " + i);
+            simple.add(st);
+
+            final SpringTable sp = new SpringTable();
+            sp.setData("data " + i);
+            spring.add(sp);
+        }
+        simpleDao.saveAllInBatches(simple, 500);
+        springDao.saveAllInBatches(spring, 500);
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomData() {
+        return "data " + ThreadLocalRandom.current().nextInt(rows);
+    }
+
+    /**
+     * @return entities found by a Criteria query built for this call
+     */
+    @Benchmark
+    public List<SimpleTable> criteria() {
+        final String data = randomData();
+        return tx.execute(status -> {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<SimpleTable> cq = cb.createQuery(SimpleTable.class);
+            final Root<SimpleTable> root = cq.from(SimpleTable.class);
+            cq.where(cb.equal(root.get("data"), data));
+
+            return em.createQuery(cq).getResultList();
+        });
+    }
+
+    /**
+     * @return entities found by a JPQL query, parsed once by EclipseLink's
+     *         JPQL cache
+     */
+    @Benchmark
+    public List<SimpleTable> jpql() {
+        final String data = randomData();
+        return tx.execute(status -> em
+                .createQuery("SELECT s FROM SimpleTable s WHERE s.data = :data", SimpleTable.class)
+                .setParameter("data", data).getResultList());
+    }
+
+    /**
+     * @return entities found by the named query of the DAO
+     */
+    @Benchmark
+    public List<SimpleTable> named() {
+        final String data = randomData();
+        return tx.execute(status -> simpleDao.findByData(data));
+    }
+
+    /**
+     * @return entities found by the Spring Data derived query
+     */
+    @Benchmark
+    public List<SpringTable> derived() {
+        final String data = randomData();
+        return tx.execute(status -> springDao.findByData(data));
+    }
+
+}
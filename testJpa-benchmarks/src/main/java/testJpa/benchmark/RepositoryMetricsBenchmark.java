@@ -0,0 +1,121 @@
+package testJpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.simple.table.domain.SimpleTable;
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Overhead of the repository metrics: find by id with and without recording.
+ * The entities are in the shared cache, so the call is as short as a
+ * repository call gets and the overhead is most visible.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RepositoryMetricsBenchmark {
+
+    /**
+     * true to record the repository metrics
+     */
+    @Param({ "false", "true" })
+    boolean metered;
+
+    /**
+     * number of rows in each table
+     */
+    @Param("1000")
+    int rows;
+
+    private BenchmarkContext context;
+
+    private SimpleTableDao simpleDao;
+
+    private SpringTableDao springDao;
+
+    private final List<Long> simpleIds = new ArrayList<>();
+
+    private final List<Long> springIds = new ArrayList<>();
+
+    /**
+     * start Spring, fill the tables and load the shared cache
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext
+                .start(Collections.<String, Object> singletonMap("metrics.repository.enabled", String.valueOf(metered)));
+        simpleDao = context.getBean(SimpleTableDao.class);
+        springDao = context.getBean(SpringTableDao.class);
+
+        final List<SimpleTable> simple = new ArrayList<>(rows);
+        final List<SpringTable> spring = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            final SimpleTable st = new SimpleTable();
+            st.setData("data " + i);
+            simple.add(st);
+
+            final SpringTable sp = new SpringTable();
+            sp.setData("data " + i);
+            spring.add(sp);
+        }
+        simpleDao.saveAllInBatches(simple, 500);
+        springDao.saveAllInBatches(spring, 500);
+
+        simpleDao.findAll().forEach(st -> simpleIds.add(st.getId()));
+        springDao.findAll().forEach(sp -> springIds.add(sp.getId()));
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static Long randomId(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    /**
+     * @return entity found by the hand-written DAO
+     */
+    @Benchmark
+    public SimpleTable simpleFindOne() {
+        return simpleDao.findOne(randomId(simpleIds));
+    }
+
+    /**
+     * @return entity found by the Spring Data repository
+     */
+    @Benchmark
+    public SpringTable springFindOne() {
+        return springDao.findOne(randomId(springIds));
+    }
+
+}
@@ -0,0 +1,147 @@
+package testJpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.simple.table.domain.SimpleTable;
+
+/**
+ * Time to write 100000 {@link SimpleTable} rows in one transaction:
+ * <ul>
+ * <li>mergeNew: new entities with {@code em.merge}, the former
+ * {@code save}</li>
+ * <li>persistNew: new entities with {@code save}, which persists them</li>
+ * <li>mergeDetached: detached entities of existing rows with
+ * {@code save}, which merges them</li>
+ * <li>upsertDetached: the same entities with {@code upsertAll}</li>
+ * </ul>
+ * The entity managers are flushed and cleared every 1000 entities, so the
+ * persistence context stays small.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveStrategyBenchmark {
+
+    private static final int ROWS = 100000;
+
+    private static final int FLUSH_INTERVAL = 1000;
+
+    /**
+     * the way the rows are written
+     */
+    @Param({ "mergeNew", "persistNew", "mergeDetached", "upsertDetached" })
+    String strategy;
+
+    private BenchmarkContext context;
+
+    private SimpleTableDao dao;
+
+    private EntityManagerFactory emf;
+
+    private TransactionTemplate tx;
+
+    private JdbcTemplate jdbc;
+
+    private List<SimpleTable> entities;
+
+    /**
+     * start Spring
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        dao = context.getBean(SimpleTableDao.class);
+        emf = context.getBean(EntityManagerFactory.class);
+        tx = context.transactionTemplate();
+        jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+    }
+
+    /**
+     * start each invocation with an empty table, or with the rows to update
+     * for the detached strategies
+     */
+    @Setup(Level.Invocation)
+    public void prepare() {
+        dao.deleteAllInBatch();
+        entities = new ArrayList<>(ROWS);
+
+        final boolean detached = strategy.endsWith("Detached");
+        final List<Object[]> rows = new ArrayList<>(FLUSH_INTERVAL);
+        for (long id = 1; id <= ROWS; id++) {
+            final SimpleTable st = new SimpleTable();
+            st.setData("data " + id);
+            if (detached) {
+                st.setId(id);
+                rows.add(new Object[] { id, "old " + id });
+                if (rows.size() == FLUSH_INTERVAL) {
+                    jdbc.batchUpdate("insert into SIMPLE_TABLE (ID, DATA) values (?, ?)", rows);
+                    rows.clear();
+                }
+            }
+            entities.add(st);
+        }
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * write the rows with the strategy of the trial
+     */
+    @Benchmark
+    public void save() {
+        tx.execute(status -> {
+            if ("upsertDetached".equals(strategy)) {
+                dao.upsertAll(entities);
+                return null;
+            }
+
+            final EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+            for (int i = 0; i < entities.size(); i++) {
+                if ("mergeNew".equals(strategy)) {
+                    em.merge(entities.get(i));
+                } else {
+                    dao.save(entities.get(i));
+                }
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,120 @@
+package testJpa.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.simple.table.domain.SimpleTable;
+
+/**
+ * Latency of the hand-written DAO for table SIMPLE_TABLE. The DAO doesn't
+ * start transactions itself, so every call is wrapped in a
+ * {@link TransactionTemplate} like a service method would do.
+ * <p>
+ * Sample time mode reports the p50/p90/p99/p99.9 percentiles of single calls.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SimpleTableDaoBenchmark {
+
+    /**
+     * number of rows in the table when the trial starts
+     */
+    @Param("1000")
+    int rows;
+
+    private BenchmarkContext context;
+
+    private SimpleTableDao dao;
+
+    private TransactionTemplate tx;
+
+    private Long[] ids;
+
+    /**
+     * start Spring and fill the table
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        dao = context.getBean(SimpleTableDao.class);
+        tx = context.transactionTemplate();
+
+        ids = new Long[rows];
+        tx.execute(status -> {
+            for (int i = 0; i < rows; i++) {
+                final SimpleTable st = new SimpleTable();
+                st.setData("data " + i);
+                ids[i] = dao.save(st).getId();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * @return the saved entity
+     */
+    @Benchmark
+    public SimpleTable save() {
+        return tx.execute(status -> {
+            final SimpleTable st = new SimpleTable();
+            st.setData("data");
+            return dao.save(st);
+        });
+    }
+
+    /**
+     * @return a random entity
+     */
+    @Benchmark
+    public SimpleTable findOne() {
+        final Long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return tx.execute(status -> dao.findOne(id));
+    }
+
+    /**
+     * @return all entities
+     */
+    @Benchmark
+    public List<SimpleTable> findAll() {
+        return tx.execute(status -> dao.findAll());
+    }
+
+    /**
+     * @return entities matching a random data value
+     */
+    @Benchmark
+    public List<SimpleTable> findByData() {
+        final String data = "data " + ThreadLocalRandom.current().nextInt(rows);
+        return tx.execute(status -> dao.findByData(data));
+    }
+
+}
@@ -0,0 +1,126 @@
+package testJpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Latency of the Spring Data repository for table SPRING_TABLE. Every method
+ * runs in its own transaction created by Spring Data.
+ * <p>
+ * Sample time mode reports the p50/p90/p99/p99.9 percentiles of single calls.
+ * <p>
+ * This replaces the former SimpleSpringPerformanceTest which measured one run
+ * of 100.000 inserts with a StopWatch. It reported 5.093ms with batch-writing
+ * JDBC and 8.287ms with batch-writing none for SpringTable.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SpringTableDaoBenchmark {
+
+    /**
+     * number of rows in the table when the trial starts
+     */
+    @Param("1000")
+    int rows;
+
+    private BenchmarkContext context;
+
+    private SpringTableDao dao;
+
+    private Long[] ids;
+
+    private TransactionTemplate tx;
+
+    /**
+     * start Spring and fill the table
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        dao = context.getBean(SpringTableDao.class);
+        tx = context.transactionTemplate();
+
+        final List<SpringTable> entities = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            final SpringTable st = new SpringTable();
+            st.setData("data " + i);
+            entities.add(st);
+        }
+
+        ids = dao.save(entities).stream().map(SpringTable::getId).toArray(Long[]::new);
+    }
+
+    /**
+     * stop Spring and drop the database
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * @return the saved entity
+     */
+    @Benchmark
+    public SpringTable save() {
+        final SpringTable st = new SpringTable();
+        st.setData("data");
+        return dao.save(st);
+    }
+
+    /**
+     * @return a random entity
+     */
+    @Benchmark
+    public SpringTable findOne() {
+        return dao.findOne(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    /**
+     * @return all entities
+     */
+    @Benchmark
+    public List<SpringTable> findAll() {
+        return dao.findAll();
+    }
+
+    /**
+     * read all entities with a cursor, compare with {@link #findAll()}
+     *
+     * @return number of entities
+     */
+    @Benchmark
+    public long streamAll() {
+        return tx.execute(status -> {
+            try (Stream<SpringTable> stream = dao.streamAll()) {
+                return stream.count();
+            }
+        });
+    }
+
+}
@@ -5,10 +5,15 @@ import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
@@ -19,6 +24,10 @@ import org.springframework.orm.jpa.vendor.EclipseLinkJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import liquibase.integration.spring.SpringLiquibase;
+import testJpa.jdbc.ReadWriteRoutingDataSource;
+import testJpa.jdbc.ReplicaJpaDialect;
+import testJpa.metrics.RepositoryMetrics;
+import testJpa.metrics.RepositoryMetricsPostProcessor;
 
 /**
  * Spring configuration class
@@ -27,10 +36,25 @@ import liquibase.integration.spring.SpringLiquibase;
 @EnableTransactionManagement
 @ComponentScan(basePackages = { "testJpa" })
 @EnableJpaRepositories(basePackages = { "testJpa.spring" })
-public class TestJpaConfiguration {
+public class TestJpaConfiguration implements EnvironmentAware {
 
     private static final String PERSISTENCE_UNIT_NAME = "testJpa";
 
+    private static final String ECLIPSELINK_PROPERTY_PREFIX = "eclipselink.";
+
+    private static final String METRICS_ENABLED_PROPERTY = "metrics.repository.enabled";
+
+    private ConfigurableEnvironment env;
+
+    /**
+     * The configuration is created early for its post processors, before
+     * autowiring works, so the environment is passed by the callback.
+     */
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.env = (ConfigurableEnvironment) environment;
+    }
+
     /**
      * Post processor to translate technology specific exceptions to Spring
      * {@link DataAccessException}
@@ -42,6 +66,31 @@ public class TestJpaConfiguration {
         return new PersistenceExceptionTranslationPostProcessor();
     }
 
+    /**
+     * latency histograms and counters of all repository methods
+     *
+     * @return the repository metrics
+     */
+    @Bean
+    public RepositoryMetrics repositoryMetrics() {
+        return new RepositoryMetrics();
+    }
+
+    /**
+     * Post processor to record the {@link RepositoryMetrics}. Disabled by
+     * "metrics.repository.enabled=false".
+     *
+     * @param environment
+     *            the Spring environment
+     * @return repository metrics post processor
+     */
+    @Bean
+    public RepositoryMetricsPostProcessor repositoryMetricsPostProcessor(Environment environment) {
+        final RepositoryMetricsPostProcessor rmpp = new RepositoryMetricsPostProcessor(repositoryMetrics());
+        rmpp.setEnabled(environment.getProperty(METRICS_ENABLED_PROPERTY, Boolean.class, Boolean.TRUE));
+        return rmpp;
+    }
+
     /**
      * instantiate JPA transaction manager
      *
@@ -58,6 +107,12 @@ public class TestJpaConfiguration {
      * Simple instantiation of a Spring Entity Manager Factory. Depends on
      * "liquibase" bean to make sure it is created after LiquiBase has setup the
      * database schema.
+     * <p>
+     * Properties of the Spring environment starting with "eclipselink." override
+     * the properties of persistence.xml, e.g.
+     * "eclipselink.jdbc.batch-writing=None" in database.properties or as system
+     * property. This allows different settings per node type without changing
+     * persistence.xml.
      * 
      * @param dataSource
      *            the data source to use
@@ -84,10 +139,41 @@ public class TestJpaConfiguration {
 
         lcemfb.setJpaVendorAdapter(ejva);
 
+        // don't store the entities read from a replica in the shared cache
+        if (ReadWriteRoutingDataSource.isRouting(dataSource)) {
+            final ReplicaJpaDialect dialect = new ReplicaJpaDialect();
+            dialect.setLazyDatabaseTransaction(true);
+            lcemfb.setJpaDialect(dialect);
+        }
+        lcemfb.getJpaPropertyMap().putAll(eclipseLinkProperties());
+
         lcemfb.setDataSource(dataSource);
         return lcemfb;
     }
 
+    /**
+     * Collect all properties of the Spring environment with EclipseLink
+     * prefix. The value is resolved by the environment, so the property source
+     * with highest precedence wins.
+     * 
+     * @return the EclipseLink properties
+     */
+    private Map<String, String> eclipseLinkProperties() {
+        final Map<String, String> props = new HashMap<>();
+
+        for (PropertySource<?> ps : env.getPropertySources()) {
+            if (ps instanceof EnumerablePropertySource) {
+                for (String name : ((EnumerablePropertySource<?>) ps).getPropertyNames()) {
+                    if (name.startsWith(ECLIPSELINK_PROPERTY_PREFIX)) {
+                        props.put(name, env.getProperty(name));
+                    }
+                }
+            }
+        }
+
+        return props;
+    }
+
     /**
      * Setup Liquibase. By setDropFirst(true) Liquibase will drop the schema,
      * including sequences, on each invocation. This means that tests can use
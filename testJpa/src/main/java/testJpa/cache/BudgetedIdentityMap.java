@@ -0,0 +1,251 @@
+package testJpa.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.identitymaps.FullIdentityMap;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+
+/**
+ * Identity map with a maximum number of entities. When the maximum is
+ * exceeded, the entity with the lowest {@link #score(long, long)} among a
+ * sample of {@link #SAMPLE_SIZE} entities at random positions is evicted, so
+ * eviction costs the same for any cache size and every entity can be sampled.
+ * Entities which are locked, e.g. during a merge, are not evicted.
+ * <p>
+ * EclipseLink creates the map by reflection with the size of the descriptor,
+ * see {@link CachePolicyCustomizer}. With {@link CachePolicy#longKeys()} the
+ * cache keys and their usage are kept in the primitive arrays of a
+ * {@link LongCacheKeyMap}, otherwise the usage is kept in a map by key.
+ */
+abstract class BudgetedIdentityMap extends FullIdentityMap {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * number of entities compared to find the one to evict
+     */
+    static final int SAMPLE_SIZE = 16;
+
+    /**
+     * the cache keys if they are Long, null otherwise
+     */
+    private final transient LongCacheKeyMap longKeys;
+
+    /**
+     * usage by key unless {@link #longKeys} tracks it
+     */
+    private final transient Map<Object, Usage> usages;
+
+    /**
+     * guards the positions of the usages
+     */
+    private final transient Object sampleLock = new Object();
+
+    /**
+     * keys of the usages by {@link Usage#position}, to sample at random
+     */
+    private transient Object[] positions = new Object[16];
+
+    private transient int count;
+
+    private final transient CacheStatistics statistics;
+
+    BudgetedIdentityMap(int size, ClassDescriptor descriptor, AbstractSession session, boolean isolated) {
+        super(size, descriptor, session, isolated);
+        final CachePolicy policy = descriptor == null ? null
+                : ((Class<?>) descriptor.getJavaClass()).getAnnotation(CachePolicy.class);
+        if (policy != null && policy.longKeys()) {
+            longKeys = new LongCacheKeyMap(size);
+            setCacheKeys(longKeys);
+            usages = null;
+        } else {
+            longKeys = null;
+            usages = new ConcurrentHashMap<>(Math.min(size, 1 << 16));
+        }
+        statistics = CacheStatistics.of(session, descriptor == null ? "unknown" : descriptor.getAlias());
+        statistics.setMaxEntries(size);
+    }
+
+    /**
+     * @param lastAccess
+     *            {@link System#nanoTime()} of the last access of a cached
+     *            entity
+     * @param hits
+     *            number of hits of the entity
+     * @return score of the entity, the entity with the lowest score is evicted
+     */
+    abstract long score(long lastAccess, long hits);
+
+    @Override
+    public CacheKey getCacheKey(Object searchKey, boolean forMerge) {
+        final CacheKey key = super.getCacheKey(searchKey, forMerge);
+        if (forMerge) {
+            return key;
+        }
+
+        if (key != null && key.getObject() != null) {
+            statistics.recordHit();
+            if (longKeys != null) {
+                longKeys.touch((Long) searchKey);
+            } else {
+                final Usage usage = usages.get(searchKey);
+                if (usage != null) {
+                    usage.touch();
+                }
+            }
+        } else {
+            statistics.recordMiss();
+        }
+        return key;
+    }
+
+    /**
+     * all entities are added here, also by {@link #put}
+     */
+    @Override
+    protected CacheKey putCacheKeyIfAbsent(CacheKey searchKey) {
+        final CacheKey existing = super.putCacheKeyIfAbsent(searchKey);
+        if (existing == null) {
+            added(searchKey.getKey());
+        }
+        return existing;
+    }
+
+    @Override
+    public Object remove(CacheKey cacheKey) {
+        if (cacheKey != null && longKeys == null) {
+            forget(cacheKey.getKey());
+        }
+        return super.remove(cacheKey);
+    }
+
+    private void added(Object primaryKey) {
+        if (longKeys == null) {
+            track(primaryKey);
+        }
+        while (getSize() > maxSize) {
+            if (!evictOne(primaryKey)) {
+                // only locked entities in the sample: try again on the next put
+                return;
+            }
+        }
+    }
+
+    /**
+     * add the usage of a key at the last position
+     */
+    private void track(Object primaryKey) {
+        synchronized (sampleLock) {
+            if (!usages.containsKey(primaryKey)) {
+                final Usage usage = new Usage();
+                usage.position = count;
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count++] = primaryKey;
+                usages.put(primaryKey, usage);
+            }
+        }
+    }
+
+    /**
+     * @param added
+     *            key of the entity just added, which is never evicted
+     */
+    private boolean evictOne(Object added) {
+        final CacheKey victim = longKeys != null ? longKeys.lowest(SAMPLE_SIZE, (Long) added, this::score)
+                : sampleLowest(added);
+        if (victim == null) {
+            return false;
+        }
+        remove(victim);
+        statistics.recordEviction();
+        return true;
+    }
+
+    /**
+     * @return the cache key with the lowest score among the usages at random
+     *         positions
+     */
+    private CacheKey sampleLowest(Object added) {
+        final Object[] sample;
+        synchronized (sampleLock) {
+            if (count <= SAMPLE_SIZE) {
+                sample = Arrays.copyOf(positions, count);
+            } else {
+                sample = new Object[SAMPLE_SIZE];
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < sample.length; i++) {
+                    sample[i] = positions[random.nextInt(count)];
+                }
+            }
+        }
+
+        CacheKey victim = null;
+        long lowest = Long.MAX_VALUE;
+        for (Object primaryKey : sample) {
+            final Usage usage = usages.get(primaryKey);
+            if (usage == null || primaryKey.equals(added)) {
+                continue;
+            }
+            final CacheKey key = getCacheKeys().get(primaryKey);
+            if (key == null) {
+                forget(primaryKey);
+                continue;
+            }
+
+            final long score = score(usage.lastAccess, usage.hits);
+            if (score < lowest && !key.isAcquired()) {
+                lowest = score;
+                victim = key;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * remove the usage of a key, moving the last position into its place
+     */
+    private void forget(Object primaryKey) {
+        synchronized (sampleLock) {
+            final Usage usage = usages.remove(primaryKey);
+            if (usage == null) {
+                return;
+            }
+            final Object last = positions[--count];
+            positions[count] = null;
+            if (usage.position != count) {
+                positions[usage.position] = last;
+                usages.get(last).position = usage.position;
+            }
+        }
+    }
+
+    /**
+     * last access and number of hits of a cached entity. Updates may be lost
+     * under contention, which is good enough to rank entities.
+     */
+    static final class Usage {
+
+        volatile long lastAccess = System.nanoTime();
+
+        volatile long hits;
+
+        /**
+         * index in the positions of the map, guarded by its sample lock
+         */
+        int position;
+
+        void touch() {
+            lastAccess = System.nanoTime();
+            hits++;
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package testJpa.cache;
+
+import java.util.Collection;
+
+/**
+ * Notified by {@link SharedCacheInvalidator} about the entities it evicts from
+ * the shared cache, so other caches of the same entities can evict them too.
+ */
+public interface CacheEvictionListener {
+
+    /**
+     * entities of a type were evicted
+     *
+     * @param entity
+     *            the entity type
+     * @param keys
+     *            the evicted ids, null if all entities of the type were
+     *            evicted
+     */
+    void evicted(Class<?> entity, Collection<?> keys);
+
+    /**
+     * the whole cache was evicted
+     */
+    void evictedAll();
+
+}
@@ -0,0 +1,89 @@
+package testJpa.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Size, eviction and time to live of the shared cache of an entity. Applied by
+ * {@link CachePolicyCustomizer}, which must be registered with
+ * {@code @Customizer(CachePolicyCustomizer.class)} on the same entity.
+ * <p>
+ * The cache holds at most {@link #maxBytes()} / {@link #entityBytes()}
+ * entities. The entity size is an estimate of the heap used by one cached
+ * entity including its strings, not the size of the table row.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachePolicy {
+
+    /**
+     * how to choose the entity to evict when the cache is full
+     */
+    enum Eviction {
+        /**
+         * least recently used
+         */
+        LRU,
+        /**
+         * least frequently used
+         */
+        LFU
+    }
+
+    /**
+     * what to send to the other nodes when an entity is changed, if cache
+     * coordination is configured, see
+     * {@link testJpa.cache.coordination.CoordinationTransportManager}
+     */
+    enum Coordination {
+        /**
+         * the changes, the other nodes merge them into their caches
+         */
+        SEND_CHANGES,
+        /**
+         * the ids, the other nodes invalidate the entities in their caches
+         */
+        INVALIDATE,
+        /**
+         * nothing
+         */
+        NONE
+    }
+
+    /**
+     * @return heap budget of the cache in bytes
+     */
+    long maxBytes();
+
+    /**
+     * @return estimated heap size of one cached entity in bytes
+     */
+    int entityBytes();
+
+    /**
+     * @return eviction when the budget is exceeded
+     */
+    Eviction eviction() default Eviction.LRU;
+
+    /**
+     * @return milliseconds after which a cached entity is read again from the
+     *         database, 0 to keep it until it is evicted
+     */
+    long timeToLiveMillis() default 0;
+
+    /**
+     * @return what to send to the other nodes on a change
+     */
+    Coordination coordination() default Coordination.SEND_CHANGES;
+
+    /**
+     * @return true if the id is a single Long: the identity map keeps the
+     *         entities in a {@link LongCacheKeyMap}
+     */
+    boolean longKeys() default false;
+
+}
@@ -0,0 +1,55 @@
+package testJpa.cache;
+
+import org.eclipse.persistence.config.DescriptorCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+
+/**
+ * Configures the shared cache of an entity by its {@link CachePolicy}: a
+ * {@link LruIdentityMap} or {@link LfuIdentityMap} sized by the byte budget,
+ * a time to live and what to send to other nodes with cache coordination.
+ */
+public class CachePolicyCustomizer implements DescriptorCustomizer {
+
+    @Override
+    public void customize(ClassDescriptor descriptor) throws Exception {
+        // getJavaClass() returns a raw Class
+        final CachePolicy policy = ((Class<?>) descriptor.getJavaClass()).getAnnotation(CachePolicy.class);
+        if (policy == null) {
+            throw new IllegalStateException(descriptor.getJavaClass().getName() + " has no @CachePolicy");
+        }
+
+        descriptor.setIdentityMapClass(
+                policy.eviction() == CachePolicy.Eviction.LFU ? LfuIdentityMap.class : LruIdentityMap.class);
+        descriptor.setIdentityMapSize(maxEntries(policy));
+
+        if (policy.timeToLiveMillis() > 0) {
+            descriptor.setCacheInvalidationPolicy(new TimeToLiveCacheInvalidationPolicy(policy.timeToLiveMillis()));
+        }
+
+        switch (policy.coordination()) {
+        case INVALIDATE:
+            descriptor.setCacheSynchronizationType(ClassDescriptor.INVALIDATE_CHANGED_OBJECTS);
+            break;
+        case NONE:
+            descriptor.setCacheSynchronizationType(ClassDescriptor.DO_NOT_SEND_CHANGES);
+            break;
+        default:
+            descriptor.setCacheSynchronizationType(ClassDescriptor.SEND_OBJECT_CHANGES);
+            break;
+        }
+    }
+
+    /**
+     * @param policy
+     *            the policy
+     * @return number of entities within the budget, at least 1
+     */
+    static int maxEntries(CachePolicy policy) {
+        if (policy.entityBytes() <= 0) {
+            throw new IllegalArgumentException("entity size must be positive, but is " + policy.entityBytes());
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, policy.maxBytes() / policy.entityBytes()));
+    }
+
+}
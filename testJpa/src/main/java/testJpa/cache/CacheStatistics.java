@@ -0,0 +1,114 @@
+package testJpa.cache;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.persistence.sessions.Session;
+
+import testJpa.metrics.SessionMetrics;
+
+/**
+ * Hits, misses and evictions of the shared cache of one entity. EclipseLink
+ * creates the caches itself, so the statistics are kept in the
+ * {@link SessionMetrics} of the session by entity name, see
+ * {@link #of(Session, String)}.
+ * <p>
+ * A hit or miss is a lookup by id in the cache, e.g. by
+ * {@code EntityManager.find} or when a query result is resolved. Lookups for
+ * merges after a commit are not counted.
+ */
+public class CacheStatistics {
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private volatile int maxEntries;
+
+    /**
+     * @param session
+     *            the session of the cache
+     * @param entityName
+     *            name of the entity
+     * @return the statistics of the entity, created if necessary
+     */
+    public static CacheStatistics of(Session session, String entityName) {
+        return SessionMetrics.of(session).get(CacheStatistics.class, entityName, CacheStatistics::new);
+    }
+
+    /**
+     * @param session
+     *            the session of the caches
+     * @return the statistics of all entities of the session with a
+     *         {@link CachePolicy} by name
+     */
+    public static Map<String, CacheStatistics> all(Session session) {
+        return SessionMetrics.of(session).all(CacheStatistics.class);
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return number of lookups which found the entity
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups which didn't find the entity
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 without lookups
+     */
+    public double getHitRatio() {
+        final long h = getHits();
+        final long total = h + getMisses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return number of entities evicted because the budget was exceeded
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return maximum number of entities in the cache, derived from the byte
+     *         budget
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * reset the counters, e.g. between benchmark iterations
+     */
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+}
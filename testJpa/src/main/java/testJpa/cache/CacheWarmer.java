@@ -0,0 +1,256 @@
+package testJpa.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+
+import org.eclipse.persistence.annotations.BatchFetchType;
+import org.eclipse.persistence.config.QueryHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.spring.table.domain.SpringTable;
+import testJpa.spring.teacherStudent.domain.TeacherSpring;
+
+/**
+ * Loads hot entities into the shared cache on startup, before the application
+ * context is refreshed, i.e. before the node reports ready. The tasks run in
+ * parallel and read pages of entities ordered by id, each page in a read-only
+ * transaction of its own, so the persistence context never holds more than a
+ * page. Tasks still running at the end of the time budget stop after their
+ * current page and startup continues.
+ * <p>
+ * Configured by:
+ * <ul>
+ * <li>"cache.warmup.enabled" (default false)</li>
+ * <li>"cache.warmup.budgetMillis" (default 30000)</li>
+ * <li>"cache.warmup.threads" (default 2)</li>
+ * <li>"cache.warmup.pageSize" (default 500)</li>
+ * <li>"cache.warmup.springTable.newest": number of the newest
+ * {@link SpringTable}s (default 10000, 0 for none)</li>
+ * <li>"cache.warmup.teachers": all {@link TeacherSpring}s with their students
+ * (default true)</li>
+ * </ul>
+ */
+@Component
+public class CacheWarmer implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    @PersistenceContext
+    EntityManager em;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    Environment env;
+
+    private volatile Map<String, CacheWarmupProgress> progress = Collections.emptyMap();
+
+    private volatile boolean running;
+
+    /**
+     * @return the tasks configured by the properties
+     */
+    public List<CacheWarmupTask> configuredTasks() {
+        final List<CacheWarmupTask> tasks = new ArrayList<>();
+
+        final long newest = env.getProperty("cache.warmup.springTable.newest", Long.class, 10000L);
+        if (newest > 0) {
+            tasks.add(CacheWarmupTask.newest("springTable", SpringTable.class, newest));
+        }
+        if (env.getProperty("cache.warmup.teachers", Boolean.class, Boolean.TRUE)) {
+            tasks.add(CacheWarmupTask.all("teachers", TeacherSpring.class, "students"));
+        }
+        return tasks;
+    }
+
+    /**
+     * Run tasks in parallel and wait until they are done or the budget is
+     * exhausted.
+     *
+     * @param tasks
+     *            the tasks
+     * @param budgetMillis
+     *            maximum time to wait
+     * @return progress of the tasks by name
+     */
+    public Map<String, CacheWarmupProgress> warmUp(List<CacheWarmupTask> tasks, long budgetMillis) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        final int pageSize = env.getProperty("cache.warmup.pageSize", Integer.class, 500);
+        final int threads = env.getProperty("cache.warmup.threads", Integer.class, 2);
+
+        final Map<String, CacheWarmupProgress> result = new LinkedHashMap<>();
+        tasks.forEach(task -> result.put(task.getName(), new CacheWarmupProgress(task.getName())));
+        progress = Collections.unmodifiableMap(result);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())),
+                r -> {
+                    final Thread t = new Thread(r, "cache-warmer-" + THREAD_NUMBER.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (CacheWarmupTask task : tasks) {
+                futures.add(executor.submit(() -> run(task, pageSize, deadline, result.get(task.getName()))));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // the task stops after its current page
+                } catch (ExecutionException e) {
+                    // recorded in the progress
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+
+        result.values().forEach(p -> LOGGER.info("cache warm-up {}", p));
+        return progress;
+    }
+
+    /**
+     * @return progress of the last warm-up by task name
+     */
+    public Map<String, CacheWarmupProgress> getProgress() {
+        return progress;
+    }
+
+    private void run(CacheWarmupTask task, int pageSize, long deadline, CacheWarmupProgress p) {
+        p.start();
+        try {
+            final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+
+            Long last = null;
+            long remaining = task.getLimit();
+            while (remaining > 0) {
+                if (System.nanoTime() - deadline >= 0) {
+                    p.end(CacheWarmupProgress.State.TIMED_OUT);
+                    return;
+                }
+
+                final Long after = last;
+                final int size = (int) Math.min(pageSize, remaining);
+                final List<Long> ids = tx.execute(status -> page(task, after, size));
+                p.recordPage(ids.size());
+                if (ids.size() < size) {
+                    break;
+                }
+                last = ids.get(ids.size() - 1);
+                remaining -= ids.size();
+            }
+            p.end(CacheWarmupProgress.State.COMPLETED);
+        } catch (RuntimeException e) {
+            p.end(CacheWarmupProgress.State.FAILED);
+            LOGGER.warn("cache warm-up " + task.getName() + " failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return ids of the page in the order read
+     */
+    private List<Long> page(CacheWarmupTask task, Long after, int size) {
+        @SuppressWarnings("unchecked")
+        final Class<Object> type = (Class<Object>) task.getEntity();
+        final String idName = emf.getMetamodel().entity(type).getId(Long.class).getName();
+
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Object> cq = cb.createQuery(type);
+        final Root<Object> root = cq.from(type);
+        root.alias("e");
+        final Path<Long> id = root.get(idName);
+        if (after != null) {
+            cq.where(task.isNewestFirst() ? cb.lessThan(id, after) : cb.greaterThan(id, after));
+        }
+        cq.orderBy(task.isNewestFirst() ? cb.desc(id) : cb.asc(id));
+
+        final TypedQuery<Object> query = em.createQuery(cq).setMaxResults(size);
+        if (task.getFetch() != null) {
+            // one more query with an IN list loads the relationship of the
+            // whole page
+            query.setHint(QueryHints.BATCH, "e." + task.getFetch());
+            query.setHint(QueryHints.BATCH_TYPE, BatchFetchType.IN);
+            query.setHint(QueryHints.LOAD_GROUP_ATTRIBUTE, task.getFetch());
+        }
+
+        final List<Long> ids = new ArrayList<>(size);
+        for (Object entity : query.getResultList()) {
+            ids.add((Long) emf.getPersistenceUnitUtil().getIdentifier(entity));
+        }
+        return ids;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        warmUp(configuredTasks(), env.getProperty("cache.warmup.budgetMillis", Long.class, 30000L));
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return env.getProperty("cache.warmup.enabled", Boolean.class, Boolean.FALSE);
+    }
+
+    /**
+     * start last, when everything else is ready
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+}
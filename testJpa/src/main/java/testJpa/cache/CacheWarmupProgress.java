@@ -0,0 +1,114 @@
+package testJpa.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a {@link CacheWarmupTask}.
+ */
+public class CacheWarmupProgress {
+
+    /**
+     * state of the task
+     */
+    public enum State {
+        /**
+         * waiting for a thread
+         */
+        PENDING,
+        /**
+         * loading
+         */
+        RUNNING,
+        /**
+         * all entities loaded
+         */
+        COMPLETED,
+        /**
+         * stopped at the end of the time budget
+         */
+        TIMED_OUT,
+        /**
+         * stopped by an exception
+         */
+        FAILED
+    }
+
+    private final String task;
+
+    private final LongAdder loaded = new LongAdder();
+
+    private final LongAdder pages = new LongAdder();
+
+    private volatile State state = State.PENDING;
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
+    CacheWarmupProgress(String task) {
+        this.task = task;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        state = State.RUNNING;
+    }
+
+    void recordPage(int entities) {
+        pages.increment();
+        loaded.add(entities);
+    }
+
+    void end(State endState) {
+        endNanos = System.nanoTime();
+        state = endState;
+    }
+
+    /**
+     * @return name of the task
+     */
+    public String getTask() {
+        return task;
+    }
+
+    /**
+     * @return number of entities loaded so far
+     */
+    public long getLoaded() {
+        return loaded.sum();
+    }
+
+    /**
+     * @return number of queries so far
+     */
+    public long getPages() {
+        return pages.sum();
+    }
+
+    /**
+     * @return state of the task
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return milliseconds since the start of the task until now or its end
+     */
+    public long getElapsedMillis() {
+        final State current = state;
+        if (current == State.PENDING) {
+            return 0;
+        }
+        final long end = current == State.RUNNING ? System.nanoTime() : endNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        return task + ": " + state + ", " + getLoaded() + " entities in " + getPages() + " pages, "
+                + getElapsedMillis() + " ms";
+    }
+
+}
@@ -0,0 +1,95 @@
+package testJpa.cache;
+
+/**
+ * Entities loaded into the shared cache by the {@link CacheWarmer}: all
+ * entities of a type or the newest, i.e. those with the highest ids.
+ */
+public final class CacheWarmupTask {
+
+    private final String name;
+
+    private final Class<?> entity;
+
+    private final String fetch;
+
+    private final boolean newestFirst;
+
+    private final long limit;
+
+    private CacheWarmupTask(String name, Class<?> entity, String fetch, boolean newestFirst, long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive, but is " + limit);
+        }
+        this.name = name;
+        this.entity = entity;
+        this.fetch = fetch;
+        this.newestFirst = newestFirst;
+        this.limit = limit;
+    }
+
+    /**
+     * Load all entities of a type.
+     *
+     * @param name
+     *            name of the task for the progress
+     * @param entity
+     *            the entity type, with an id of type Long
+     * @param fetch
+     *            name of a relationship to load with the entities, or null
+     * @return the task
+     */
+    public static CacheWarmupTask all(String name, Class<?> entity, String fetch) {
+        return new CacheWarmupTask(name, entity, fetch, false, Long.MAX_VALUE);
+    }
+
+    /**
+     * Load the entities with the highest ids.
+     *
+     * @param name
+     *            name of the task for the progress
+     * @param entity
+     *            the entity type, with an id of type Long
+     * @param limit
+     *            maximum number of entities
+     * @return the task
+     */
+    public static CacheWarmupTask newest(String name, Class<?> entity, long limit) {
+        return new CacheWarmupTask(name, entity, null, true, limit);
+    }
+
+    /**
+     * @return name of the task
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the entity type
+     */
+    public Class<?> getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return relationship loaded with the entities, or null
+     */
+    public String getFetch() {
+        return fetch;
+    }
+
+    /**
+     * @return true to load in descending order of the ids
+     */
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+
+    /**
+     * @return maximum number of entities
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+}
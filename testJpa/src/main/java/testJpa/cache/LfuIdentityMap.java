@@ -0,0 +1,36 @@
+package testJpa.cache;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+
+/**
+ * Evicts the least frequently used entity of the sample. Entities read once
+ * during a scan are evicted before frequently used ones, but an entity which
+ * was popular once stays until its count is exceeded by others.
+ */
+public class LfuIdentityMap extends BudgetedIdentityMap {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * constructor called by EclipseLink
+     *
+     * @param size
+     *            maximum number of entities
+     * @param descriptor
+     *            descriptor of the entity
+     * @param session
+     *            the session owning the cache
+     * @param isolated
+     *            true for the cache of an isolated session
+     */
+    public LfuIdentityMap(int size, ClassDescriptor descriptor, AbstractSession session, boolean isolated) {
+        super(size, descriptor, session, isolated);
+    }
+
+    @Override
+    long score(long lastAccess, long hits) {
+        return hits;
+    }
+
+}
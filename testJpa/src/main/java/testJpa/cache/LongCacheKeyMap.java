@@ -0,0 +1,472 @@
+package testJpa.cache;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongBinaryOperator;
+
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+
+import testJpa.support.LongHash;
+
+/**
+ * Cache keys of an identity map by primitive long id, replacing the
+ * {@code ConcurrentHashMap} of {@code FullIdentityMap} for entities with a
+ * single Long id, see {@link CachePolicy#longKeys()}. The ids are stored in a
+ * long array with open addressing and linear probing instead of a node with a
+ * boxed key per entity, so a lookup compares primitive values in one array and
+ * the map adds no object per entry.
+ * <p>
+ * Lookups are optimistic reads of a {@link StampedLock} and don't block unless
+ * they overlap with a change. Iteration works on a snapshot.
+ * <p>
+ * The last access and number of hits of each entity, used by
+ * {@link BudgetedIdentityMap} to choose the entity to evict, are kept in
+ * arrays parallel to the ids. Updates may be lost under contention, which is
+ * good enough to rank entities.
+ */
+public class LongCacheKeyMap extends AbstractMap<Object, CacheKey> implements ConcurrentMap<Object, CacheKey> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+
+    private final StampedLock lock = new StampedLock();
+
+    private long[] keys;
+
+    /**
+     * value of the slot, null if the slot is empty
+     */
+    private CacheKey[] values;
+
+    /**
+     * {@link System#nanoTime()} of the last access of the slot
+     */
+    private long[] lastAccess;
+
+    /**
+     * number of hits of the slot
+     */
+    private int[] hits;
+
+    private int size;
+
+    /**
+     * @param expectedSize
+     *            expected number of entities
+     */
+    public LongCacheKeyMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_INITIAL_CAPACITY && capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * @param key
+     *            the id
+     * @return the cache key of the id or null
+     */
+    public CacheKey get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        CacheKey value = find(keys, values, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = find(keys, values, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param key
+     *            the id
+     * @param value
+     *            the cache key
+     * @return the previous cache key of the id or null
+     */
+    public CacheKey put(long key, CacheKey value) {
+        final long stamp = lock.writeLock();
+        try {
+            return insert(key, value, true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param key
+     *            the id
+     * @param value
+     *            the cache key
+     * @return the existing cache key of the id, or null if the value was added
+     */
+    public CacheKey putIfAbsent(long key, CacheKey value) {
+        final long stamp = lock.writeLock();
+        try {
+            return insert(key, value, false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param key
+     *            the id
+     * @return the removed cache key or null
+     */
+    public CacheKey remove(long key) {
+        final long stamp = lock.writeLock();
+        try {
+            return delete(key, null);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * record a hit of an id
+     *
+     * @param key
+     *            the id
+     */
+    void touch(long key) {
+        final long stamp = lock.tryOptimisticRead();
+        final long[] currentKeys = keys;
+        final CacheKey[] currentValues = values;
+        final long[] currentAccess = lastAccess;
+        final int[] currentHits = hits;
+        if (currentAccess.length != currentValues.length || currentHits.length != currentValues.length) {
+            return;
+        }
+
+        final int slot = slot(currentKeys, currentValues, key);
+        if (slot >= 0 && lock.validate(stamp)) {
+            currentAccess[slot] = System.nanoTime();
+            if (currentHits[slot] < Integer.MAX_VALUE) {
+                currentHits[slot]++;
+            }
+        }
+    }
+
+    /**
+     * Find the entity to evict among a sample of the entities in the slots
+     * from a random slot on. The ids are spread over the slots by their hash,
+     * so neighbouring slots are a random sample.
+     *
+     * @param sampleSize
+     *            number of entities to compare
+     * @param excluded
+     *            id which is never evicted
+     * @param score
+     *            score of last access and hits, the lowest is evicted
+     * @return the cache key with the lowest score which is not locked, null if
+     *         there is none
+     */
+    CacheKey lowest(int sampleSize, long excluded, LongBinaryOperator score) {
+        final long stamp = lock.readLock();
+        try {
+            final int mask = values.length - 1;
+            int slot = ThreadLocalRandom.current().nextInt(values.length);
+            int sampled = 0;
+            CacheKey victim = null;
+            long lowest = Long.MAX_VALUE;
+            for (int probes = 0; probes < values.length && sampled < sampleSize; probes++) {
+                final CacheKey value = values[slot];
+                if (value != null && keys[slot] != excluded) {
+                    sampled++;
+                    final long current = score.applyAsLong(lastAccess[slot], hits[slot]);
+                    if (current < lowest && !value.isAcquired()) {
+                        lowest = current;
+                        victim = value;
+                    }
+                }
+                slot = (slot + 1) & mask;
+            }
+            return victim;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public CacheKey get(Object key) {
+        return key instanceof Long ? get(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public CacheKey put(Object key, CacheKey value) {
+        return put(toLong(key), value);
+    }
+
+    @Override
+    public CacheKey putIfAbsent(Object key, CacheKey value) {
+        return putIfAbsent(toLong(key), value);
+    }
+
+    @Override
+    public CacheKey remove(Object key) {
+        return key instanceof Long ? remove(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof Long) || value == null) {
+            return false;
+        }
+        final long stamp = lock.writeLock();
+        try {
+            return delete((Long) key, value) != null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean replace(Object key, CacheKey oldValue, CacheKey newValue) {
+        final long stamp = lock.writeLock();
+        try {
+            final long id = toLong(key);
+            if (find(keys, values, id) != oldValue || oldValue == null) {
+                return false;
+            }
+            insert(id, newValue, true);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public CacheKey replace(Object key, CacheKey value) {
+        final long stamp = lock.writeLock();
+        try {
+            final long id = toLong(key);
+            return find(keys, values, id) == null ? null : insert(id, value, true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        final long stamp = lock.writeLock();
+        try {
+            allocate(MIN_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * snapshot of the entries, removing an entry through the iterator removes
+     * it from the map
+     */
+    @Override
+    public Set<Map.Entry<Object, CacheKey>> entrySet() {
+        final List<Map.Entry<Object, CacheKey>> entries;
+        final long stamp = lock.readLock();
+        try {
+            entries = new ArrayList<>(size);
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] != null) {
+                    entries.add(new SimpleImmutableEntry<>(Long.valueOf(keys[slot]), values[slot]));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        return new AbstractSet<Map.Entry<Object, CacheKey>>() {
+            @Override
+            public Iterator<Map.Entry<Object, CacheKey>> iterator() {
+                final Iterator<Map.Entry<Object, CacheKey>> snapshot = entries.iterator();
+                return new Iterator<Map.Entry<Object, CacheKey>>() {
+                    private Map.Entry<Object, CacheKey> current;
+
+                    @Override
+                    public boolean hasNext() {
+                        return snapshot.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<Object, CacheKey> next() {
+                        current = snapshot.next();
+                        return current;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) {
+                            throw new IllegalStateException();
+                        }
+                        LongCacheKeyMap.this.remove(current.getKey(), current.getValue());
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    private static long toLong(Object key) {
+        if (!(key instanceof Long)) {
+            throw new IllegalArgumentException("id must be a Long, but is " + key);
+        }
+        return (Long) key;
+    }
+
+    /**
+     * Find the value of a key. An optimistic read may see the arrays of
+     * different resizes and a table being changed, so the lengths are checked
+     * and the number of probes is limited. The caller validates the result.
+     */
+    private static CacheKey find(long[] keys, CacheKey[] values, long key) {
+        final int slot = slot(keys, values, key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * @return slot of the key or -1, see {@link #find(long[], CacheKey[], long)}
+     */
+    private static int slot(long[] keys, CacheKey[] values, long key) {
+        if (keys.length != values.length) {
+            return -1;
+        }
+        final int mask = values.length - 1;
+        int slot = LongHash.hash(key) & mask;
+        for (int probes = 0; probes < values.length; probes++) {
+            if (values[slot] == null) {
+                return -1;
+            }
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private CacheKey insert(long key, CacheKey value, boolean replace) {
+        if (value == null) {
+            throw new NullPointerException("value must not be null");
+        }
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length * 2);
+        }
+
+        final int mask = values.length - 1;
+        int slot = LongHash.hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                final CacheKey existing = values[slot];
+                if (replace) {
+                    values[slot] = value;
+                }
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        lastAccess[slot] = System.nanoTime();
+        hits[slot] = 0;
+        size++;
+        return null;
+    }
+
+    /**
+     * remove a key, if expected is not null only if it is the value
+     */
+    private CacheKey delete(long key, Object expected) {
+        final int mask = values.length - 1;
+        int hole = LongHash.hash(key) & mask;
+        while (values[hole] != null && keys[hole] != key) {
+            hole = (hole + 1) & mask;
+        }
+        final CacheKey removed = values[hole];
+        if (removed == null || expected != null && removed != expected) {
+            return null;
+        }
+
+        // shift the following entries of the probe sequence into the hole
+        for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            final int ideal = LongHash.hash(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                lastAccess[hole] = lastAccess[next];
+                hits[hole] = hits[next];
+                hole = next;
+            }
+        }
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final CacheKey[] oldValues = values;
+        final long[] oldAccess = lastAccess;
+        final int[] oldHits = hits;
+        allocate(capacity);
+
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = LongHash.hash(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                lastAccess[slot] = oldAccess[i];
+                hits[slot] = oldHits[i];
+            }
+        }
+    }
+
+    /**
+     * replace the arrays by empty ones of the capacity
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        lastAccess = new long[capacity];
+        hits = new int[capacity];
+        values = new CacheKey[capacity];
+    }
+
+}
@@ -0,0 +1,34 @@
+package testJpa.cache;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+
+/**
+ * Evicts the least recently used entity of the sample.
+ */
+public class LruIdentityMap extends BudgetedIdentityMap {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * constructor called by EclipseLink
+     *
+     * @param size
+     *            maximum number of entities
+     * @param descriptor
+     *            descriptor of the entity
+     * @param session
+     *            the session owning the cache
+     * @param isolated
+     *            true for the cache of an isolated session
+     */
+    public LruIdentityMap(int size, ClassDescriptor descriptor, AbstractSession session, boolean isolated) {
+        super(size, descriptor, session, isolated);
+    }
+
+    @Override
+    long score(long lastAccess, long hits) {
+        return lastAccess;
+    }
+
+}
@@ -0,0 +1,322 @@
+package testJpa.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.helper.DatabaseTable;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.mappings.CollectionMapping;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.mappings.ManyToManyMapping;
+import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.eclipse.persistence.sessions.IdentityMapAccessor;
+import org.eclipse.persistence.sessions.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import testJpa.jdbc.DmlStatement;
+
+/**
+ * Evicts the entities changed by a JDBC statement from the shared cache:
+ * <ul>
+ * <li>UPDATE and DELETE evict the entities with the keys of the WHERE clause,
+ * or all entities of the table if the keys can't be determined, see
+ * {@link DmlStatement}</li>
+ * <li>INSERT evicts nothing of the table itself, new rows can't be cached</li>
+ * <li>all of them evict the entities with a collection of the changed entity,
+ * e.g. all parents if a child changed, and the entities of a many-to-many
+ * relation table</li>
+ * <li>other statements except queries evict the whole cache</li>
+ * </ul>
+ * Within a transaction the entities are evicted again after completion, so a
+ * concurrent reader can't put the old state back into the cache. Entities
+ * already loaded into a persistence context are not changed.
+ * <p>
+ * Writes which know their keys evict by {@link #evict(Class, Collection)},
+ * bulk updates by their condition with {@link #evict(Class, Expression)}. Each
+ * eviction is passed on to the {@link CacheEvictionListener}s.
+ */
+@Component
+public class SharedCacheInvalidator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedCacheInvalidator.class);
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    private volatile Map<String, MappedTable> tables;
+
+    private final List<CacheEvictionListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param listener
+     *            notified about each eviction
+     */
+    public void addListener(CacheEvictionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener
+     *            no longer notified
+     */
+    public void removeListener(CacheEvictionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * evict the entities changed by a statement
+     *
+     * @param sql
+     *            the statement
+     * @param args
+     *            parameters of each execution, empty for a statement
+     *            without parameters
+     */
+    public void invalidate(String sql, List<Object[]> args) {
+        schedule(eviction(sql, args));
+    }
+
+    /**
+     * evict entities changed by a write which knows their ids, and the
+     * entities depending on them
+     *
+     * @param entity
+     *            the entity type
+     * @param keys
+     *            ids of the changed entities, null for all entities of the
+     *            type
+     */
+    public void evict(Class<?> entity, Collection<?> keys) {
+        final MappedTable table = table(entity);
+        LOGGER.debug("evict {} {}, all of {}", entity, keys == null ? "all" : keys, table.dependents);
+
+        schedule(eviction(table, keys == null ? null : new ArrayList<>(keys)));
+    }
+
+    /**
+     * evict all entities of a type, and the entities depending on them
+     *
+     * @param entity
+     *            the entity type
+     */
+    public void evictAll(Class<?> entity) {
+        evict(entity, (Collection<?>) null);
+    }
+
+    /**
+     * Evict the cached entities matching the condition of a bulk update, and
+     * the entities depending on them. The entities are checked in memory, so
+     * they match by their cached state, i.e. before the update. If an entity
+     * can't be checked, e.g. because the condition navigates into a
+     * relation, all entities of the type are evicted. The listeners can't check
+     * a condition, they are told that all entities of the type were evicted.
+     *
+     * @param entity
+     *            the entity type
+     * @param selectionCriteria
+     *            the condition of the update
+     */
+    public void evict(Class<?> entity, Expression selectionCriteria) {
+        final MappedTable table = table(entity);
+        LOGGER.debug("evict {} where {}, all of {}", entity, selectionCriteria, table.dependents);
+
+        final IdentityMapAccessor accessor = emf.unwrap(JpaEntityManagerFactory.class).getServerSession()
+                .getIdentityMapAccessor();
+        final Runnable dependents = eviction(new MappedTable(null, null, table.dependents), null);
+        schedule(() -> {
+            accessor.invalidateObjects(selectionCriteria, entity, new DatabaseRecord(), true);
+            listeners.forEach(l -> l.evicted(entity, null));
+            dependents.run();
+        });
+    }
+
+    /**
+     * run an eviction now and after completion of the transaction
+     */
+    private void schedule(Runnable eviction) {
+        if (eviction == null) {
+            return;
+        }
+
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private Runnable eviction(String sql, List<Object[]> args) {
+        final DmlStatement statement = DmlStatement.parse(sql);
+        final Cache cache = emf.getCache();
+
+        switch (statement.getKind()) {
+        case QUERY:
+            return null;
+        case OTHER:
+            LOGGER.debug("evict all for {}", sql);
+            return () -> {
+                cache.evictAll();
+                listeners.forEach(CacheEvictionListener::evictedAll);
+            };
+        default:
+            break;
+        }
+
+        final MappedTable table = tables().get(statement.getTable());
+        if (table == null) {
+            return null;
+        }
+
+        final List<Object> keys = statement.getKind() == DmlStatement.Kind.INSERT ? Collections.emptyList()
+                : keys(statement, table, args);
+        LOGGER.debug("evict {} {}, all of {} for {}", table.entity, keys == null ? "all" : keys, table.dependents,
+                sql);
+
+        return eviction(table, keys);
+    }
+
+    /**
+     * @param keys
+     *            keys of the entity of the table, null for all
+     */
+    private Runnable eviction(MappedTable table, List<Object> keys) {
+        final Cache cache = emf.getCache();
+        return () -> {
+            if (table.entity != null) {
+                if (keys == null) {
+                    cache.evict(table.entity);
+                } else {
+                    keys.forEach(key -> cache.evict(table.entity, key));
+                }
+                listeners.forEach(l -> l.evicted(table.entity, keys));
+            }
+            table.dependents.forEach(dependent -> {
+                cache.evict(dependent);
+                listeners.forEach(l -> l.evicted(dependent, null));
+            });
+        };
+    }
+
+    /**
+     * @return keys of all executions, null if unknown for any of them
+     */
+    private static List<Object> keys(DmlStatement statement, MappedTable table, List<Object[]> args) {
+        if (table.keyColumn == null) {
+            return null;
+        }
+
+        final Set<Object> keys = new LinkedHashSet<>();
+        for (Object[] row : args.isEmpty() ? Collections.<Object[]> singletonList(null) : args) {
+            final List<Object> rowKeys = statement.keys(table.keyColumn, row);
+            if (rowKeys == null) {
+                return null;
+            }
+            for (Object key : rowKeys) {
+                keys.add(key instanceof Number ? Long.valueOf(((Number) key).longValue()) : key);
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    private MappedTable table(Class<?> entity) {
+        return tables().values().stream().filter(t -> t.entity == entity).findFirst()
+                .orElse(new MappedTable(entity, null, Collections.emptySet()));
+    }
+
+    private Map<String, MappedTable> tables() {
+        Map<String, MappedTable> result = tables;
+        if (result == null) {
+            result = mapTables(emf.unwrap(JpaEntityManagerFactory.class).getServerSession());
+            tables = result;
+        }
+        return result;
+    }
+
+    /**
+     * map the tables of all entities and relation tables to the cached
+     * entities depending on them
+     */
+    static Map<String, MappedTable> mapTables(Session session) {
+        final Map<Class<?>, Set<Class<?>>> owners = new HashMap<>();
+        final Map<String, MappedTable> tables = new HashMap<>();
+
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            if (descriptor.isAggregateDescriptor()) {
+                continue;
+            }
+            for (DatabaseMapping mapping : descriptor.getMappings()) {
+                if (mapping.isCollectionMapping()) {
+                    final Class<?> referenced = ((CollectionMapping) mapping).getReferenceClass();
+                    owners.computeIfAbsent(referenced, c -> new HashSet<>()).add(descriptor.getJavaClass());
+                }
+                if (mapping.isManyToManyMapping()) {
+                    final DatabaseTable relation = ((ManyToManyMapping) mapping).getRelationTable();
+                    final Set<Class<?>> both = new HashSet<>();
+                    both.add(descriptor.getJavaClass());
+                    both.add(((ManyToManyMapping) mapping).getReferenceClass());
+                    tables.put(relation.getName().toUpperCase(Locale.ROOT), new MappedTable(null, null, both));
+                }
+            }
+        }
+
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            if (descriptor.isAggregateDescriptor()) {
+                continue;
+            }
+            final List<DatabaseField> keys = descriptor.getPrimaryKeyFields();
+            final String keyColumn = keys.size() == 1 ? keys.get(0).getName() : null;
+            final Set<Class<?>> dependents = owners.getOrDefault(descriptor.getJavaClass(), Collections.emptySet());
+
+            for (DatabaseTable table : descriptor.getTables()) {
+                tables.put(table.getName().toUpperCase(Locale.ROOT),
+                        new MappedTable(descriptor.getJavaClass(), keyColumn, dependents));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * the entity mapped to a table and the entities to evict completely if the
+     * table changes
+     */
+    static final class MappedTable {
+
+        final Class<?> entity;
+
+        final String keyColumn;
+
+        final Set<Class<?>> dependents;
+
+        MappedTable(Class<?> entity, String keyColumn, Set<Class<?>> dependents) {
+            this.entity = entity;
+            this.keyColumn = keyColumn;
+            this.dependents = dependents;
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package testJpa.cache.coordination;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.persistence.internal.sessions.coordination.broadcast.BroadcastRemoteConnection;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.coordination.RemoteCommandManager;
+import org.eclipse.persistence.sessions.serializers.JavaSerializer;
+import org.eclipse.persistence.sessions.serializers.Serializer;
+
+/**
+ * Connection of a node to the other nodes of a channel. Commands are wrapped
+ * into a {@link CoordinationEnvelope}, so the receiver can skip its own
+ * commands and record the propagation lag. Subclasses transport the bytes.
+ */
+abstract class CoordinationConnection extends BroadcastRemoteConnection {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * unique id of this connection, nodes in different JVMs may have the same
+     * session name
+     */
+    private final String sender = UUID.randomUUID().toString();
+
+    protected final String node;
+
+    protected final CoordinationMetrics metrics;
+
+    /**
+     * @param rcm
+     *            the command manager of the node
+     * @param node
+     *            session name of the node
+     */
+    CoordinationConnection(RemoteCommandManager rcm, String node) {
+        super(rcm);
+        this.node = node;
+        this.metrics = CoordinationMetrics.of((Session) rcm.getCommandProcessor());
+    }
+
+    /**
+     * send the bytes of an envelope to all other nodes of the channel, or
+     * queue them to be sent. This runs in the committing thread, so it should
+     * not wait for the other nodes.
+     *
+     * @param envelope
+     *            the serialized envelope
+     * @throws Exception
+     *             if the bytes can't be sent at all
+     */
+    protected abstract void send(byte[] envelope) throws Exception;
+
+    @Override
+    protected Object executeCommandInternal(Object command) throws Exception {
+        final String messageId = node + "-" + sequence.incrementAndGet();
+        try {
+            send(new CoordinationEnvelope(sender, System.currentTimeMillis(), command).toBytes());
+        } catch (Exception e) {
+            metrics.recordFailure();
+            throw e;
+        }
+        metrics.recordSent();
+        return new Object[] { messageId, node };
+    }
+
+    /**
+     * process the bytes of an envelope received from another node
+     *
+     * @param bytes
+     *            the serialized envelope
+     */
+    protected void received(byte[] bytes) {
+        final CoordinationEnvelope envelope;
+        final Object command;
+        try {
+            envelope = CoordinationEnvelope.fromBytes(bytes);
+            if (sender.equals(envelope.sender)) {
+                return;
+            }
+            command = envelope.command instanceof byte[] ? deserialize((byte[]) envelope.command) : envelope.command;
+        } catch (Exception e) {
+            metrics.recordFailure();
+            rcm.logWarning("cache coordination message can't be read: " + e, null);
+            return;
+        }
+
+        metrics.recordReceived(System.currentTimeMillis() - envelope.sentMillis);
+        processReceivedObject(command, envelope.sender + "@" + envelope.sentMillis);
+    }
+
+    /**
+     * The command manager serializes the commands before they are sent. Java
+     * serialization is read with the allowed classes of the envelope, other
+     * serializers by the command manager.
+     */
+    private Object deserialize(byte[] command) throws Exception {
+        final Serializer serializer = rcm.getSerializer();
+        if (serializer == null || serializer instanceof JavaSerializer) {
+            return CoordinationEnvelope.commandFromBytes(command);
+        }
+        return serializer.deserialize(command, (Session) rcm.getCommandProcessor());
+    }
+
+    @Override
+    protected void createDisplayString() {
+        displayString = getClass().getSimpleName() + "[" + node + "]";
+    }
+
+}
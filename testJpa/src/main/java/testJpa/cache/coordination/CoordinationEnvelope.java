@@ -0,0 +1,143 @@
+package testJpa.cache.coordination;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+/**
+ * A cache coordination command with its sender and send time, serialized for
+ * the transport.
+ * <p>
+ * The bytes may come from any host which can connect to the node, so only the
+ * classes of the {@link #ALLOWED_PACKAGES} are deserialized: the commands and
+ * change sets of EclipseLink, the entities and the attribute types of the
+ * JDK. Any other class, e.g. of a gadget chain, is rejected before it is
+ * instantiated.
+ */
+final class CoordinationEnvelope implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * prefixes of the classes which may be deserialized
+     */
+    static final String[] ALLOWED_PACKAGES = { "java.lang.", "java.util.", "java.math.", "java.sql.", "java.time.",
+            "org.eclipse.persistence.", "testJpa." };
+
+    /**
+     * prefixes of the allowed packages which must not be deserialized, e.g.
+     * serialized lambdas
+     */
+    static final String[] DENIED_PACKAGES = { "java.lang.invoke.", "java.lang.reflect." };
+
+    final String sender;
+
+    final long sentMillis;
+
+    /**
+     * the EclipseLink command, or its bytes if EclipseLink serialized it
+     */
+    final Object command;
+
+    CoordinationEnvelope(String sender, long sentMillis, Object command) {
+        this.sender = sender;
+        this.sentMillis = sentMillis;
+        this.command = command;
+    }
+
+    byte[] toBytes() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this);
+        }
+        return bytes.toByteArray();
+    }
+
+    static CoordinationEnvelope fromBytes(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new AllowListInputStream(new ByteArrayInputStream(bytes))) {
+            final Object envelope = in.readObject();
+            if (!(envelope instanceof CoordinationEnvelope)) {
+                throw new InvalidClassException(envelope == null ? "null" : envelope.getClass().getName(),
+                        "not a cache coordination message");
+            }
+            return (CoordinationEnvelope) envelope;
+        }
+    }
+
+    /**
+     * @param bytes
+     *            a command serialized by the Java serialization of EclipseLink
+     * @return the command
+     */
+    static Object commandFromBytes(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new AllowListInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * @param className
+     *            name of a class, or of an array class like {@code [J} or
+     *            {@code [Ljava.lang.Long;}
+     * @return true if the class may be deserialized
+     */
+    static boolean isAllowed(String className) {
+        String name = className;
+        while (name.startsWith("[")) {
+            name = name.substring(1);
+        }
+        if (name.length() == 1) {
+            // array of primitives
+            return true;
+        }
+        if (name.startsWith("L") && name.endsWith(";")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        if (name.equals(Serializable.class.getName())) {
+            // component type of arrays, e.g. of Arrays.asList
+            return true;
+        }
+        for (String denied : DENIED_PACKAGES) {
+            if (name.startsWith(denied)) {
+                return false;
+            }
+        }
+        for (String allowed : ALLOWED_PACKAGES) {
+            if (name.startsWith(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * rejects the classes which are not allowed before they are loaded
+     */
+    private static final class AllowListInputStream extends ObjectInputStream {
+
+        AllowListInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not allowed in cache coordination messages");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("proxy", "not allowed in cache coordination messages");
+        }
+
+    }
+
+}
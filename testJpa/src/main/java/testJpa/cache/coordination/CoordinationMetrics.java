@@ -0,0 +1,101 @@
+package testJpa.cache.coordination;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.persistence.sessions.Session;
+
+import testJpa.metrics.SessionMetrics;
+
+/**
+ * Sent and received cache coordination messages of one node and the
+ * propagation lag: the time from sending a message until the receiving node
+ * starts to apply it. The lag between JVMs depends on synchronized clocks, so
+ * it is recorded in milliseconds.
+ * <p>
+ * EclipseLink creates the transports itself, so the metrics are kept in the
+ * {@link SessionMetrics} of the session, see {@link #of(Session)}.
+ */
+public class CoordinationMetrics {
+
+    private static final long HIGHEST_TRACKABLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Recorder lagMillis = new Recorder(HIGHEST_TRACKABLE_MILLIS, 2);
+
+    private Histogram lagInterval;
+
+    /**
+     * @param session
+     *            the EclipseLink session of the node
+     * @return the metrics of the node, created if necessary
+     */
+    public static CoordinationMetrics of(Session session) {
+        return SessionMetrics.of(session).get(CoordinationMetrics.class, session.getName(), CoordinationMetrics::new);
+    }
+
+    void recordSent() {
+        sent.increment();
+    }
+
+    void recordReceived(long lag) {
+        received.increment();
+        lagMillis.recordValue(Math.min(Math.max(lag, 0), HIGHEST_TRACKABLE_MILLIS));
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * @return number of messages sent or queued to be sent to the other nodes
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return number of messages received from other nodes
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * @return number of messages which could not be sent or received
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return number of messages dropped because too many messages were
+     *         waiting to be sent to a node
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return propagation lag in milliseconds of the messages received since
+     *         the previous call
+     */
+    public synchronized Histogram intervalLagMillis() {
+        lagInterval = lagMillis.getIntervalHistogram(lagInterval);
+        return lagInterval.copy();
+    }
+
+}
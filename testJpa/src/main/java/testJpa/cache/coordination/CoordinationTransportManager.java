@@ -0,0 +1,81 @@
+package testJpa.cache.coordination;
+
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.coordination.broadcast.BroadcastTransportManager;
+
+/**
+ * Base of the transports for cache coordination, configured with the
+ * persistence unit property {@code eclipselink.cache.coordination.protocol}
+ * set to the class name of a subclass. Nodes with the same
+ * {@code eclipselink.cache.coordination.channel} exchange their changes.
+ * <p>
+ * The {@link CoordinationMetrics} are kept per session. Several nodes in one
+ * JVM need distinct {@code eclipselink.session-name}s, otherwise they share
+ * one session.
+ */
+public abstract class CoordinationTransportManager extends BroadcastTransportManager {
+
+    /**
+     * prefix of the properties of the transports
+     */
+    public static final String PROPERTY_PREFIX = "eclipselink.cache.coordination.";
+
+    /**
+     * @return connection sending and receiving the commands of this node
+     */
+    protected abstract CoordinationConnection createCoordinationConnection();
+
+    @Override
+    public void createLocalConnection() {
+        if (localConnection == null) {
+            localConnection = createCoordinationConnection();
+        }
+        createExternalConnection();
+    }
+
+    /**
+     * the local connection sends the commands, too. It is added to the
+     * connections directly, the broadcast transport ignores
+     * {@link #addConnectionToExternalService}.
+     */
+    public void createExternalConnection() {
+        if (localConnection != null && connectionsToExternalServices.isEmpty()) {
+            connectionsToExternalServices.put(rcm.getServiceId().getId(), localConnection);
+        }
+    }
+
+    @Override
+    public void removeLocalConnection() {
+        getConnectionsToExternalServices().clear();
+        if (localConnection != null) {
+            localConnection.close();
+            localConnection = null;
+        }
+    }
+
+    /**
+     * @return name of this node
+     */
+    protected String node() {
+        return ((Session) rcm.getCommandProcessor()).getName();
+    }
+
+    /**
+     * Get a property of the transport from the persistence unit properties or
+     * the system properties.
+     *
+     * @param name
+     *            name without {@link #PROPERTY_PREFIX}
+     * @param defaultValue
+     *            value if the property is not set
+     * @return value of the property
+     */
+    protected String property(String name, String defaultValue) {
+        final Object value = ((Session) rcm.getCommandProcessor()).getProperty(PROPERTY_PREFIX + name);
+        if (value != null) {
+            return value.toString();
+        }
+        return System.getProperty(PROPERTY_PREFIX + name, defaultValue);
+    }
+
+}
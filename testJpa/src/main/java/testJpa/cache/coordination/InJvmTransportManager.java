@@ -0,0 +1,66 @@
+package testJpa.cache.coordination;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.persistence.sessions.coordination.RemoteCommandManager;
+
+/**
+ * Coordinates the caches of the persistence units in this JVM with the same
+ * channel, e.g. to test several nodes in one JVM. The messages are serialized
+ * and delivered asynchronously in order, like over a network.
+ */
+public class InJvmTransportManager extends CoordinationTransportManager {
+
+    private static final ConcurrentMap<String, Set<InJvmConnection>> CHANNELS = new ConcurrentHashMap<>();
+
+    @Override
+    protected CoordinationConnection createCoordinationConnection() {
+        return new InJvmConnection(rcm, node(), rcm.getChannel());
+    }
+
+    static final class InJvmConnection extends CoordinationConnection {
+
+        private final Set<InJvmConnection> channel;
+
+        private final ExecutorService receiver;
+
+        InJvmConnection(RemoteCommandManager rcm, String node, String channel) {
+            super(rcm, node);
+            this.channel = CHANNELS.computeIfAbsent(channel, c -> new CopyOnWriteArraySet<>());
+            this.receiver = Executors.newSingleThreadExecutor(r -> {
+                final Thread t = new Thread(r, "cache-coordination-" + node);
+                t.setDaemon(true);
+                return t;
+            });
+            this.channel.add(this);
+        }
+
+        @Override
+        protected void send(byte[] envelope) {
+            for (InJvmConnection other : channel) {
+                if (other == this) {
+                    continue;
+                }
+                try {
+                    other.receiver.execute(() -> other.received(envelope));
+                } catch (RejectedExecutionException e) {
+                    // the other node is closing
+                }
+            }
+        }
+
+        @Override
+        protected void closeInternal() {
+            channel.remove(this);
+            receiver.shutdown();
+        }
+
+    }
+
+}
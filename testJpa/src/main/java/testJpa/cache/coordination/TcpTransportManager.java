@@ -0,0 +1,384 @@
+package testJpa.cache.coordination;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.persistence.sessions.coordination.RemoteCommandManager;
+
+/**
+ * Coordinates the caches of nodes over TCP. Each node listens on a port and
+ * sends its messages to all peers over one connection per peer, which is
+ * opened again after a failure. Properties:
+ * <ul>
+ * <li>{@code eclipselink.cache.coordination.tcp.port}: port to listen on,
+ * default 7800</li>
+ * <li>{@code eclipselink.cache.coordination.tcp.bindAddress}: address to
+ * listen on, default the loopback address, so other hosts must be enabled
+ * explicitly</li>
+ * <li>{@code eclipselink.cache.coordination.tcp.peers}: comma separated
+ * host:port of the other nodes</li>
+ * <li>{@code eclipselink.cache.coordination.tcp.maxFrameBytes}: maximum size
+ * of a message, default 1 MiB</li>
+ * <li>{@code eclipselink.cache.coordination.tcp.queueSize}: messages waiting
+ * to be sent per peer, default 1000</li>
+ * <li>{@code eclipselink.cache.coordination.tcp.writeTimeoutMillis}: time
+ * after which a blocked write closes the connection, default 5000</li>
+ * </ul>
+ * The committing thread only queues the messages; a thread per peer connects
+ * and sends them, so a slow or unreachable peer doesn't delay the commits.
+ * When the queue of a peer is full, the message is dropped.
+ * Connections are only accepted from the hosts of the peers, and a larger
+ * message closes the connection. The messages are not authenticated, so the
+ * network between the nodes must be trusted; the classes in a message are
+ * restricted by {@link CoordinationEnvelope}.
+ * <p>
+ * A message not delivered to a peer is lost, so the caches should have a time
+ * to live, see {@link testJpa.cache.CachePolicy#timeToLiveMillis()}.
+ */
+public class TcpTransportManager extends CoordinationTransportManager {
+
+    /**
+     * default port to listen on
+     */
+    public static final int DEFAULT_PORT = 7800;
+
+    /**
+     * default maximum size of a message in bytes
+     */
+    public static final int DEFAULT_MAX_FRAME_BYTES = 1024 * 1024;
+
+    /**
+     * default number of messages waiting to be sent per peer
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /**
+     * default time after which a blocked write closes the connection
+     */
+    public static final int DEFAULT_WRITE_TIMEOUT_MILLIS = 5000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    @Override
+    protected CoordinationConnection createCoordinationConnection() {
+        final int port = Integer.parseInt(property("tcp.port", String.valueOf(DEFAULT_PORT)));
+        final String bindAddress = property("tcp.bindAddress", InetAddress.getLoopbackAddress().getHostAddress());
+        final int maxFrameBytes = Integer
+                .parseInt(property("tcp.maxFrameBytes", String.valueOf(DEFAULT_MAX_FRAME_BYTES)));
+        final int queueSize = Integer.parseInt(property("tcp.queueSize", String.valueOf(DEFAULT_QUEUE_SIZE)));
+        final int writeTimeoutMillis = Integer
+                .parseInt(property("tcp.writeTimeoutMillis", String.valueOf(DEFAULT_WRITE_TIMEOUT_MILLIS)));
+        if (maxFrameBytes <= 0) {
+            throw new IllegalArgumentException("tcp.maxFrameBytes must be positive, but is " + maxFrameBytes);
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("tcp.queueSize must be positive, but is " + queueSize);
+        }
+        if (writeTimeoutMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "tcp.writeTimeoutMillis must be positive, but is " + writeTimeoutMillis);
+        }
+        final List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : property("tcp.peers", "").split(",")) {
+            if (!peer.trim().isEmpty()) {
+                final int colon = peer.lastIndexOf(':');
+                peers.add(new InetSocketAddress(peer.substring(0, colon).trim(),
+                        Integer.parseInt(peer.substring(colon + 1).trim())));
+            }
+        }
+
+        try {
+            return new TcpConnection(rcm, node(), new InetSocketAddress(bindAddress, port), peers, maxFrameBytes,
+                    queueSize, writeTimeoutMillis);
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "can't listen on " + bindAddress + ":" + port + " for cache coordination", e);
+        }
+    }
+
+    static final class TcpConnection extends CoordinationConnection {
+
+        private final ServerSocket server;
+
+        private final List<Peer> peers = new ArrayList<>();
+
+        private final Set<Socket> accepted = new CopyOnWriteArraySet<>();
+
+        private final int maxFrameBytes;
+
+        private final long writeTimeoutNanos;
+
+        private volatile boolean closed;
+
+        TcpConnection(RemoteCommandManager rcm, String node, InetSocketAddress bindAddress,
+                List<InetSocketAddress> peers, int maxFrameBytes, int queueSize, int writeTimeoutMillis)
+                throws IOException {
+            super(rcm, node);
+            this.maxFrameBytes = maxFrameBytes;
+            this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+            peers.forEach(address -> this.peers.add(new Peer(address, queueSize)));
+
+            server = new ServerSocket();
+            server.bind(bindAddress);
+            daemon("cache-coordination-accept-" + node, this::accept).start();
+            for (Peer peer : this.peers) {
+                daemon("cache-coordination-send-" + node + "-" + peer.address, peer::run).start();
+            }
+            if (!this.peers.isEmpty()) {
+                daemon("cache-coordination-watchdog-" + node, this::watch).start();
+            }
+        }
+
+        /**
+         * queue the message for all peers, without waiting for them
+         */
+        @Override
+        protected void send(byte[] envelope) throws IOException {
+            if (envelope.length > maxFrameBytes) {
+                throw new IOException("cache coordination message of " + envelope.length
+                        + " bytes exceeds the maximum of " + maxFrameBytes + " bytes");
+            }
+            for (Peer peer : peers) {
+                if (peer.queue.offer(envelope)) {
+                    peer.dropping = false;
+                } else {
+                    metrics.recordDropped();
+                    if (!peer.dropping) {
+                        peer.dropping = true;
+                        rcm.logWarning("cache coordination messages to " + peer.address + " are dropped, "
+                                + peer.queue.size() + " messages are waiting", null);
+                    }
+                }
+            }
+        }
+
+        /**
+         * close the connections of the peers which are blocked in a write for
+         * longer than the write timeout, which fails the write
+         */
+        private void watch() {
+            final long intervalMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos) / 2, 1);
+            while (!closed) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (Peer peer : peers) {
+                    final long since = peer.writingSince;
+                    if (since != 0 && System.nanoTime() - since > writeTimeoutNanos) {
+                        rcm.logWarning("cache coordination write to " + peer.address + " timed out", null);
+                        peer.close();
+                    }
+                }
+            }
+        }
+
+        private void accept() {
+            while (!closed) {
+                try {
+                    final Socket socket = server.accept();
+                    if (!isPeer(socket.getInetAddress())) {
+                        metrics.recordFailure();
+                        rcm.logWarning("cache coordination connection from " + socket.getInetAddress()
+                                + " rejected, it is not a peer", null);
+                        socket.close();
+                        continue;
+                    }
+                    accepted.add(socket);
+                    daemon("cache-coordination-read-" + node, () -> read(socket)).start();
+                } catch (IOException e) {
+                    if (!closed) {
+                        metrics.recordFailure();
+                    }
+                }
+            }
+        }
+
+        private void read(Socket socket) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (!closed) {
+                    final int length = in.readInt();
+                    if (length < 0 || length > maxFrameBytes) {
+                        throw new IOException("cache coordination message of " + length + " bytes from "
+                                + socket.getInetAddress() + " exceeds the maximum of " + maxFrameBytes + " bytes");
+                    }
+                    final byte[] envelope = new byte[length];
+                    in.readFully(envelope);
+                    received(envelope);
+                }
+            } catch (EOFException e) {
+                // the peer closed the connection
+            } catch (IOException e) {
+                if (!closed) {
+                    metrics.recordFailure();
+                    rcm.logWarning("cache coordination connection from " + socket.getInetAddress() + " closed: " + e,
+                            null);
+                }
+            } finally {
+                accepted.remove(socket);
+            }
+        }
+
+        /**
+         * @return true if the address is one of the hosts of the peers, which
+         *         are resolved again in case their addresses changed
+         */
+        private boolean isPeer(InetAddress remote) {
+            for (Peer peer : peers) {
+                try {
+                    for (InetAddress address : InetAddress.getAllByName(peer.address.getHostString())) {
+                        if (address.equals(remote)) {
+                            return true;
+                        }
+                    }
+                } catch (UnknownHostException e) {
+                    // not a match while it can't be resolved
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected void closeInternal() throws IOException {
+            closed = true;
+            server.close();
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+            peers.forEach(Peer::stop);
+        }
+
+        private static Thread daemon(String name, Runnable runnable) {
+            final Thread t = new Thread(runnable, name);
+            t.setDaemon(true);
+            return t;
+        }
+
+        /**
+         * connection to a peer, opened on demand by the sender thread of the
+         * peer
+         */
+        private final class Peer {
+
+            final InetSocketAddress address;
+
+            final BlockingQueue<byte[]> queue;
+
+            /**
+             * {@link System#nanoTime()} when the current write started, 0 if
+             * not writing
+             */
+            volatile long writingSince;
+
+            /**
+             * true while the queue is full, to log the dropped messages once
+             */
+            volatile boolean dropping;
+
+            private volatile Thread sender;
+
+            /**
+             * the socket, opened and reset by the sender thread, closed by
+             * any thread to fail a blocked write
+             */
+            private volatile Socket socket;
+
+            private DataOutputStream out;
+
+            Peer(InetSocketAddress address, int queueSize) {
+                this.address = address;
+                this.queue = new ArrayBlockingQueue<>(queueSize);
+            }
+
+            /**
+             * send the queued messages until the connection is closed
+             */
+            void run() {
+                sender = Thread.currentThread();
+                while (!closed) {
+                    final byte[] envelope;
+                    try {
+                        envelope = queue.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    try {
+                        write(envelope);
+                    } catch (IOException e) {
+                        close();
+                        socket = null;
+                        out = null;
+                        if (!closed) {
+                            metrics.recordFailure();
+                            rcm.logWarning("cache coordination message not sent to " + address + ": " + e, null);
+                        }
+                    }
+                }
+            }
+
+            private void write(byte[] envelope) throws IOException {
+                writingSince = System.nanoTime();
+                try {
+                    if (out == null) {
+                        final Socket s = new Socket();
+                        socket = s;
+                        s.setTcpNoDelay(true);
+                        s.connect(address, CONNECT_TIMEOUT_MILLIS);
+                        out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                    }
+                    out.writeInt(envelope.length);
+                    out.write(envelope);
+                    out.flush();
+                } finally {
+                    writingSince = 0;
+                }
+            }
+
+            /**
+             * close the socket, the sender thread opens it again for the next
+             * message
+             */
+            void close() {
+                final Socket s = socket;
+                if (s != null) {
+                    try {
+                        s.close();
+                    } catch (IOException e) {
+                        // closing anyway
+                    }
+                }
+            }
+
+            /**
+             * stop the sender thread and close the socket
+             */
+            void stop() {
+                final Thread t = sender;
+                if (t != null) {
+                    t.interrupt();
+                }
+                close();
+            }
+
+        }
+
+    }
+
+}
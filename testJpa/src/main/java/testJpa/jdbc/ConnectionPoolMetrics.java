@@ -0,0 +1,126 @@
+package testJpa.jdbc;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wait and hold time of connection leases. Wait time is the time spent in
+ * getConnection(), hold time the time from getConnection() until close().
+ * <p>
+ * All counters are thread-safe and don't block.
+ */
+public class ConnectionPoolMetrics {
+
+    private final LongAdder leases = new LongAdder();
+
+    private final LongAdder failedLeases = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder returns = new LongAdder();
+
+    private final LongAdder holdNanos = new LongAdder();
+
+    private final LongAccumulator maxHoldNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * record a successful lease
+     *
+     * @param nanos
+     *            time waited for the connection
+     */
+    void recordLease(long nanos) {
+        leases.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulate(nanos);
+    }
+
+    /**
+     * record a lease that failed, e.g. because of a timeout
+     *
+     * @param nanos
+     *            time waited for the connection
+     */
+    void recordFailedLease(long nanos) {
+        failedLeases.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulate(nanos);
+    }
+
+    /**
+     * record the return of a connection to the pool
+     *
+     * @param nanos
+     *            time the connection was held
+     */
+    void recordReturn(long nanos) {
+        returns.increment();
+        holdNanos.add(nanos);
+        maxHoldNanos.accumulate(nanos);
+    }
+
+    /**
+     * @return number of connections handed out
+     */
+    public long getLeases() {
+        return leases.sum();
+    }
+
+    /**
+     * @return number of failed getConnection() calls
+     */
+    public long getFailedLeases() {
+        return failedLeases.sum();
+    }
+
+    /**
+     * @return total time waited in getConnection(), in nanoseconds
+     */
+    public long getTotalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /**
+     * @return longest time waited in getConnection(), in nanoseconds
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * @return number of connections returned to the pool
+     */
+    public long getReturns() {
+        return returns.sum();
+    }
+
+    /**
+     * @return total time connections were held, in nanoseconds
+     */
+    public long getTotalHoldNanos() {
+        return holdNanos.sum();
+    }
+
+    /**
+     * @return longest time a connection was held, in nanoseconds
+     */
+    public long getMaxHoldNanos() {
+        return maxHoldNanos.get();
+    }
+
+    /**
+     * reset all counters
+     */
+    public void reset() {
+        leases.reset();
+        failedLeases.reset();
+        waitNanos.reset();
+        maxWaitNanos.reset();
+        returns.reset();
+        holdNanos.reset();
+        maxHoldNanos.reset();
+    }
+
+}
@@ -0,0 +1,335 @@
+package testJpa.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Table and primary keys affected by a DML statement, determined by regular
+ * expressions for the simple statements written by hand in this project:
+ * <ul>
+ * <li>INSERT INTO table ...</li>
+ * <li>UPDATE table SET ... WHERE ...</li>
+ * <li>DELETE FROM table WHERE ...</li>
+ * <li>MERGE INTO table ... ON ... WHEN ..., UPSERT table ...</li>
+ * <li>TRUNCATE TABLE table</li>
+ * </ul>
+ * The keys are known if the WHERE clause, or the ON clause of a MERGE, is a
+ * conjunction containing "key = value" or "key IN (values)", where the values
+ * are literals or parameters. The key of "UPSERT table (columns) VALUES
+ * (values) WITH PRIMARY KEY" is the value at the position of the key column.
+ * Otherwise all rows of the table must be considered changed.
+ */
+public final class DmlStatement {
+
+    /**
+     * kind of statement
+     */
+    public enum Kind {
+        /**
+         * adds rows
+         */
+        INSERT,
+        /**
+         * changes rows
+         */
+        UPDATE,
+        /**
+         * removes rows
+         */
+        DELETE,
+        /**
+         * adds or changes rows
+         */
+        MERGE,
+        /**
+         * a query, changes nothing
+         */
+        QUERY,
+        /**
+         * anything else, e.g. DDL or a procedure call, may change anything
+         */
+        OTHER
+    }
+
+    private static final String TABLE = "([\\w.\"$#]+)";
+
+    private static final Pattern INSERT = Pattern.compile("^INSERT\\s+INTO\\s+" + TABLE, Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern UPDATE = Pattern.compile("^UPDATE\\s+" + TABLE, Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern DELETE = Pattern.compile("^DELETE\\s+FROM\\s+" + TABLE, Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern MERGE = Pattern.compile("^MERGE\\s+INTO\\s+" + TABLE, Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern UPSERT = Pattern.compile("^UPSERT\\s+" + TABLE, Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern UPSERT_WITH_KEY = Pattern.compile("^UPSERT\\s+" + TABLE
+            + "\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\(([^)]*)\\)\\s*WITH\\s+PRIMARY\\s+KEY\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern TRUNCATE = Pattern.compile("^TRUNCATE\\s+TABLE\\s+" + TABLE,
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern QUERY = Pattern.compile("^(SELECT|VALUES|WITH)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WHERE = Pattern.compile("\\bWHERE\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern ON = Pattern.compile("\\bON\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WHEN = Pattern.compile("\\bWHEN\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern OR = Pattern.compile("\\bOR\\b|\\bNOT\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern AND = Pattern.compile("\\bAND\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final String VALUE = "(\\?|-?\\d+|'#\\d+')";
+
+    private final Kind kind;
+
+    private final String table;
+
+    /**
+     * the statement with string literals replaced by '#index'
+     */
+    private final String masked;
+
+    private final List<String> literals;
+
+    private DmlStatement(Kind kind, String table, String masked, List<String> literals) {
+        this.kind = kind;
+        this.table = table;
+        this.masked = masked;
+        this.literals = literals;
+    }
+
+    /**
+     * @param sql
+     *            the statement
+     * @return the parsed statement
+     */
+    public static DmlStatement parse(String sql) {
+        final List<String> literals = new ArrayList<>();
+        final String masked = mask(sql, literals).trim();
+
+        Matcher m;
+        if ((m = INSERT.matcher(masked)).find()) {
+            return new DmlStatement(Kind.INSERT, tableName(m.group(1)), masked, literals);
+        }
+        if ((m = UPDATE.matcher(masked)).find()) {
+            return new DmlStatement(Kind.UPDATE, tableName(m.group(1)), masked, literals);
+        }
+        if ((m = DELETE.matcher(masked)).find()) {
+            return new DmlStatement(Kind.DELETE, tableName(m.group(1)), masked, literals);
+        }
+        if ((m = MERGE.matcher(masked)).find() || (m = UPSERT.matcher(masked)).find()) {
+            return new DmlStatement(Kind.MERGE, tableName(m.group(1)), masked, literals);
+        }
+        if ((m = TRUNCATE.matcher(masked)).find()) {
+            // no WHERE clause: all rows
+            return new DmlStatement(Kind.DELETE, tableName(m.group(1)), "", literals);
+        }
+        if (QUERY.matcher(masked).find()) {
+            return new DmlStatement(Kind.QUERY, null, masked, literals);
+        }
+        return new DmlStatement(Kind.OTHER, null, masked, literals);
+    }
+
+    /**
+     * @return kind of the statement
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return name of the table without schema and quotes in upper case, null
+     *         for {@link Kind#QUERY} and {@link Kind#OTHER}
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Determine the keys of the rows changed by an UPDATE, DELETE or MERGE.
+     *
+     * @param keyColumn
+     *            name of the primary key column
+     * @param args
+     *            parameters of the statement, may be null without parameters
+     * @return the key values, or null if they can't be determined
+     */
+    public List<Object> keys(String keyColumn, Object[] args) {
+        final int conditionStart;
+        final int conditionEnd;
+        if (kind == Kind.UPDATE || kind == Kind.DELETE) {
+            final Matcher where = WHERE.matcher(masked);
+            if (!where.find()) {
+                return null;
+            }
+            conditionStart = where.end();
+            conditionEnd = masked.length();
+        } else if (kind == Kind.MERGE) {
+            final Matcher upsert = UPSERT_WITH_KEY.matcher(masked);
+            if (upsert.find()) {
+                return upsertKey(upsert, keyColumn, args);
+            }
+            final Matcher on = ON.matcher(masked);
+            if (!on.find()) {
+                return null;
+            }
+            final Matcher when = WHEN.matcher(masked);
+            conditionStart = on.end();
+            conditionEnd = when.find(on.end()) ? when.start() : masked.length();
+        } else {
+            return null;
+        }
+
+        final String condition = masked.substring(conditionStart, conditionEnd);
+        if (OR.matcher(condition).find()) {
+            return null;
+        }
+
+        final String column = "\\(*\\s*(?:[\\w\"]+\\.)?\"?" + Pattern.quote(keyColumn) + "\"?\\s*";
+        final Pattern equal = Pattern.compile("^" + column + "=\\s*" + VALUE + "\\s*\\)*$",
+                Pattern.CASE_INSENSITIVE);
+        final Pattern in = Pattern.compile("^" + column + "IN\\s*\\(([^)]*)\\)\\s*\\)*$", Pattern.CASE_INSENSITIVE);
+
+        int start = 0;
+        final Matcher and = AND.matcher(condition);
+        while (start <= condition.length()) {
+            final int end = and.find() ? and.start() : condition.length();
+            final String conjunct = condition.substring(start, end);
+            final int offset = conditionStart + start + (conjunct.length() - conjunct.replaceAll("^\\s+", "").length());
+
+            Matcher m = equal.matcher(conjunct.trim());
+            if (m.find()) {
+                final Object value = value(m.group(1), offset + m.start(1), args);
+                return value == null ? null : Collections.singletonList(value);
+            }
+            m = in.matcher(conjunct.trim());
+            if (m.find()) {
+                return values(m.group(1), offset + m.start(1), args);
+            }
+
+            if (end == condition.length()) {
+                break;
+            }
+            start = and.end();
+        }
+        return null;
+    }
+
+    /**
+     * @return the value at the position of the key column in the column list
+     */
+    private List<Object> upsertKey(Matcher upsert, String keyColumn, Object[] args) {
+        final String[] columns = upsert.group(2).split(",", -1);
+        final String[] values = upsert.group(3).split(",", -1);
+        if (columns.length != values.length) {
+            return null;
+        }
+
+        int position = upsert.start(3);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].trim().replace("\"", "").equalsIgnoreCase(keyColumn)) {
+                final String trimmed = values[i].trim();
+                if (!trimmed.matches(VALUE)) {
+                    return null;
+                }
+                final Object value = value(trimmed, position + values[i].indexOf(trimmed), args);
+                return value == null ? null : Collections.singletonList(value);
+            }
+            position += values[i].length() + 1;
+        }
+        return null;
+    }
+
+    private List<Object> values(String list, int offset, Object[] args) {
+        final List<Object> values = new ArrayList<>();
+        int position = offset;
+        for (String element : list.split(",", -1)) {
+            final String trimmed = element.trim();
+            if (!trimmed.matches(VALUE)) {
+                return null;
+            }
+            final Object value = value(trimmed, position + element.indexOf(trimmed), args);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+            position += element.length() + 1;
+        }
+        return values;
+    }
+
+    /**
+     * @param token
+     *            "?", a number or a masked string literal
+     * @param position
+     *            position of the token in the masked statement
+     */
+    private Object value(String token, int position, Object[] args) {
+        if ("?".equals(token)) {
+            final int index = parameterIndex(position);
+            return args != null && index < args.length ? args[index] : null;
+        }
+        if (token.startsWith("'")) {
+            return literals.get(Integer.parseInt(token.substring(2, token.length() - 1)));
+        }
+        return Long.valueOf(token);
+    }
+
+    private int parameterIndex(int position) {
+        int index = 0;
+        for (int i = 0; i < position; i++) {
+            if (masked.charAt(i) == '?') {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private static String tableName(String name) {
+        final String withoutSchema = name.substring(name.lastIndexOf('.') + 1);
+        return withoutSchema.replace("\"", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * replace string literals by '#index', so their content can't be mistaken
+     * for SQL
+     */
+    private static String mask(String sql, List<String> literals) {
+        final StringBuilder masked = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            final char c = sql.charAt(i);
+            if (c != '\'') {
+                masked.append(c);
+                i++;
+                continue;
+            }
+
+            final StringBuilder literal = new StringBuilder();
+            i++;
+            while (i < sql.length()) {
+                if (sql.charAt(i) == '\'') {
+                    if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                        literal.append('\'');
+                        i += 2;
+                        continue;
+                    }
+                    i++;
+                    break;
+                }
+                literal.append(sql.charAt(i++));
+            }
+            masked.append("'#").append(literals.size()).append('\'');
+            literals.add(literal.toString());
+        }
+        return masked.toString();
+    }
+
+}
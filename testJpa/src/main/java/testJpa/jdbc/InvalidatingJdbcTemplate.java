@@ -0,0 +1,81 @@
+package testJpa.jdbc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import testJpa.cache.SharedCacheInvalidator;
+
+/**
+ * JdbcTemplate which evicts the entities changed by update and batch update
+ * from the shared cache of EclipseLink, see {@link SharedCacheInvalidator}.
+ * This allows to keep the shared cache on for tables which are also written by
+ * JDBC.
+ * <p>
+ * Only the SQL variants of update and batchUpdate are covered. Statements
+ * created by a PreparedStatementCreator or executed by execute aren't
+ * parsed.
+ */
+public class InvalidatingJdbcTemplate extends JdbcTemplate {
+
+    private final SharedCacheInvalidator invalidator;
+
+    /**
+     * @param dataSource
+     *            the data source
+     * @param invalidator
+     *            evicts the changed entities
+     */
+    public InvalidatingJdbcTemplate(DataSource dataSource, SharedCacheInvalidator invalidator) {
+        super(dataSource);
+        this.invalidator = invalidator;
+    }
+
+    @Override
+    public int update(String sql) throws DataAccessException {
+        final int rows = super.update(sql);
+        invalidator.invalidate(sql, Collections.emptyList());
+        return rows;
+    }
+
+    @Override
+    public int update(String sql, Object... args) throws DataAccessException {
+        final int rows = super.update(sql, args);
+        invalidator.invalidate(sql, Collections.singletonList(args));
+        return rows;
+    }
+
+    @Override
+    public int update(String sql, Object[] args, int[] argTypes) throws DataAccessException {
+        final int rows = super.update(sql, args, argTypes);
+        invalidator.invalidate(sql, Collections.singletonList(args));
+        return rows;
+    }
+
+    @Override
+    public int[] batchUpdate(String... sql) throws DataAccessException {
+        final int[] rows = super.batchUpdate(sql);
+        Arrays.stream(sql).forEach(statement -> invalidator.invalidate(statement, Collections.emptyList()));
+        return rows;
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) throws DataAccessException {
+        final int[] rows = super.batchUpdate(sql, batchArgs);
+        invalidator.invalidate(sql, batchArgs);
+        return rows;
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) throws DataAccessException {
+        final int[] rows = super.batchUpdate(sql, batchArgs, argTypes);
+        invalidator.invalidate(sql, batchArgs);
+        return rows;
+    }
+
+}
@@ -0,0 +1,175 @@
+package testJpa.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.springframework.core.env.PropertyResolver;
+
+/**
+ * Connection pool based on the Tomcat JDBC pool, which is also part of the
+ * Tomcat runtime. It records wait and hold time of each lease in
+ * {@link ConnectionPoolMetrics}.
+ * <p>
+ * Use {@link #fromProperties(PropertyResolver)} to create a pool with the
+ * default settings of this project: validation on borrow, fair queuing of
+ * waiting threads and eviction of idle connections above the minimum size.
+ */
+public class MeteredPoolDataSource extends org.apache.tomcat.jdbc.pool.DataSource {
+
+    private final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics();
+
+    /**
+     * Create a pool from properties "jdbc.url", "jdbc.username",
+     * "jdbc.password", "jdbc.driverClassName" and "jdbc.pool.*":
+     * <ul>
+     * <li>jdbc.pool.minIdle (default 2): connections kept open when idle</li>
+     * <li>jdbc.pool.maxActive (default 20): maximum number of connections</li>
+     * <li>jdbc.pool.maxWait (default 30000): milliseconds to wait for a
+     * connection before failing</li>
+     * <li>jdbc.pool.minEvictableIdleTime (default 60000): milliseconds a
+     * connection may stay idle before it is closed</li>
+     * <li>jdbc.pool.evictionInterval (default 5000): milliseconds between
+     * checks for idle connections</li>
+     * <li>jdbc.pool.validationQuery (default "VALUES 1" for Derby, "SELECT 1
+     * FROM DUMMY" otherwise): query to validate a connection on borrow</li>
+     * </ul>
+     *
+     * @param env
+     *            the properties
+     * @return the pool
+     */
+    public static MeteredPoolDataSource fromProperties(PropertyResolver env) {
+        return fromProperties(env, "jdbc.");
+    }
+
+    /**
+     * Create a pool like {@link #fromProperties(PropertyResolver)} from
+     * properties with another prefix, e.g. "jdbc.replica.url" and
+     * "jdbc.replica.pool.maxActive" for prefix "jdbc.replica.".
+     *
+     * @param env
+     *            the properties
+     * @param prefix
+     *            prefix of the properties, including the final dot
+     * @return the pool
+     */
+    public static MeteredPoolDataSource fromProperties(PropertyResolver env, String prefix) {
+        final MeteredPoolDataSource ds = new MeteredPoolDataSource();
+
+        final String url = env.getRequiredProperty(prefix + "url");
+        ds.setUrl(url);
+        if (env.containsProperty(prefix + "driverClassName")) {
+            ds.setDriverClassName(env.getProperty(prefix + "driverClassName"));
+        }
+        if (env.containsProperty(prefix + "username")) {
+            ds.setUsername(env.getProperty(prefix + "username"));
+            ds.setPassword(env.getProperty(prefix + "password"));
+        }
+
+        final int minIdle = env.getProperty(prefix + "pool.minIdle", Integer.class, 2);
+        final int maxActive = env.getProperty(prefix + "pool.maxActive", Integer.class, 20);
+        ds.setInitialSize(minIdle);
+        ds.setMinIdle(minIdle);
+        ds.setMaxIdle(maxActive);
+        ds.setMaxActive(maxActive);
+        ds.setMaxWait(env.getProperty(prefix + "pool.maxWait", Integer.class, 30000));
+
+        ds.setMinEvictableIdleTimeMillis(env.getProperty(prefix + "pool.minEvictableIdleTime", Integer.class, 60000));
+        ds.setTimeBetweenEvictionRunsMillis(env.getProperty(prefix + "pool.evictionInterval", Integer.class, 5000));
+
+        ds.setTestOnBorrow(true);
+        // validate on every borrow, not only once per 30 seconds
+        ds.setValidationInterval(0);
+        ds.setValidationQuery(env.getProperty(prefix + "pool.validationQuery",
+                url.startsWith("jdbc:derby:") ? "VALUES 1" : "SELECT 1 FROM DUMMY"));
+
+        // threads waiting for a connection are served first come, first served
+        ds.setFairQueue(true);
+
+        return ds;
+    }
+
+    /**
+     * @return wait and hold time metrics of this pool
+     */
+    public ConnectionPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final long start = System.nanoTime();
+        try {
+            return leased(super.getConnection(), start);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordFailedLease(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        final long start = System.nanoTime();
+        try {
+            return leased(super.getConnection(username, password), start);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordFailedLease(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private Connection leased(Connection con, long start) {
+        final long leased = System.nanoTime();
+        metrics.recordLease(leased - start);
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new HoldTimeHandler(con, leased));
+    }
+
+    /**
+     * Records the hold time when the connection is closed, i.e. returned to
+     * the pool.
+     */
+    private class HoldTimeHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        private final long leased;
+
+        private boolean closed;
+
+        HoldTimeHandler(Connection target, long leased) {
+            this.target = target;
+            this.leased = leased;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    metrics.recordReturn(System.nanoTime() - leased);
+                }
+                break;
+            default:
+                break;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package testJpa.jdbc;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections of read-only transactions, e.g.
+ * {@code @Transactional(readOnly = true)}, to a replica and all others to the
+ * primary database.
+ * <p>
+ * The route is decided when the connection is requested, so use
+ * {@link #create(DataSource, DataSource)}: it wraps this data source in a
+ * {@link LazyConnectionDataSourceProxy}, which requests the connection on the
+ * first statement. By then the transaction manager has published the read-only
+ * flag of the transaction. With the lazy database transactions of EclipseLink
+ * the connection is requested on the first statement anyway.
+ * <p>
+ * Work outside of a transaction, e.g. Liquibase and sequence allocation, uses
+ * the primary database.
+ * <p>
+ * Use the {@link ReplicaJpaDialect}, so entities read from the replica are not
+ * stored in the shared cache.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * target data sources
+     */
+    public enum Route {
+        /**
+         * the primary database for read-write transactions
+         */
+        PRIMARY,
+        /**
+         * the replica for read-only transactions
+         */
+        REPLICA
+    }
+
+    private final LongAdder primaryConnections = new LongAdder();
+
+    private final LongAdder replicaConnections = new LongAdder();
+
+    /**
+     * @param primary
+     *            data source of the primary database
+     * @param replica
+     *            data source of the replica
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Create a routing data source which requests connections lazily.
+     *
+     * @param primary
+     *            data source of the primary database
+     * @param replica
+     *            data source of the replica
+     * @return the lazy routing data source
+     */
+    public static LazyConnectionDataSourceProxy create(DataSource primary, DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+    }
+
+    /**
+     * @param dataSource
+     *            a data source
+     * @return true if the data source is or wraps a routing data source
+     */
+    public static boolean isRouting(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ReadWriteRoutingDataSource.class);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return route for the current transaction
+     */
+    public static Route currentRoute() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        final Route route = currentRoute();
+        if (route == Route.REPLICA) {
+            replicaConnections.increment();
+        } else {
+            primaryConnections.increment();
+        }
+        return route;
+    }
+
+    /**
+     * @return number of connections requested from the primary database
+     */
+    public long getPrimaryConnections() {
+        return primaryConnections.sum();
+    }
+
+    /**
+     * @return number of connections requested from the replica
+     */
+    public long getReplicaConnections() {
+        return replicaConnections.sum();
+    }
+
+}
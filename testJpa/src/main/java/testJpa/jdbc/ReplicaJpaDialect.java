@@ -0,0 +1,50 @@
+package testJpa.jdbc;
+
+import java.sql.SQLException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.sessions.server.ServerSession;
+import org.springframework.orm.jpa.vendor.EclipseLinkJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * EclipseLink dialect for a {@link ReadWriteRoutingDataSource}. Read-only
+ * transactions read from the replica, which may lag behind the primary
+ * database. The entities they read are not stored in the shared cache, so
+ * read-write transactions never see the state of the replica.
+ * <p>
+ * Entities already in the shared cache are still returned to read-only
+ * transactions: they have the state of the primary database.
+ * <p>
+ * The {@link ReplicaQueryRedirector} is installed in the session on the first
+ * transaction. Use one dialect per entity manager factory.
+ */
+public class ReplicaJpaDialect extends EclipseLinkJpaDialect {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient volatile boolean installed;
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        if (!installed) {
+            install(entityManager.unwrap(JpaEntityManager.class).getServerSession());
+        }
+        return super.beginTransaction(entityManager, definition);
+    }
+
+    private synchronized void install(ServerSession session) {
+        if (!installed) {
+            if (!ReplicaQueryRedirector.isInstalled(session)) {
+                ReplicaQueryRedirector.install(session);
+            }
+            installed = true;
+        }
+    }
+
+}
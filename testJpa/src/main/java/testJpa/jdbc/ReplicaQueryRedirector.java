@@ -0,0 +1,66 @@
+package testJpa.jdbc;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.queries.ObjectBuildingQuery;
+import org.eclipse.persistence.queries.QueryRedirector;
+import org.eclipse.persistence.sessions.Record;
+import org.eclipse.persistence.sessions.Session;
+
+import testJpa.jdbc.ReadWriteRoutingDataSource.Route;
+
+/**
+ * Default read query redirector of all descriptors: queries of read-only
+ * transactions don't store the entities they build in the shared cache, see
+ * {@link ObjectBuildingQuery#storeBypassCache()}. This covers
+ * {@code find}, JPQL and criteria queries and the relationships loaded by
+ * them.
+ * <p>
+ * EclipseLink passes a clone of the query, so the flag doesn't leak into
+ * queries shared by other transactions.
+ */
+class ReplicaQueryRedirector implements QueryRedirector {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Install the redirector for the read queries of all descriptors of a
+     * session which have no default redirector of their own.
+     *
+     * @param session
+     *            the server session
+     */
+    static void install(Session session) {
+        final ReplicaQueryRedirector redirector = new ReplicaQueryRedirector();
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            if (descriptor.getDefaultReadObjectQueryRedirector() == null) {
+                descriptor.setDefaultReadObjectQueryRedirector(redirector);
+            }
+            if (descriptor.getDefaultReadAllQueryRedirector() == null) {
+                descriptor.setDefaultReadAllQueryRedirector(redirector);
+            }
+        }
+    }
+
+    /**
+     * @param session
+     *            a server session
+     * @return true if the redirector is installed
+     */
+    static boolean isInstalled(Session session) {
+        return session.getDescriptors().values().stream()
+                .anyMatch(d -> d.getDefaultReadAllQueryRedirector() instanceof ReplicaQueryRedirector);
+    }
+
+    @Override
+    public Object invokeQuery(DatabaseQuery query, Record arguments, Session session) {
+        if (query.isObjectBuildingQuery() && ReadWriteRoutingDataSource.currentRoute() == Route.REPLICA) {
+            ((ObjectBuildingQuery) query).storeBypassCache();
+        }
+        query.setDoNotRedirect(true);
+        return ((AbstractSession) session).executeQuery(query, (AbstractRecord) arguments);
+    }
+
+}
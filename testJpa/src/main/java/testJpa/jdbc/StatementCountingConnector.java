@@ -0,0 +1,87 @@
+package testJpa.jdbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.eclipse.persistence.sessions.JNDIConnector;
+import org.eclipse.persistence.sessions.Session;
+
+/**
+ * Connector to a data source whose connections report each executed
+ * statement, see {@link StatementCountingListener}. A JDBC batch is reported
+ * once, when it is executed. Statements found in the shared cache are never
+ * executed, so they are not reported.
+ */
+class StatementCountingConnector extends JNDIConnector {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Consumer<String> executed;
+
+    /**
+     * @param dataSource
+     *            data source of the connections
+     * @param executed
+     *            called with the SQL of each executed statement
+     */
+    StatementCountingConnector(DataSource dataSource, Consumer<String> executed) {
+        super(dataSource);
+        this.executed = executed;
+    }
+
+    @Override
+    public Connection connect(Properties properties, Session session) {
+        final Connection connection = super.connect(properties, session);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    final Object result = invoke(connection, method, args);
+                    if (result instanceof Statement && method.getName().startsWith("prepare")) {
+                        return countingStatement((Statement) result, (String) args[0]);
+                    }
+                    if (result instanceof Statement) {
+                        return countingStatement((Statement) result, null);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @param sql
+     *            SQL of a prepared statement, null for a plain statement
+     */
+    private Statement countingStatement(Statement statement, String sql) {
+        final Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        final String[] batch = new String[1];
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    final String name = method.getName();
+                    if (name.equals("addBatch") && args != null && args.length == 1) {
+                        batch[0] = (String) args[0];
+                    } else if (name.equals("executeBatch")) {
+                        executed.accept(sql != null ? sql : batch[0]);
+                    } else if (name.startsWith("execute")) {
+                        executed.accept(args != null && args.length > 0 ? (String) args[0] : sql);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package testJpa.jdbc;
+
+import java.util.Map;
+
+import org.eclipse.persistence.sessions.Connector;
+import org.eclipse.persistence.sessions.DatasourceLogin;
+import org.eclipse.persistence.sessions.JNDIConnector;
+import org.eclipse.persistence.sessions.Login;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.eclipse.persistence.sessions.server.ServerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Counts the SQL statements EclipseLink executes, per Spring-managed
+ * transaction. The connections of the session are wrapped at login, so only
+ * statements sent to the database are counted, not queries answered from the
+ * cache. When the transaction completes, SELECT statements of the same
+ * shape executed at least {@link #getNPlusOneThreshold()} times are logged as
+ * warning: usually a lazy relationship loaded for each result of a query.
+ * <p>
+ * Tests can count the statements of the current thread independent of
+ * transactions, see {@link #startCapture()}.
+ * <p>
+ * Registered as "eclipselink.session-event-listener" in persistence.xml.
+ */
+public class StatementCountingListener extends SessionEventAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementCountingListener.class);
+
+    private static final Object TRANSACTION_KEY = StatementCountingListener.class.getName() + ".transaction";
+
+    private static final ThreadLocal<StatementStatistics> CAPTURE = new ThreadLocal<>();
+
+    private static volatile int nPlusOneThreshold = 5;
+
+    /**
+     * @return minimum number of executions of a SELECT shape in one
+     *         transaction to be reported as N+1
+     */
+    public static int getNPlusOneThreshold() {
+        return nPlusOneThreshold;
+    }
+
+    /**
+     * @param threshold
+     *            minimum number of executions of a SELECT shape in one
+     *            transaction to be reported as N+1
+     */
+    public static void setNPlusOneThreshold(int threshold) {
+        nPlusOneThreshold = threshold;
+    }
+
+    /**
+     * @return statements of the current transaction so far, null if there is
+     *         no transaction or it executed no statement
+     */
+    public static StatementStatistics currentTransaction() {
+        return (StatementStatistics) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+    }
+
+    /**
+     * start counting the statements of the current thread
+     *
+     * @return the statistics, updated until {@link #stopCapture()}
+     */
+    public static StatementStatistics startCapture() {
+        final StatementStatistics statistics = new StatementStatistics();
+        CAPTURE.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * stop counting the statements of the current thread
+     *
+     * @return the statistics since {@link #startCapture()}, null if not
+     *         started
+     */
+    public static StatementStatistics stopCapture() {
+        final StatementStatistics statistics = CAPTURE.get();
+        CAPTURE.remove();
+        return statistics;
+    }
+
+    /**
+     * count the statements of the connections the session opens from now on
+     */
+    @Override
+    public void preLogin(SessionEvent event) {
+        final Session session = event.getSession();
+        wrapConnector(session.getDatasourceLogin());
+        if (session instanceof ServerSession) {
+            final ServerSession server = (ServerSession) session;
+            wrapConnector(server.getReadConnectionPool().getLogin());
+            server.getConnectionPools().values().forEach(pool -> wrapConnector(pool.getLogin()));
+        }
+    }
+
+    private static void wrapConnector(Login login) {
+        if (!(login instanceof DatasourceLogin)) {
+            return;
+        }
+        final DatasourceLogin datasourceLogin = (DatasourceLogin) login;
+        final Connector connector = datasourceLogin.getConnector();
+        if (connector instanceof JNDIConnector && !(connector instanceof StatementCountingConnector)
+                && ((JNDIConnector) connector).getDataSource() != null) {
+            datasourceLogin.setConnector(new StatementCountingConnector(((JNDIConnector) connector).getDataSource(),
+                    StatementCountingListener::executed));
+        }
+    }
+
+    private static void executed(String sql) {
+        if (sql == null) {
+            return;
+        }
+
+        final StatementStatistics capture = CAPTURE.get();
+        if (capture != null) {
+            capture.record(sql);
+        }
+
+        final StatementStatistics transaction = transactionStatistics();
+        if (transaction != null) {
+            transaction.record(sql);
+        }
+    }
+
+    /**
+     * @return statistics bound to the current transaction, created on first
+     *         use, or null without transaction synchronization
+     */
+    private static StatementStatistics transactionStatistics() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        StatementStatistics statistics = currentTransaction();
+        if (statistics == null) {
+            final StatementStatistics created = new StatementStatistics();
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+                    report(created);
+                }
+            });
+            statistics = created;
+        }
+        return statistics;
+    }
+
+    private static void report(StatementStatistics statistics) {
+        for (Map.Entry<String, Integer> e : statistics.getRepeatedSelects(nPlusOneThreshold).entrySet()) {
+            LOGGER.warn("possible N+1 selects: {} executions of {}", e.getValue(), e.getKey());
+        }
+        LOGGER.debug("transaction completed with {}", statistics);
+    }
+
+}
@@ -0,0 +1,101 @@
+package testJpa.jdbc;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Number of SQL statements executed, by statement shape. The shape is the SQL
+ * with literals replaced by "?", so statements that differ in their values
+ * only are counted together.
+ * <p>
+ * Instances are used by one thread only, see
+ * {@link StatementCountingListener}.
+ */
+public class StatementStatistics {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+    private int statements;
+
+    /**
+     * record an executed statement
+     *
+     * @param sql
+     *            the SQL of the statement
+     */
+    void record(String sql) {
+        statements++;
+        counts.merge(shapeOf(sql), 1, Integer::sum);
+    }
+
+    /**
+     * @param sql
+     *            SQL of a statement
+     * @return the SQL with literals replaced by "?"
+     */
+    static String shapeOf(String sql) {
+        final String withoutStrings = STRING_LITERAL.matcher(sql.trim()).replaceAll("?");
+        return NUMBER_LITERAL.matcher(withoutStrings).replaceAll("?");
+    }
+
+    /**
+     * @return number of statements executed
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return number of SELECT statements executed
+     */
+    public int getSelects() {
+        int selects = 0;
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            if (isSelect(e.getKey())) {
+                selects += e.getValue();
+            }
+        }
+        return selects;
+    }
+
+    /**
+     * @return number of statements by shape, in order of first execution
+     */
+    public Map<String, Integer> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Find SELECT shapes executed repeatedly. This is the pattern of lazy
+     * loading a relationship for each of the results of a query (N+1).
+     *
+     * @param threshold
+     *            minimum number of executions
+     * @return SELECT statements executed at least threshold times, by shape
+     */
+    public Map<String, Integer> getRepeatedSelects(int threshold) {
+        final Map<String, Integer> repeated = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            if (e.getValue() >= threshold && isSelect(e.getKey())) {
+                repeated.put(e.getKey(), e.getValue());
+            }
+        }
+        return repeated;
+    }
+
+    private static boolean isSelect(String shape) {
+        return shape.regionMatches(true, 0, "SELECT", 0, 6);
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements " + counts;
+    }
+
+}
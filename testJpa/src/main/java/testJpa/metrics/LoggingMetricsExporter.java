@@ -0,0 +1,33 @@
+package testJpa.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the metrics of each repository method called in the interval. The
+ * latency percentiles are logged in microseconds.
+ */
+public class LoggingMetricsExporter implements RepositoryMetricsExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingMetricsExporter.class);
+
+    @Override
+    public void export(MethodMetrics method, Histogram latencies) {
+        if (latencies.getTotalCount() == 0 || !LOGGER.isInfoEnabled()) {
+            return;
+        }
+
+        LOGGER.info("{}: calls {}, errors {}, interval {}, p50 {}, p99 {}, p99.9 {}, max {} us", method.getName(),
+                method.getCalls(), method.getErrors(), latencies.getTotalCount(),
+                micros(latencies.getValueAtPercentile(50)), micros(latencies.getValueAtPercentile(99)),
+                micros(latencies.getValueAtPercentile(99.9)), micros(latencies.getMaxValue()));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
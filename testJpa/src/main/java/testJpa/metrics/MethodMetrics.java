@@ -0,0 +1,87 @@
+package testJpa.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Calls, errors and latency histogram of one repository method. Recording is
+ * wait-free and doesn't allocate, so it can stay on under load.
+ * <p>
+ * Latencies are recorded in nanoseconds with 2 significant digits. Calls
+ * taking longer than {@link #HIGHEST_TRACKABLE_NANOS} are recorded as that
+ * value.
+ */
+public class MethodMetrics {
+
+    /**
+     * highest latency the histogram can record
+     */
+    public static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 2);
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private Histogram interval;
+
+    MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * record a call
+     *
+     * @param nanos
+     *            duration of the call
+     * @param failed
+     *            true if the call threw an exception
+     */
+    void record(long nanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        recorder.recordValue(Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    /**
+     * @return name of the method, "repository bean name.method name"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of calls since start
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return number of calls which threw an exception since start
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Get the latencies recorded since the previous call and reset the
+     * recorder. The histogram is reused by the next call, so it must not be
+     * kept by the caller.
+     *
+     * @return latencies in nanoseconds since the previous call
+     */
+    synchronized Histogram intervalHistogram() {
+        interval = recorder.getIntervalHistogram(interval);
+        return interval;
+    }
+
+}
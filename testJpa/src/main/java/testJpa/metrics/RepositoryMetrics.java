@@ -0,0 +1,57 @@
+package testJpa.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Metrics of all repository methods by name, recorded by
+ * {@link RepositoryMetricsPostProcessor}.
+ */
+public class RepositoryMetrics {
+
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param name
+     *            name of the method
+     * @return the metrics of the method, created if necessary
+     */
+    MethodMetrics forName(String name) {
+        return methods.computeIfAbsent(name, MethodMetrics::new);
+    }
+
+    /**
+     * @param name
+     *            "repository bean name.method name"
+     * @return the metrics of the method or null if it wasn't called yet
+     */
+    public MethodMetrics get(String name) {
+        return methods.get(name);
+    }
+
+    /**
+     * @return the metrics of all methods called so far, ordered by name
+     */
+    public Collection<MethodMetrics> getAll() {
+        return Collections.unmodifiableCollection(methods.values());
+    }
+
+    /**
+     * Hand the metrics of all methods to an exporter. The latencies are those
+     * recorded since the previous export, so only one exporter should be
+     * called periodically.
+     *
+     * @param exporter
+     *            the exporter
+     */
+    public void export(RepositoryMetricsExporter exporter) {
+        for (MethodMetrics method : methods.values()) {
+            synchronized (method) {
+                exporter.export(method, method.intervalHistogram());
+            }
+        }
+    }
+
+}
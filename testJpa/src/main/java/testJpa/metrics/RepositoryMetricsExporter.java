@@ -0,0 +1,23 @@
+package testJpa.metrics;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Receives the metrics of the repository methods, see
+ * {@link RepositoryMetrics#export(RepositoryMetricsExporter)}.
+ */
+@FunctionalInterface
+public interface RepositoryMetricsExporter {
+
+    /**
+     * export the metrics of one method
+     *
+     * @param method
+     *            the metrics of the method
+     * @param latencies
+     *            latencies in nanoseconds since the previous export; only
+     *            valid during this call
+     */
+    void export(MethodMetrics method, Histogram latencies);
+
+}
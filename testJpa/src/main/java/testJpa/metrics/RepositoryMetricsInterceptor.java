@@ -0,0 +1,50 @@
+package testJpa.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Records calls, errors and latency of the methods of one repository bean.
+ * Overloaded methods are recorded together.
+ */
+class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    private final RepositoryMetrics metrics;
+
+    private final String beanName;
+
+    private final ConcurrentMap<Method, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    RepositoryMetricsInterceptor(RepositoryMetrics metrics, String beanName) {
+        this.metrics = metrics;
+        this.beanName = beanName;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        final MethodMetrics method = metricsOf(invocation.getMethod());
+
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Object result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            method.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private MethodMetrics metricsOf(Method method) {
+        final MethodMetrics existing = methods.get(method);
+        if (existing != null) {
+            return existing;
+        }
+        return methods.computeIfAbsent(method, m -> metrics.forName(beanName + "." + m.getName()));
+    }
+
+}
@@ -0,0 +1,88 @@
+package testJpa.metrics;
+
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.AopInfrastructureBean;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Records the metrics of all beans annotated with {@link Repository}, like
+ * {@link org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor}
+ * translates their exceptions. This includes the Spring Data repositories.
+ * <p>
+ * The metrics advisor is added as the first advisor of existing proxies, so
+ * the latency includes transaction handling. Recording can be switched off by
+ * {@link #setEnabled(boolean)}, e.g. to measure the overhead.
+ */
+public class RepositoryMetricsPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ClassFilter REPOSITORIES = new AnnotationMatchingPointcut(Repository.class, true)
+            .getClassFilter();
+
+    private final transient RepositoryMetrics metrics;
+
+    private boolean enabled = true;
+
+    /**
+     * @param metrics
+     *            the metrics to record to
+     */
+    public RepositoryMetricsPostProcessor(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+        setBeforeExistingAdvisors(true);
+    }
+
+    /**
+     * @param enabled
+     *            false to leave the repositories unchanged
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean isEligible(Class<?> targetClass) {
+        return REPOSITORIES.matches(targetClass);
+    }
+
+    /**
+     * check the class of the target, the bean may already be a JDK proxy,
+     * e.g. of the exception translation
+     */
+    @Override
+    protected boolean isEligible(Object bean, String beanName) {
+        return isEligible(AopUtils.getTargetClass(bean));
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || bean instanceof AopInfrastructureBean || !isEligible(bean, beanName)) {
+            return bean;
+        }
+
+        // one advisor per bean, so the metrics are named by bean
+        final DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                new RepositoryMetricsInterceptor(metrics, beanName));
+
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvisor(0, advisor);
+            return bean;
+        }
+
+        final ProxyFactory proxyFactory = prepareProxyFactory(bean, beanName);
+        if (!proxyFactory.isProxyTargetClass()) {
+            evaluateProxyInterfaces(bean.getClass(), proxyFactory);
+        }
+        proxyFactory.addAdvisor(advisor);
+        customizeProxyFactory(proxyFactory);
+        return proxyFactory.getProxy(getProxyClassLoader());
+    }
+
+}
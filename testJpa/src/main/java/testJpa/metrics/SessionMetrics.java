@@ -0,0 +1,89 @@
+package testJpa.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import org.eclipse.persistence.sessions.Session;
+
+/**
+ * Metrics of the components EclipseLink creates itself, e.g. sequences, caches
+ * and transports, by type and name. They are kept as property of the
+ * EclipseLink session, so each persistence unit, e.g. of several application
+ * contexts in one JVM, has its own metrics.
+ * <p>
+ * The session customizer installs the metrics at login, see
+ * {@link #install(Session)}, so the session properties are not changed
+ * while other threads read them.
+ */
+public final class SessionMetrics {
+
+    /**
+     * name of the session property
+     */
+    public static final String PROPERTY = SessionMetrics.class.getName();
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> metrics = new ConcurrentHashMap<>();
+
+    private SessionMetrics() {
+    }
+
+    /**
+     * add the metrics to the session if it has none yet
+     *
+     * @param session
+     *            the session, before login
+     * @return the metrics of the session
+     */
+    public static SessionMetrics install(Session session) {
+        synchronized (session) {
+            SessionMetrics existing = (SessionMetrics) session.getProperty(PROPERTY);
+            if (existing == null) {
+                existing = new SessionMetrics();
+                session.setProperty(PROPERTY, existing);
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * @param session
+     *            the session
+     * @return the metrics of the session, installed if necessary
+     */
+    public static SessionMetrics of(Session session) {
+        final SessionMetrics existing = (SessionMetrics) session.getProperty(PROPERTY);
+        return existing != null ? existing : install(session);
+    }
+
+    /**
+     * @param type
+     *            type of the metrics
+     * @param name
+     *            name of the component
+     * @param factory
+     *            creates the metrics of a new component
+     * @return the metrics of the component, created if necessary
+     */
+    public <T> T get(Class<T> type, String name, Supplier<T> factory) {
+        return type.cast(byName(type).computeIfAbsent(name, n -> factory.get()));
+    }
+
+    /**
+     * @param type
+     *            type of the metrics
+     * @return the metrics of all components of the type, ordered by name
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> all(Class<T> type) {
+        return Collections.unmodifiableMap((Map<String, T>) byName(type));
+    }
+
+    private ConcurrentMap<String, Object> byName(Class<?> type) {
+        return metrics.computeIfAbsent(type, t -> new ConcurrentSkipListMap<>());
+    }
+
+}
@@ -0,0 +1,245 @@
+package testJpa.sequencing;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.sequencing.NativeSequence;
+import org.eclipse.persistence.sessions.Connector;
+import org.eclipse.persistence.sessions.DatasourceLogin;
+import org.eclipse.persistence.sessions.JNDIConnector;
+
+import testJpa.metrics.SessionMetrics;
+
+/**
+ * Native sequence that fetches the next blocks of ids on a background thread,
+ * so that inserting threads don't wait for the database when their block is
+ * used up.
+ * <p>
+ * The size of a block is the increment of the database sequence and can't be
+ * changed at runtime. Instead the number of blocks fetched ahead adapts to the
+ * insert rate: it doubles whenever a block was not prefetched in time, up to
+ * {@value #MAX_DEPTH}, and halves when no block was requested for a second.
+ * <p>
+ * The values are handed out in the order they were fetched, so the ids are the
+ * same as with the standard sequence as long as a single node inserts. Values
+ * prefetched but not used are lost on shutdown, just like the rest of a
+ * preallocated block.
+ * <p>
+ * Prefetching needs a data source, see {@link JNDIConnector}. Otherwise this
+ * sequence behaves like the standard one.
+ * <p>
+ * The {@link SequencePrefetchMetrics} are kept in the {@link SessionMetrics}
+ * of the session the sequence was created for.
+ */
+public class PrefetchingNativeSequence extends NativeSequence {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * maximum number of blocks to fetch ahead
+     */
+    static final int MAX_DEPTH = 16;
+
+    /**
+     * time without requests after which the depth is reduced
+     */
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * prefetcher by sequence name, empty if the sequence can't be prefetched
+     */
+    private final transient ConcurrentMap<String, Optional<Prefetcher>> prefetchers = new ConcurrentHashMap<>();
+
+    private final transient SessionMetrics sessionMetrics;
+
+    private transient volatile ExecutorService executor;
+
+    /**
+     * create a prefetching sequence with the settings of a sequence defined by
+     * {@code @SequenceGenerator}
+     *
+     * @param sequence
+     *            the sequence to replace
+     * @param sessionMetrics
+     *            metrics of the session using the sequence
+     */
+    public PrefetchingNativeSequence(NativeSequence sequence, SessionMetrics sessionMetrics) {
+        super(sequence.getName(), sequence.getPreallocationSize(), sequence.getInitialValue(), false);
+        setQualifier(sequence.getQualifier());
+        this.sessionMetrics = sessionMetrics;
+    }
+
+    @Override
+    public void onConnect() {
+        super.onConnect();
+        executor = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = new Thread(r, "sequence-prefetch-" + getName());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void onDisconnect() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        prefetchers.clear();
+        super.onDisconnect();
+    }
+
+    @Override
+    protected Number updateAndSelectSequence(Accessor accessor, AbstractSession writeSession, String seqName,
+            int size) {
+        // the result is kept if there is no prefetcher, too
+        final Prefetcher prefetcher = prefetchers
+                .computeIfAbsent(seqName, name -> Optional.ofNullable(createPrefetcher(writeSession, name, size)))
+                .orElse(null);
+
+        if (prefetcher == null) {
+            return super.updateAndSelectSequence(accessor, writeSession, seqName, size);
+        }
+
+        Number value = prefetcher.take();
+        if (value == null) {
+            final long start = System.nanoTime();
+            value = super.updateAndSelectSequence(accessor, writeSession, seqName, size);
+            prefetcher.stalled(System.nanoTime() - start);
+        }
+
+        prefetcher.refill();
+        return value;
+    }
+
+    /**
+     * @return the prefetcher, or null if the session has no data source or
+     *         the platform can't select the sequence by SQL
+     */
+    private Prefetcher createPrefetcher(AbstractSession writeSession, String seqName, int size) {
+        final Connector connector = ((DatasourceLogin) writeSession.getDatasourceLogin()).getConnector();
+        if (!(connector instanceof JNDIConnector) || ((JNDIConnector) connector).getDataSource() == null) {
+            return null;
+        }
+
+        final String sql = buildSelectQuery(seqName, size).getSQLString();
+        if (sql == null) {
+            return null;
+        }
+
+        return new Prefetcher(seqName, sql, ((JNDIConnector) connector).getDataSource());
+    }
+
+    /**
+     * Prefetched values of one sequence name. EclipseLink requests the blocks
+     * of a sequence name one at a time, the background thread adds them.
+     */
+    private class Prefetcher {
+
+        private final String sql;
+
+        private final DataSource dataSource;
+
+        private final SequencePrefetchMetrics metrics;
+
+        private final Queue<Long> ready = new ConcurrentLinkedQueue<>();
+
+        private int inFlight;
+
+        private int depth = 1;
+
+        private long lastRequest = System.nanoTime();
+
+        Prefetcher(String seqName, String sql, DataSource dataSource) {
+            this.sql = sql;
+            this.dataSource = dataSource;
+            this.metrics = sessionMetrics.get(SequencePrefetchMetrics.class, seqName, SequencePrefetchMetrics::new);
+            metrics.setDepth(depth);
+        }
+
+        /**
+         * @return a prefetched value, or null if none is ready
+         */
+        synchronized Long take() {
+            final long now = System.nanoTime();
+            if (now - lastRequest > IDLE_NANOS && depth > 1) {
+                depth /= 2;
+                metrics.setDepth(depth);
+            }
+            lastRequest = now;
+
+            final Long value = ready.poll();
+            if (value != null) {
+                metrics.recordHit();
+            }
+            return value;
+        }
+
+        /**
+         * the caller had to fetch the block itself: prefetch more blocks
+         */
+        synchronized void stalled(long nanos) {
+            metrics.recordStall(nanos);
+            if (depth < MAX_DEPTH) {
+                depth *= 2;
+                metrics.setDepth(depth);
+            }
+        }
+
+        /**
+         * fetch blocks in the background until the depth is reached
+         */
+        synchronized void refill() {
+            final ExecutorService ex = executor;
+            while (ex != null && ready.size() + inFlight < depth) {
+                try {
+                    ex.execute(this::fetch);
+                    inFlight++;
+                } catch (RejectedExecutionException e) {
+                    // shut down concurrently
+                    return;
+                }
+            }
+        }
+
+        private void fetch() {
+            Long value = null;
+            try (Connection con = dataSource.getConnection();
+                    Statement stmt = con.createStatement();
+                    ResultSet rs = stmt.executeQuery(sql)) {
+                if (rs.next()) {
+                    value = rs.getLong(1);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // counted as failure below, the next request falls back to
+                // the inserting thread
+            }
+
+            synchronized (this) {
+                inFlight--;
+                if (value != null) {
+                    ready.add(value);
+                    metrics.recordPrefetch();
+                } else {
+                    metrics.recordFailure();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package testJpa.sequencing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.sequencing.NativeSequence;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.DatasourceLogin;
+import org.eclipse.persistence.sessions.Session;
+
+import testJpa.metrics.SessionMetrics;
+
+/**
+ * Replaces the sequences defined by {@code @SequenceGenerator} with
+ * {@link PrefetchingNativeSequence}. Name, allocation size and initial value
+ * are kept, so the Liquibase sequences don't change.
+ * <p>
+ * Installs the {@link SessionMetrics} of the session, too, before other
+ * threads use the session.
+ * <p>
+ * Registered as "eclipselink.session.customizer" in persistence.xml.
+ */
+public class PrefetchingSequenceCustomizer implements SessionCustomizer {
+
+    @Override
+    public void customize(Session session) throws Exception {
+        final SessionMetrics metrics = SessionMetrics.install(session);
+        final DatasourceLogin login = (DatasourceLogin) session.getDatasourceLogin();
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Sequence> sequences = login.getSequences();
+        if (sequences == null) {
+            return;
+        }
+
+        final List<NativeSequence> replace = new ArrayList<>();
+        for (Sequence sequence : sequences.values()) {
+            // only sequence objects, identity columns are selected after insert
+            if (sequence.getClass() == NativeSequence.class
+                    && !((NativeSequence) sequence).shouldUseIdentityIfPlatformSupports()) {
+                replace.add((NativeSequence) sequence);
+            }
+        }
+
+        for (NativeSequence sequence : replace) {
+            login.addSequence(new PrefetchingNativeSequence(sequence, metrics));
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package testJpa.sequencing;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.persistence.sessions.Session;
+
+import testJpa.metrics.SessionMetrics;
+
+/**
+ * Prefetch statistics of one sequence. A stall is a request for a new block of
+ * ids that could not be served from the prefetched blocks, so the inserting
+ * thread had to wait for the database.
+ * <p>
+ * EclipseLink creates the sequences itself, so the metrics are kept in the
+ * {@link SessionMetrics} of the session by sequence name, see
+ * {@link #of(Session, String)}. All counters are thread-safe and don't block.
+ */
+public class SequencePrefetchMetrics {
+
+    private final LongAdder blocks = new LongAdder();
+
+    private final LongAdder stalls = new LongAdder();
+
+    private final LongAdder stallNanos = new LongAdder();
+
+    private final LongAccumulator maxStallNanos = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder prefetched = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private volatile int depth;
+
+    /**
+     * @param session
+     *            the session using the sequence
+     * @param sequenceName
+     *            name of the sequence
+     * @return the metrics of the sequence, created if necessary
+     */
+    public static SequencePrefetchMetrics of(Session session, String sequenceName) {
+        return SessionMetrics.of(session).get(SequencePrefetchMetrics.class, sequenceName,
+                SequencePrefetchMetrics::new);
+    }
+
+    /**
+     * @param session
+     *            the session using the sequences
+     * @return the metrics of all sequences of the session by name
+     */
+    public static Map<String, SequencePrefetchMetrics> all(Session session) {
+        return SessionMetrics.of(session).all(SequencePrefetchMetrics.class);
+    }
+
+    /**
+     * record a block served from the prefetched blocks
+     */
+    void recordHit() {
+        blocks.increment();
+    }
+
+    /**
+     * record a block fetched by the inserting thread
+     *
+     * @param nanos
+     *            time the thread waited for the database
+     */
+    void recordStall(long nanos) {
+        blocks.increment();
+        stalls.increment();
+        stallNanos.add(nanos);
+        maxStallNanos.accumulate(nanos);
+    }
+
+    /**
+     * record a block fetched in the background
+     */
+    void recordPrefetch() {
+        prefetched.increment();
+    }
+
+    /**
+     * record a failed background fetch
+     */
+    void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * @param depth
+     *            current number of blocks to prefetch
+     */
+    void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @return number of blocks handed out to EclipseLink
+     */
+    public long getBlocks() {
+        return blocks.sum();
+    }
+
+    /**
+     * @return number of blocks that were not prefetched in time
+     */
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * @return total time inserting threads waited for a block, in nanoseconds
+     */
+    public long getTotalStallNanos() {
+        return stallNanos.sum();
+    }
+
+    /**
+     * @return longest time an inserting thread waited for a block, in
+     *         nanoseconds
+     */
+    public long getMaxStallNanos() {
+        return maxStallNanos.get();
+    }
+
+    /**
+     * @return number of blocks fetched in the background
+     */
+    public long getPrefetched() {
+        return prefetched.sum();
+    }
+
+    /**
+     * @return number of failed background fetches
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return current number of blocks to prefetch
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * reset all counters
+     */
+    public void reset() {
+        blocks.reset();
+        stalls.reset();
+        stallNanos.reset();
+        maxStallNanos.reset();
+        prefetched.reset();
+        failures.reset();
+    }
+
+}
@@ -2,7 +2,11 @@ package testJpa.simple.parentChild.dao;
 
 import java.util.List;
 
+import testJpa.cache.LongCacheKeyMap;
 import testJpa.simple.parentChild.domain.ParentTable;
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.ChunkedDeleter;
+import testJpa.support.CriteriaCondition;
 
 /**
  * Data access object for a parent table. The interface is modeled after
@@ -11,7 +15,8 @@ import testJpa.simple.parentChild.domain.ParentTable;
 public interface SimpleParentDao {
 
     /**
-     * save an entity
+     * save an entity: a new entity (without id) is persisted with its
+     * children and returned, a detached one is merged
      *
      * @param entity
      *            to save
@@ -28,6 +33,17 @@ public interface SimpleParentDao {
      */
     ParentTable findOne(Long id);
 
+    /**
+     * find one entity by id, for callers holding the id as primitive. The
+     * shared cache looks it up by its primitive value, see
+     * {@link LongCacheKeyMap}.
+     *
+     * @param id
+     *            to find
+     * @return the entity
+     */
+    ParentTable findOne(long id);
+
     /**
      * Retrieve all entities from the table. No specific order is guaranteed.
      *
@@ -82,6 +98,7 @@ public interface SimpleParentDao {
     /**
      * Delete all entries with update query. This has to run in a separate
      * transaction since the EntityManager may not be aware of the bulk updates.
+     * For large tables see {@link #deleteWhere(CriteriaCondition, int)}.
      */
     void deleteAllInBatch();
 
@@ -100,4 +117,55 @@ public interface SimpleParentDao {
      */
     List<ParentTable> findByDataBatchFetch(String data);
 
-}
\ No newline at end of file
+    /**
+     * (not in CrudRepository) delete the parents matching a condition in
+     * chunks of ascending ids, each committed in a transaction of its own, see
+     * {@link ChunkedDeleter}. The children are deleted by the ON DELETE
+     * CASCADE of the foreign key. Unlike {@link #deleteAllInBatch()} no
+     * transaction holds the locks of all rows.
+     *
+     * @param condition
+     *            selects the parents to delete
+     * @param chunkSize
+     *            maximum number of parents deleted per transaction
+     * @return number of deleted parents
+     */
+    long deleteWhere(CriteriaCondition<ParentTable> condition, int chunkSize);
+
+    /**
+     * (not in CrudRepository) delete the parents matching a condition in
+     * chunks, see {@link #deleteWhere(CriteriaCondition, int)}
+     *
+     * @param condition
+     *            selects the parents to delete
+     * @param chunkSize
+     *            maximum number of parents deleted per transaction
+     * @param pauseMillis
+     *            pause after each chunk, 0 for none
+     * @param listener
+     *            notified after each committed chunk
+     * @return number of deleted parents
+     */
+    long deleteWhere(CriteriaCondition<ParentTable> condition, int chunkSize, long pauseMillis,
+            ChunkProgressListener listener);
+
+    /**
+     * (not in CrudRepository) delete the parents created before a parent in
+     * chunks, see {@link #deleteWhere(CriteriaCondition, int)}. There is no
+     * creation time in PARENT_TABLE, but the ids are allocated from an ascending
+     * sequence: a lower id was created earlier, within the allocation size of
+     * the sequence per node.
+     *
+     * @param id
+     *            the parents with lower ids are deleted
+     * @param chunkSize
+     *            maximum number of parents deleted per transaction
+     * @param pauseMillis
+     *            pause after each chunk, 0 for none
+     * @param listener
+     *            notified after each committed chunk
+     * @return number of deleted parents
+     */
+    long purgeOlderThan(long id, int chunkSize, long pauseMillis, ChunkProgressListener listener);
+
+}
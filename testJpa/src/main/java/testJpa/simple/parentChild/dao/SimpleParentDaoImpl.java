@@ -2,58 +2,157 @@ package testJpa.simple.parentChild.dao;
 
 import java.util.List;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Root;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.eclipse.persistence.config.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import testJpa.simple.parentChild.domain.ParentTable;
-
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.ChunkedDeleter;
+import testJpa.support.CriteriaCondition;
+import testJpa.support.NamedQueries;
+
+/**
+ * Implementation with the Criteria API. The queries are registered as named
+ * queries on startup, so EclipseLink translates them to SQL only once.
+ * <p>
+ * Read methods run in read-only transactions unless called in a transaction,
+ * so {@link testJpa.jdbc.ReadWriteRoutingDataSource} can route them to a
+ * replica.
+ */
 @Repository
 public class SimpleParentDaoImpl implements SimpleParentDao {
 
+    static final String FIND_ALL = "ParentTable.findAll";
+
+    static final String COUNT = "ParentTable.count";
+
+    static final String IS_EMPTY = "ParentTable.isEmpty";
+
+    static final String FIND_BY_DATA = "ParentTable.findByData";
+
+    static final String FIND_ALL_BATCH_FETCH = "ParentTable.findAllBatchFetch";
+
+    static final String FIND_BY_DATA_BATCH_FETCH = "ParentTable.findByDataBatchFetch";
+
     @PersistenceContext
     EntityManager em;
 
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    ChunkedDeleter chunkedDeleter;
+
+    /**
+     * register the named queries of this DAO
+     */
+    @PostConstruct
+    void compileQueries() {
+        NamedQueries.register(emf, FIND_ALL, SimpleParentDaoImpl::createAllQuery);
+
+        NamedQueries.register(emf, COUNT, em -> {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+            cq.select(cb.count(cq.from(ParentTable.class)));
+
+            return em.createQuery(cq);
+        });
+
+        NamedQueries.register(emf, IS_EMPTY, em -> {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+            final Root<ParentTable> root = cq.from(ParentTable.class);
+            cq.select(root.get("id"));
+
+            return em.createQuery(cq).setMaxResults(1);
+        });
+
+        NamedQueries.register(emf, FIND_BY_DATA, SimpleParentDaoImpl::createDataQuery);
+
+        // This is EclipseLink specific. By default it creates a join fetch.
+        NamedQueries.register(emf, FIND_ALL_BATCH_FETCH,
+                em -> createAllQuery(em).setHint(QueryHints.BATCH, "ParentTable.children"));
+
+        NamedQueries.register(emf, FIND_BY_DATA_BATCH_FETCH,
+                em -> createDataQuery(em).setHint(QueryHints.BATCH, "ParentTable.children"));
+    }
+
+    private static TypedQuery<ParentTable> createAllQuery(final EntityManager em) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        final CriteriaQuery<ParentTable> cq = cb.createQuery(ParentTable.class);
+        cq.from(ParentTable.class);
+
+        return em.createQuery(cq);
+    }
+
+    private static TypedQuery<ParentTable> createDataQuery(final EntityManager em) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        final CriteriaQuery<ParentTable> cq = cb.createQuery(ParentTable.class);
+        final Root<ParentTable> root = cq.from(ParentTable.class);
+        final ParameterExpression<String> data = cb.parameter(String.class, "data");
+        cq.where(cb.equal(root.get("data"), data));
+
+        return em.createQuery(cq);
+    }
+
     @Override
     public ParentTable save(final ParentTable entity) {
-
+        if (entity.getId() == null) {
+            em.persist(entity);
+            return entity;
+        }
+        if (em.contains(entity)) {
+            return entity;
+        }
         return em.merge(entity);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ParentTable findOne(final Long id) {
 
         return em.find(ParentTable.class, id);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public ParentTable findOne(final long id) {
+
+        return em.find(ParentTable.class, Long.valueOf(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<ParentTable> findAll() {
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-        final CriteriaQuery<ParentTable> cq = cb.createQuery(ParentTable.class);
 
-        final TypedQuery<ParentTable> tq = em.createQuery(cq);
+        final TypedQuery<ParentTable> tq = em.createNamedQuery(FIND_ALL, ParentTable.class);
 
         return tq.getResultList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public long count() {
 
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        cq.select(cb.count(cq.from(ParentTable.class)));
-
-        final TypedQuery<Long> tq = em.createQuery(cq);
+        final TypedQuery<Long> tq = em.createNamedQuery(COUNT, Long.class);
 
         return tq.getSingleResult();
     }
@@ -65,6 +164,7 @@ public class SimpleParentDaoImpl implements SimpleParentDao {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean exists(final Long id) {
 
         return null != em.find(ParentTable.class, id);
@@ -72,37 +172,24 @@ public class SimpleParentDaoImpl implements SimpleParentDao {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean isEmpty() {
 
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        final Root<ParentTable> root = cq.from(ParentTable.class);
-        cq.select(root.get("id"));
-        final TypedQuery<Long> tq = em.createQuery(cq);
-        tq.setMaxResults(1);
+        final TypedQuery<Long> tq = em.createNamedQuery(IS_EMPTY, Long.class);
 
         return CollectionUtils.isEmpty(tq.getResultList());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ParentTable> findByData(final String data) {
 
-        final TypedQuery<ParentTable> tq = createDataQuery(data);
+        final TypedQuery<ParentTable> tq = em.createNamedQuery(FIND_BY_DATA, ParentTable.class);
+        tq.setParameter("data", data);
 
         return tq.getResultList();
     }
 
-    private TypedQuery<ParentTable> createDataQuery(final String data) {
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        final CriteriaQuery<ParentTable> cq = cb.createQuery(ParentTable.class);
-        final Root<ParentTable> root = cq.from(ParentTable.class);
-        cq.where(cb.equal(root.get("data"), data));
-
-        return em.createQuery(cq);
-    }
-
     @Override
     public void deleteAllInBatch() {
 
@@ -116,26 +203,37 @@ public class SimpleParentDaoImpl implements SimpleParentDao {
     }
 
     @Override
-    public List<ParentTable> findAllBatchFetch() {
+    public long deleteWhere(CriteriaCondition<ParentTable> condition, int chunkSize) {
+        return deleteWhere(condition, chunkSize, 0, ChunkProgressListener.NONE);
+    }
 
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
+    @Override
+    public long deleteWhere(CriteriaCondition<ParentTable> condition, int chunkSize, long pauseMillis,
+            ChunkProgressListener listener) {
+        return chunkedDeleter.deleteWhere(ParentTable.class, condition, chunkSize, pauseMillis, listener);
+    }
 
-        final CriteriaQuery<ParentTable> cq = cb.createQuery(ParentTable.class);
+    @Override
+    public long purgeOlderThan(long id, int chunkSize, long pauseMillis, ChunkProgressListener listener) {
+        return deleteWhere((cb, root) -> cb.lessThan(root.<Long> get("id"), id), chunkSize, pauseMillis, listener);
+    }
 
-        final TypedQuery<ParentTable> tq = em.createQuery(cq);
-        // This is EclipseLink specific. By default it creates a join fetch.
-        tq.setHint(QueryHints.BATCH, "ParentTable.children");
+    @Override
+    @Transactional(readOnly = true)
+    public List<ParentTable> findAllBatchFetch() {
+
+        final TypedQuery<ParentTable> tq = em.createNamedQuery(FIND_ALL_BATCH_FETCH, ParentTable.class);
 
         return tq.getResultList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ParentTable> findByDataBatchFetch(String data) {
 
-        TypedQuery<ParentTable> q = createDataQuery(data);
-        // This is EclipseLink specific. By default it creates a join fetch.
-        q.setHint(QueryHints.BATCH, "ParentTable.children");
+        final TypedQuery<ParentTable> tq = em.createNamedQuery(FIND_BY_DATA_BATCH_FETCH, ParentTable.class);
+        tq.setParameter("data", data);
 
-        return q.getResultList();
+        return tq.getResultList();
     }
 }
@@ -14,10 +14,17 @@ import javax.persistence.OrderBy;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.eclipse.persistence.annotations.Customizer;
+
+import testJpa.cache.CachePolicy;
+import testJpa.cache.CachePolicyCustomizer;
+
 /**
  * a parent table with one-to-many "owning" relationship to child
  */
 @Entity
+@Customizer(CachePolicyCustomizer.class)
+@CachePolicy(maxBytes = 8 * 1024 * 1024, entityBytes = 240, longKeys = true)
 @Table(name = "PARENT_TABLE")
 public class ParentTable {
 
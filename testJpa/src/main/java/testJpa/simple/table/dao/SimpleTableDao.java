@@ -1,8 +1,18 @@
 package testJpa.simple.table.dao;
 
+import java.sql.Statement;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Slice;
+
+import testJpa.cache.LongCacheKeyMap;
 import testJpa.simple.table.domain.SimpleTable;
+import testJpa.support.BulkUpdater;
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.CursorStreams;
 
 /**
  * Data access object for a simple table. The interface is modeled after
@@ -11,7 +21,8 @@ import testJpa.simple.table.domain.SimpleTable;
 public interface SimpleTableDao {
 
     /**
-     * save an entity
+     * save an entity: a new entity (without id) is persisted and returned, a
+     * detached one is merged
      *
      * @param entity
      *            to save
@@ -28,6 +39,17 @@ public interface SimpleTableDao {
      */
     SimpleTable findOne(Long id);
 
+    /**
+     * find one entity by id, for callers holding the id as primitive. The
+     * shared cache looks it up by its primitive value, see
+     * {@link LongCacheKeyMap}.
+     *
+     * @param id
+     *            to find
+     * @return the entity
+     */
+    SimpleTable findOne(long id);
+
     /**
      * Retrieve all entities from the table. No specific order is guaranteed.
      *
@@ -35,6 +57,16 @@ public interface SimpleTableDao {
      */
     List<SimpleTable> findAll();
 
+    /**
+     * Retrieve the entities with the given ids in one query. Missing ids are
+     * ignored, no specific order is guaranteed.
+     *
+     * @param ids
+     *            the ids
+     * @return the entities found
+     */
+    List<SimpleTable> findAll(Iterable<Long> ids);
+
     /**
      * Get count of entities in the table.
      * <p>
@@ -85,4 +117,192 @@ public interface SimpleTableDao {
      */
     void deleteAllInBatch();
 
-}
\ No newline at end of file
+    /**
+     * (not in CrudRepository) save a large number of entities in one
+     * transaction. The persistence context is flushed and cleared after each
+     * chunk, so memory usage doesn't grow with the number of entities. All
+     * entities managed before are detached afterwards.
+     *
+     * @param entities
+     *            the entities to save
+     * @param chunkSize
+     *            number of entities per flush
+     * @return number of entities saved
+     */
+    long saveAllInBatches(Iterable<SimpleTable> entities, int chunkSize);
+
+    /**
+     * (not in CrudRepository) save a large number of entities in chunks, see
+     * {@link #saveAllInBatches(Iterable, int)}.
+     *
+     * @param entities
+     *            the entities to save
+     * @param chunkSize
+     *            number of entities per flush
+     * @param commitPerChunk
+     *            true to commit each chunk in a new transaction
+     * @param listener
+     *            notified after each chunk
+     * @return number of entities saved
+     */
+    long saveAllInBatches(Iterable<SimpleTable> entities, int chunkSize, boolean commitPerChunk,
+            ChunkProgressListener listener);
+
+    /**
+     * (not in CrudRepository) stream all entities with a server-side cursor,
+     * see {@link CursorStreams}. The stream must be closed and consumed within
+     * a transaction. The entities are detached.
+     *
+     * @return all entities
+     */
+    Stream<SimpleTable> streamAll();
+
+    /**
+     * (not in CrudRepository) stream all entities, see {@link #streamAll()}
+     *
+     * @param fetchSize
+     *            number of rows fetched from the database at once
+     * @return all entities
+     */
+    Stream<SimpleTable> streamAll(int fetchSize);
+
+    /**
+     * (not in CrudRepository) stream entities by data field, see
+     * {@link #streamAll()}
+     *
+     * @param data
+     *            the data to find
+     * @return the matching entities
+     */
+    Stream<SimpleTable> streamByData(String data);
+
+    /**
+     * (not in CrudRepository) stream entities by data field, see
+     * {@link #streamAll()}
+     *
+     * @param data
+     *            the data to find
+     * @param fetchSize
+     *            number of rows fetched from the database at once
+     * @return the matching entities
+     */
+    Stream<SimpleTable> streamByData(String data, int fetchSize);
+
+    /**
+     * (not in CrudRepository) find the next page of entities ordered by id.
+     * The page starts after the last id of the previous page, so the database
+     * seeks the primary key index instead of skipping rows like offset paging
+     * does.
+     *
+     * @param lastId
+     *            last id of the previous page, null for the first page
+     * @param size
+     *            maximum number of entities
+     * @return the entities, ordered by id
+     */
+    List<SimpleTable> findPageAfter(Long lastId, int size);
+
+    /**
+     * (not in CrudRepository) find the next page of entities by data field,
+     * see {@link #findPageAfter(Long, int)}
+     *
+     * @param data
+     *            the data to find, not null
+     * @param lastId
+     *            last id of the previous page, null for the first page
+     * @param size
+     *            maximum number of entities
+     * @return the matching entities, ordered by id
+     * @throws IllegalArgumentException
+     *             if data is null
+     */
+    List<SimpleTable> findByDataAfter(String data, Long lastId, int size);
+
+    /**
+     * (not in CrudRepository) find the next page of entities as a slice, see
+     * {@link #findPageAfter(Long, int)}. One more row is read to determine
+     * {@link Slice#hasNext()}, no count query is executed.
+     * <p>
+     * The slice doesn't know its position: {@link Slice#getNumber()} is always
+     * 0 and {@link Slice#nextPageable()} only carries the size. Continue with
+     * the id of the last entity of the slice as lastId.
+     *
+     * @param lastId
+     *            last id of the previous slice, null for the first slice
+     * @param size
+     *            maximum number of entities
+     * @return the entities, ordered by id
+     */
+    Slice<SimpleTable> findSliceAfter(Long lastId, int size);
+
+    /**
+     * (not in CrudRepository) insert or update entities in the current
+     * transaction. New entities (without id) are persisted. Entities with an
+     * id are written by a batched SQL MERGE without loading them: on Derby
+     * MERGE, on HANA UPSERT, on other databases they are merged one by one.
+     * <p>
+     * The merged rows are evicted from the shared cache. Entities with these
+     * ids managed by the current persistence context, including the given
+     * ones, are detached: find them again to see the written state.
+     *
+     * @param entities
+     *            the entities to save
+     * @return number of entities saved, or {@link Statement#SUCCESS_NO_INFO}
+     *         if the driver doesn't report the row counts of the MERGE batches
+     */
+    int upsertAll(Collection<SimpleTable> entities);
+
+    /**
+     * (not in CrudRepository) replace the data of all entities with the given
+     * data by one UPDATE statement, see {@link BulkUpdater}. The updated
+     * entities are evicted from the shared cache, entities managed by the
+     * current persistence context are not changed.
+     *
+     * @param oldValue
+     *            the data to replace, null for entities without data
+     * @param newValue
+     *            the new data
+     * @return number of updated entities
+     */
+    int updateDataWhere(String oldValue, String newValue);
+
+    /**
+     * (not in CrudRepository) set the data of all entities in a range of ids
+     * by one UPDATE statement, see {@link #updateDataWhere(String, String)}
+     *
+     * @param fromId
+     *            first id, inclusive
+     * @param toId
+     *            last id, inclusive
+     * @param newValue
+     *            the new data
+     * @return number of updated entities
+     */
+    int updateDataByIdRange(long fromId, long toId, String newValue);
+
+    /**
+     * (not in CrudRepository) set the data of each entity to its own value
+     * by JDBC batches of {@link BulkUpdater#DEFAULT_CHUNK_SIZE} rows, see
+     * {@link BulkUpdater#updateByIds(Class, String, Map, int)}. The updated
+     * entities are evicted from the shared cache, entities managed by the
+     * current persistence context are not changed.
+     *
+     * @param data
+     *            the new data by id
+     * @return number of updated rows of each chunk
+     */
+    int[] updateDataByIds(Map<Long, String> data);
+
+    /**
+     * (not in CrudRepository) set the data of each entity to its own value,
+     * see {@link #updateDataByIds(Map)}
+     *
+     * @param data
+     *            the new data by id
+     * @param chunkSize
+     *            number of rows per JDBC batch
+     * @return number of updated rows of each chunk
+     */
+    int[] updateDataByIds(Map<Long, String> data, int chunkSize);
+
+}
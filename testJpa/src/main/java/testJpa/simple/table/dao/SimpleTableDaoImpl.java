@@ -1,58 +1,201 @@
 package testJpa.simple.table.dao;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Root;
+import javax.sql.DataSource;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.platform.database.DerbyPlatform;
+import org.eclipse.persistence.platform.database.HANAPlatform;
+import org.eclipse.persistence.sessions.UnitOfWork;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import testJpa.cache.SharedCacheInvalidator;
+import testJpa.jdbc.InvalidatingJdbcTemplate;
 import testJpa.simple.table.domain.SimpleTable;
-
+import testJpa.support.BulkUpdater;
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.ChunkedWriter;
+import testJpa.support.CursorStreams;
+import testJpa.support.KeysetPages;
+import testJpa.support.NamedQueries;
+
+/**
+ * Implementation with the Criteria API. The queries without dynamic parts are
+ * registered as named queries on startup, so EclipseLink translates them to
+ * SQL only once.
+ * <p>
+ * Read methods run in read-only transactions unless called in a transaction,
+ * so {@link testJpa.jdbc.ReadWriteRoutingDataSource} can route them to a
+ * replica.
+ */
 @Repository
 public class SimpleTableDaoImpl implements SimpleTableDao {
 
+    static final String FIND_ALL = "SimpleTable.findAll";
+
+    static final String COUNT = "SimpleTable.count";
+
+    static final String IS_EMPTY = "SimpleTable.isEmpty";
+
+    static final String FIND_BY_DATA = "SimpleTable.findByData";
+
+    static final String DERBY_UPSERT = "merge into SIMPLE_TABLE t using SYSIBM.SYSDUMMY1 on t.ID = ?"
+            + " when matched then update set DATA = ? when not matched then insert (ID, DATA) values (?, ?)";
+
+    static final String HANA_UPSERT = "upsert SIMPLE_TABLE (ID, DATA) values (?, ?) with primary key";
+
+    /**
+     * number of rows per JDBC batch of {@link #upsertAll(Collection)}
+     */
+    static final int UPSERT_BATCH_SIZE = 1000;
+
     @PersistenceContext
     EntityManager em;
 
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    ChunkedWriter chunkedWriter;
+
+    @Autowired
+    BulkUpdater bulkUpdater;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    SharedCacheInvalidator invalidator;
+
+    private JdbcTemplate jdbc;
+
     @Override
     public SimpleTable save(final SimpleTable entity) {
+        if (entity.getId() == null) {
+            em.persist(entity);
+            return entity;
+        }
+        if (em.contains(entity)) {
+            return entity;
+        }
         return em.merge(entity);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public SimpleTable findOne(final Long id) {
 
         return em.find(SimpleTable.class, id);
     }
 
     @Override
-    public List<SimpleTable> findAll() {
+    @Transactional(readOnly = true)
+    public SimpleTable findOne(final long id) {
 
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-        final CriteriaQuery<SimpleTable> cq = cb.createQuery(SimpleTable.class);
+        return em.find(SimpleTable.class, Long.valueOf(id));
+    }
+
+    /**
+     * register the named queries of this DAO and create the JdbcTemplate
+     */
+    @PostConstruct
+    void compileQueries() {
+        jdbc = new InvalidatingJdbcTemplate(dataSource, invalidator);
+
+        NamedQueries.register(emf, FIND_ALL, em -> {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<SimpleTable> cq = cb.createQuery(SimpleTable.class);
+            cq.from(SimpleTable.class);
+
+            return em.createQuery(cq);
+        });
+
+        NamedQueries.register(emf, COUNT, em -> {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+            cq.select(cb.count(cq.from(SimpleTable.class)));
+
+            return em.createQuery(cq);
+        });
+
+        NamedQueries.register(emf, IS_EMPTY, em -> {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+            final Root<SimpleTable> root = cq.from(SimpleTable.class);
+            cq.select(root.get("id"));
+
+            return em.createQuery(cq).setMaxResults(1);
+        });
+
+        NamedQueries.register(emf, FIND_BY_DATA, em -> {
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<SimpleTable> cq = cb.createQuery(SimpleTable.class);
+            final Root<SimpleTable> root = cq.from(SimpleTable.class);
+            final ParameterExpression<String> data = cb.parameter(String.class, "data");
+            cq.where(cb.equal(root.get("data"), data));
+
+            return em.createQuery(cq);
+        });
+    }
 
-        final TypedQuery<SimpleTable> tq = em.createQuery(cq);
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimpleTable> findAll() {
+
+        final TypedQuery<SimpleTable> tq = em.createNamedQuery(FIND_ALL, SimpleTable.class);
 
         return tq.getResultList();
     }
 
     @Override
-    public long count() {
+    @Transactional(readOnly = true)
+    public List<SimpleTable> findAll(final Iterable<Long> ids) {
+        final List<Long> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        if (idList.isEmpty()) {
+            return new ArrayList<>();
+        }
 
         final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<SimpleTable> cq = cb.createQuery(SimpleTable.class);
+        final Root<SimpleTable> root = cq.from(SimpleTable.class);
+        cq.where(root.get("id").in(idList));
 
-        final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        cq.select(cb.count(cq.from(SimpleTable.class)));
+        return em.createQuery(cq).getResultList();
+    }
 
-        final TypedQuery<Long> tq = em.createQuery(cq);
+    @Override
+    @Transactional(readOnly = true)
+    public long count() {
+
+        final TypedQuery<Long> tq = em.createNamedQuery(COUNT, Long.class);
 
         return tq.getSingleResult();
     }
@@ -64,6 +207,7 @@ public class SimpleTableDaoImpl implements SimpleTableDao {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean exists(final Long id) {
 
         return null != em.find(SimpleTable.class, id);
@@ -71,29 +215,20 @@ public class SimpleTableDaoImpl implements SimpleTableDao {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean isEmpty() {
 
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        final Root<SimpleTable> root = cq.from(SimpleTable.class);
-        cq.select(root.get("id"));
-        final TypedQuery<Long> tq = em.createQuery(cq);
-        tq.setMaxResults(1);
+        final TypedQuery<Long> tq = em.createNamedQuery(IS_EMPTY, Long.class);
 
         return CollectionUtils.isEmpty(tq.getResultList());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<SimpleTable> findByData(final String data) {
 
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        final CriteriaQuery<SimpleTable> cq = cb.createQuery(SimpleTable.class);
-        final Root<SimpleTable> root = cq.from(SimpleTable.class);
-        cq.where(cb.equal(root.get("data"), data));
-
-        final TypedQuery<SimpleTable> tq = em.createQuery(cq);
+        final TypedQuery<SimpleTable> tq = em.createNamedQuery(FIND_BY_DATA, SimpleTable.class);
+        tq.setParameter("data", data);
 
         return tq.getResultList();
     }
@@ -108,4 +243,153 @@ public class SimpleTableDaoImpl implements SimpleTableDao {
 
         tq.executeUpdate();
     }
+
+    @Override
+    public int upsertAll(final Collection<SimpleTable> entities) {
+        final List<SimpleTable> known = new ArrayList<>(entities.size());
+        for (SimpleTable entity : entities) {
+            if (entity.getId() == null) {
+                em.persist(entity);
+            } else {
+                known.add(entity);
+            }
+        }
+        final int persisted = entities.size() - known.size();
+        if (known.isEmpty()) {
+            return persisted;
+        }
+
+        final DatabasePlatform platform = emf.unwrap(JpaEntityManagerFactory.class).getServerSession()
+                .getPlatform();
+        if (!(platform instanceof DerbyPlatform) && !(platform instanceof HANAPlatform)) {
+            known.forEach(em::merge);
+            return entities.size();
+        }
+
+        // the statements must see the rows persisted before
+        em.flush();
+
+        final boolean derby = platform instanceof DerbyPlatform;
+        final List<Object[]> args = new ArrayList<>(Math.min(known.size(), UPSERT_BATCH_SIZE));
+        int upserted = 0;
+        for (SimpleTable entity : known) {
+            args.add(derby ? new Object[] { entity.getId(), entity.getData(), entity.getId(), entity.getData() }
+                    : new Object[] { entity.getId(), entity.getData() });
+            if (args.size() == UPSERT_BATCH_SIZE) {
+                upserted = add(upserted, jdbc.batchUpdate(derby ? DERBY_UPSERT : HANA_UPSERT, args));
+                args.clear();
+            }
+        }
+        if (!args.isEmpty()) {
+            upserted = add(upserted, jdbc.batchUpdate(derby ? DERBY_UPSERT : HANA_UPSERT, args));
+        }
+
+        detachManaged(known);
+        return upserted == Statement.SUCCESS_NO_INFO ? upserted : persisted + upserted;
+    }
+
+    /**
+     * @return the sum of the row counts, SUCCESS_NO_INFO once a batch didn't
+     *         report its count
+     */
+    private static int add(int upserted, int[] rowCounts) {
+        final int sum = BulkUpdater.sum(rowCounts);
+        return upserted == Statement.SUCCESS_NO_INFO || sum == Statement.SUCCESS_NO_INFO ? Statement.SUCCESS_NO_INFO
+                : upserted + sum;
+    }
+
+    /**
+     * detach the managed entities with the ids of the upserted rows: the
+     * statements bypassed the persistence context, so their state is stale
+     */
+    private void detachManaged(List<SimpleTable> upserted) {
+        final Set<Long> ids = upserted.stream().map(SimpleTable::getId).collect(Collectors.toSet());
+        final List<SimpleTable> stale = new ArrayList<>();
+        for (Object managed : ((UnitOfWorkImpl) em.unwrap(UnitOfWork.class)).getCloneMapping().keySet()) {
+            if (managed instanceof SimpleTable && ids.contains(((SimpleTable) managed).getId())) {
+                stale.add((SimpleTable) managed);
+            }
+        }
+        stale.forEach(em::detach);
+    }
+
+    @Override
+    public int updateDataWhere(String oldValue, String newValue) {
+        return bulkUpdater.update(SimpleTable.class, "data", newValue,
+                (cb, root) -> oldValue == null ? cb.isNull(root.get("data")) : cb.equal(root.get("data"), oldValue));
+    }
+
+    @Override
+    public int updateDataByIdRange(long fromId, long toId, String newValue) {
+        return bulkUpdater.updateIdRange(SimpleTable.class, "data", newValue, fromId, toId);
+    }
+
+    @Override
+    public int[] updateDataByIds(Map<Long, String> data) {
+        return updateDataByIds(data, BulkUpdater.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Override
+    public int[] updateDataByIds(Map<Long, String> data, int chunkSize) {
+        return bulkUpdater.updateByIds(SimpleTable.class, "data", data, chunkSize);
+    }
+
+    @Override
+    public long saveAllInBatches(Iterable<SimpleTable> entities, int chunkSize) {
+        return chunkedWriter.saveAll(entities, chunkSize, false, ChunkProgressListener.NONE);
+    }
+
+    @Override
+    public long saveAllInBatches(Iterable<SimpleTable> entities, int chunkSize, boolean commitPerChunk,
+            ChunkProgressListener listener) {
+        return chunkedWriter.saveAll(entities, chunkSize, commitPerChunk, listener);
+    }
+
+    @Override
+    public Stream<SimpleTable> streamAll() {
+        return streamAll(CursorStreams.DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public Stream<SimpleTable> streamAll(int fetchSize) {
+        return CursorStreams.stream(em, em.createNamedQuery(FIND_ALL, SimpleTable.class), SimpleTable.class,
+                fetchSize);
+    }
+
+    @Override
+    public Stream<SimpleTable> streamByData(String data) {
+        return streamByData(data, CursorStreams.DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public Stream<SimpleTable> streamByData(String data, int fetchSize) {
+        final TypedQuery<SimpleTable> tq = em.createNamedQuery(FIND_BY_DATA, SimpleTable.class);
+        tq.setParameter("data", data);
+
+        return CursorStreams.stream(em, tq, SimpleTable.class, fetchSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimpleTable> findPageAfter(Long lastId, int size) {
+        return KeysetPages.findAfter(em, SimpleTable.class, "id", lastId, size, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimpleTable> findByDataAfter(String data, Long lastId, int size) {
+        if (data == null) {
+            // the condition would not filter at all
+            throw new IllegalArgumentException("data must not be null");
+        }
+        return KeysetPages.findAfter(em, SimpleTable.class, "id", lastId, size,
+                (cb, root) -> cb.equal(root.get("data"), data));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<SimpleTable> findSliceAfter(Long lastId, int size) {
+        return KeysetPages.findSliceAfter(em, SimpleTable.class, "id", lastId, size, null);
+    }
+
 }
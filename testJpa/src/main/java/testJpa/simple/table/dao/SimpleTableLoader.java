@@ -0,0 +1,43 @@
+package testJpa.simple.table.dao;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import testJpa.simple.table.domain.SimpleTable;
+import testJpa.support.EntityLoader;
+
+/**
+ * Find by id for many concurrent callers, see {@link EntityLoader}. Cache
+ * misses are loaded by {@link SimpleTableDao#findAll(Iterable)}.
+ */
+@Component
+public class SimpleTableLoader extends EntityLoader<SimpleTable> {
+
+    @Autowired
+    SimpleTableDao dao;
+
+    /**
+     * create the loader, it is started by Spring
+     */
+    public SimpleTableLoader() {
+        super(SimpleTable.class);
+    }
+
+    @Override
+    protected SimpleTable find(Long id) {
+        return dao.findOne(id);
+    }
+
+    @Override
+    protected Iterable<SimpleTable> findAll(List<Long> ids) {
+        return dao.findAll(ids);
+    }
+
+    @Override
+    protected Long idOf(SimpleTable entity) {
+        return entity.getId();
+    }
+
+}
@@ -9,10 +9,17 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.Size;
 
+import org.eclipse.persistence.annotations.Customizer;
+
+import testJpa.cache.CachePolicy;
+import testJpa.cache.CachePolicyCustomizer;
+
 /**
  * a simple table without relationships
  */
 @Entity
+@Customizer(CachePolicyCustomizer.class)
+@CachePolicy(maxBytes = 16 * 1024 * 1024, entityBytes = 160, longKeys = true)
 @Table(name = "SIMPLE_TABLE")
 public class SimpleTable {
 
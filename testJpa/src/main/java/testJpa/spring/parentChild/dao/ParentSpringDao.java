@@ -8,6 +8,7 @@ import org.eclipse.persistence.config.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import testJpa.spring.parentChild.domain.ParentSpring;
 
@@ -15,7 +16,7 @@ import testJpa.spring.parentChild.domain.ParentSpring;
  * Data access object for a parent table.
  */
 @Repository
-public interface ParentSpringDao extends JpaRepository<ParentSpring, Long> {
+public interface ParentSpringDao extends JpaRepository<ParentSpring, Long>, ParentSpringDaoCustom {
 
     /**
      * find by data field
@@ -24,6 +25,7 @@ public interface ParentSpringDao extends JpaRepository<ParentSpring, Long> {
      *            the data to find
      * @return the matching entities
      */
+    @Transactional(readOnly = true)
     List<ParentSpring> findByData(String data);
 
     /**
@@ -33,6 +35,7 @@ public interface ParentSpringDao extends JpaRepository<ParentSpring, Long> {
      *            the data to find
      * @return the matching entities
      */
+    @Transactional(readOnly = true)
     List<ParentSpring> findByChildrenDataLike(String data);
 
     /**
@@ -43,6 +46,7 @@ public interface ParentSpringDao extends JpaRepository<ParentSpring, Long> {
     @Query("select ps from ParentSpring ps")
     @org.springframework.data.jpa.repository.QueryHints(value = {
             @QueryHint(name = QueryHints.BATCH, value = "ParentSpring.children") })
+    @Transactional(readOnly = true)
     List<ParentSpring> findAllBatchFetch();
 
     /**
@@ -55,6 +59,7 @@ public interface ParentSpringDao extends JpaRepository<ParentSpring, Long> {
     @Query("select ps from ParentSpring ps where ps.data = ?1")
     @org.springframework.data.jpa.repository.QueryHints(value = {
             @QueryHint(name = QueryHints.BATCH, value = "ParentSpring.children") })
+    @Transactional(readOnly = true)
     List<ParentSpring> findByDataBatchFetch(String data);
 
 }
\ No newline at end of file
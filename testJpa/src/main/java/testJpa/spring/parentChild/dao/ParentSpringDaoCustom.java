@@ -0,0 +1,92 @@
+package testJpa.spring.parentChild.dao;
+
+import java.util.List;
+
+import testJpa.spring.parentChild.domain.ParentSpring;
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.ChunkedDeleter;
+import testJpa.support.ChunkedFinder;
+import testJpa.support.CriteriaCondition;
+
+/**
+ * custom behavior for Spring JpaRepository of table PARENT_SPRING
+ */
+public interface ParentSpringDaoCustom {
+
+    /**
+     * (not in CrudRepository) find a large number of parents by id, see
+     * {@link ChunkedFinder}. Unlike {@link ParentSpringDao#findAll(Iterable)}
+     * the shared cache is used and the result is in the order of the ids.
+     *
+     * @param ids
+     *            the ids
+     * @return the parents found, in the order of the ids
+     */
+    List<ParentSpring> findAllById(Iterable<Long> ids);
+
+    /**
+     * (not in CrudRepository) find a large number of parents by id, see
+     * {@link ChunkedFinder}
+     *
+     * @param ids
+     *            the ids
+     * @param chunkSize
+     *            maximum number of ids per query
+     * @param parallelism
+     *            maximum number of queries running at the same time
+     * @return the parents found, in the order of the ids
+     */
+    List<ParentSpring> findAllById(Iterable<Long> ids, int chunkSize, int parallelism);
+
+    /**
+     * (not in CrudRepository) delete the parents matching a condition in
+     * chunks of ascending ids, each committed in a transaction of its own, see
+     * {@link ChunkedDeleter}. The children are deleted by the ON DELETE
+     * CASCADE of the foreign key. Unlike {@link ParentSpringDao#deleteAllInBatch()} no
+     * transaction holds the locks of all rows.
+     *
+     * @param condition
+     *            selects the parents to delete
+     * @param chunkSize
+     *            maximum number of parents deleted per transaction
+     * @return number of deleted parents
+     */
+    long deleteWhere(CriteriaCondition<ParentSpring> condition, int chunkSize);
+
+    /**
+     * (not in CrudRepository) delete the parents matching a condition in
+     * chunks, see {@link #deleteWhere(CriteriaCondition, int)}
+     *
+     * @param condition
+     *            selects the parents to delete
+     * @param chunkSize
+     *            maximum number of parents deleted per transaction
+     * @param pauseMillis
+     *            pause after each chunk, 0 for none
+     * @param listener
+     *            notified after each committed chunk
+     * @return number of deleted parents
+     */
+    long deleteWhere(CriteriaCondition<ParentSpring> condition, int chunkSize, long pauseMillis,
+            ChunkProgressListener listener);
+
+    /**
+     * (not in CrudRepository) delete the parents created before a parent in
+     * chunks, see {@link #deleteWhere(CriteriaCondition, int)}. There is no
+     * creation time in PARENT_SPRING, but the ids are allocated from an ascending
+     * sequence: a lower id was created earlier, within the allocation size of
+     * the sequence per node.
+     *
+     * @param id
+     *            the parents with lower ids are deleted
+     * @param chunkSize
+     *            maximum number of parents deleted per transaction
+     * @param pauseMillis
+     *            pause after each chunk, 0 for none
+     * @param listener
+     *            notified after each committed chunk
+     * @return number of deleted parents
+     */
+    long purgeOlderThan(long id, int chunkSize, long pauseMillis, ChunkProgressListener listener);
+
+}
@@ -0,0 +1,52 @@
+package testJpa.spring.parentChild.dao;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import testJpa.spring.parentChild.domain.ParentSpring;
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.ChunkedDeleter;
+import testJpa.support.ChunkedFinder;
+import testJpa.support.CriteriaCondition;
+
+/**
+ * implementation for custom queries for table PARENT_SPRING
+ */
+@Component
+public class ParentSpringDaoImpl implements ParentSpringDaoCustom {
+
+    @Autowired
+    ChunkedFinder chunkedFinder;
+
+    @Autowired
+    ChunkedDeleter chunkedDeleter;
+
+    @Override
+    public List<ParentSpring> findAllById(Iterable<Long> ids) {
+        return findAllById(ids, ChunkedFinder.DEFAULT_CHUNK_SIZE, 1);
+    }
+
+    @Override
+    public List<ParentSpring> findAllById(Iterable<Long> ids, int chunkSize, int parallelism) {
+        return chunkedFinder.findAllById(ParentSpring.class, ids, chunkSize, parallelism);
+    }
+
+    @Override
+    public long deleteWhere(CriteriaCondition<ParentSpring> condition, int chunkSize) {
+        return deleteWhere(condition, chunkSize, 0, ChunkProgressListener.NONE);
+    }
+
+    @Override
+    public long deleteWhere(CriteriaCondition<ParentSpring> condition, int chunkSize, long pauseMillis,
+            ChunkProgressListener listener) {
+        return chunkedDeleter.deleteWhere(ParentSpring.class, condition, chunkSize, pauseMillis, listener);
+    }
+
+    @Override
+    public long purgeOlderThan(long id, int chunkSize, long pauseMillis, ChunkProgressListener listener) {
+        return deleteWhere((cb, root) -> cb.lessThan(root.<Long> get("id"), id), chunkSize, pauseMillis, listener);
+    }
+
+}
@@ -9,10 +9,17 @@ import javax.persistence.OrderBy;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.eclipse.persistence.annotations.Customizer;
+
+import testJpa.cache.CachePolicy;
+import testJpa.cache.CachePolicyCustomizer;
+
 /**
  * a child table with many-to-one relationship to parent
  */
 @Entity
+@Customizer(CachePolicyCustomizer.class)
+@CachePolicy(maxBytes = 16 * 1024 * 1024, entityBytes = 200)
 @Table(name = "CHILD_SPRING")
 public class ChildSpring {
 
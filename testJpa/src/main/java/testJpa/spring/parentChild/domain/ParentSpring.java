@@ -14,10 +14,18 @@ import javax.persistence.OrderBy;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.eclipse.persistence.annotations.Customizer;
+
+import testJpa.cache.CachePolicy;
+import testJpa.cache.CachePolicy.Coordination;
+import testJpa.cache.CachePolicyCustomizer;
+
 /**
  * a parent table with one-to-many "owning" relationship to child
  */
 @Entity
+@Customizer(CachePolicyCustomizer.class)
+@CachePolicy(maxBytes = 8 * 1024 * 1024, entityBytes = 240, coordination = Coordination.INVALIDATE)
 @Table(name = "PARENT_SPRING")
 public class ParentSpring {
 
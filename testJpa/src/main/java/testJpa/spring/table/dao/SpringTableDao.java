@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import testJpa.spring.table.domain.SpringTable;
 
@@ -20,6 +21,7 @@ public interface SpringTableDao extends JpaRepository<SpringTable, Long>, Spring
      *            the data to find
      * @return the matching entities
      */
+    @Transactional(readOnly = true)
     List<SpringTable> findByData(String data);
 
 }
\ No newline at end of file
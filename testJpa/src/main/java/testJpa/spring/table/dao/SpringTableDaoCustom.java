@@ -1,5 +1,17 @@
 package testJpa.spring.table.dao;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Slice;
+
+import testJpa.spring.table.domain.SpringTable;
+import testJpa.support.BulkUpdater;
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.ChunkedFinder;
+import testJpa.support.CursorStreams;
+
 /**
  * custom behavior for Spring JpaRepository of table SPRING_TABLE
  */
@@ -12,4 +24,200 @@ public interface SpringTableDaoCustom {
      */
     boolean isEmpty();
 
+    /**
+     * (not in CrudRepository) save a large number of entities in one
+     * transaction. The persistence context is flushed and cleared after each
+     * chunk, so memory usage doesn't grow with the number of entities. All
+     * entities managed before are detached afterwards.
+     *
+     * @param entities
+     *            the entities to save
+     * @param chunkSize
+     *            number of entities per flush
+     * @return number of entities saved
+     */
+    long saveAllInBatches(Iterable<SpringTable> entities, int chunkSize);
+
+    /**
+     * (not in CrudRepository) save a large number of entities in chunks, see
+     * {@link #saveAllInBatches(Iterable, int)}.
+     *
+     * @param entities
+     *            the entities to save
+     * @param chunkSize
+     *            number of entities per flush
+     * @param commitPerChunk
+     *            true to commit each chunk in a new transaction
+     * @param listener
+     *            notified after each chunk
+     * @return number of entities saved
+     */
+    long saveAllInBatches(Iterable<SpringTable> entities, int chunkSize, boolean commitPerChunk,
+            ChunkProgressListener listener);
+
+    /**
+     * (not in CrudRepository) stream all entities with a server-side cursor,
+     * see {@link CursorStreams}. The stream must be closed and consumed within
+     * a transaction. The entities are detached.
+     *
+     * @return all entities
+     */
+    Stream<SpringTable> streamAll();
+
+    /**
+     * (not in CrudRepository) stream all entities, see {@link #streamAll()}
+     *
+     * @param fetchSize
+     *            number of rows fetched from the database at once
+     * @return all entities
+     */
+    Stream<SpringTable> streamAll(int fetchSize);
+
+    /**
+     * (not in CrudRepository) stream entities by data field, see
+     * {@link #streamAll()}
+     *
+     * @param data
+     *            the data to find
+     * @return the matching entities
+     */
+    Stream<SpringTable> streamByData(String data);
+
+    /**
+     * (not in CrudRepository) stream entities by data field, see
+     * {@link #streamAll()}
+     *
+     * @param data
+     *            the data to find
+     * @param fetchSize
+     *            number of rows fetched from the database at once
+     * @return the matching entities
+     */
+    Stream<SpringTable> streamByData(String data, int fetchSize);
+
+    /**
+     * (not in CrudRepository) find the next page of entities ordered by id.
+     * The page starts after the last id of the previous page, so the database
+     * seeks the primary key index instead of skipping rows like offset paging
+     * does.
+     *
+     * @param lastId
+     *            last id of the previous page, null for the first page
+     * @param size
+     *            maximum number of entities
+     * @return the entities, ordered by id
+     */
+    List<SpringTable> findPageAfter(Long lastId, int size);
+
+    /**
+     * (not in CrudRepository) find the next page of entities by data field,
+     * see {@link #findPageAfter(Long, int)}
+     *
+     * @param data
+     *            the data to find, not null
+     * @param lastId
+     *            last id of the previous page, null for the first page
+     * @param size
+     *            maximum number of entities
+     * @return the matching entities, ordered by id
+     * @throws IllegalArgumentException
+     *             if data is null
+     */
+    List<SpringTable> findByDataAfter(String data, Long lastId, int size);
+
+    /**
+     * (not in CrudRepository) find the next page of entities as a slice, see
+     * {@link #findPageAfter(Long, int)}. One more row is read to determine
+     * {@link Slice#hasNext()}, no count query is executed.
+     * <p>
+     * The slice doesn't know its position: {@link Slice#getNumber()} is always
+     * 0 and {@link Slice#nextPageable()} only carries the size. Continue with
+     * the id of the last entity of the slice as lastId.
+     *
+     * @param lastId
+     *            last id of the previous slice, null for the first slice
+     * @param size
+     *            maximum number of entities
+     * @return the entities, ordered by id
+     */
+    Slice<SpringTable> findSliceAfter(Long lastId, int size);
+
+    /**
+     * (not in CrudRepository) find a large number of entities by id, see
+     * {@link ChunkedFinder}. Unlike {@link SpringTableDao#findAll(Iterable)}
+     * the shared cache is used and the result is in the order of the ids.
+     *
+     * @param ids
+     *            the ids
+     * @return the entities found, in the order of the ids
+     */
+    List<SpringTable> findAllById(Iterable<Long> ids);
+
+    /**
+     * (not in CrudRepository) find a large number of entities by id, see
+     * {@link ChunkedFinder}
+     *
+     * @param ids
+     *            the ids
+     * @param chunkSize
+     *            maximum number of ids per query
+     * @param parallelism
+     *            maximum number of queries running at the same time
+     * @return the entities found, in the order of the ids
+     */
+    List<SpringTable> findAllById(Iterable<Long> ids, int chunkSize, int parallelism);
+
+    /**
+     * (not in CrudRepository) replace the data of all entities with the given
+     * data by one UPDATE statement, see {@link BulkUpdater}. The updated
+     * entities are evicted from the shared cache, entities managed by the
+     * current persistence context are not changed.
+     *
+     * @param oldValue
+     *            the data to replace, null for entities without data
+     * @param newValue
+     *            the new data
+     * @return number of updated entities
+     */
+    int updateDataWhere(String oldValue, String newValue);
+
+    /**
+     * (not in CrudRepository) set the data of all entities in a range of ids
+     * by one UPDATE statement, see {@link #updateDataWhere(String, String)}
+     *
+     * @param fromId
+     *            first id, inclusive
+     * @param toId
+     *            last id, inclusive
+     * @param newValue
+     *            the new data
+     * @return number of updated entities
+     */
+    int updateDataByIdRange(long fromId, long toId, String newValue);
+
+    /**
+     * (not in CrudRepository) set the data of each entity to its own value
+     * by JDBC batches of {@link BulkUpdater#DEFAULT_CHUNK_SIZE} rows, see
+     * {@link BulkUpdater#updateByIds(Class, String, Map, int)}. The updated
+     * entities are evicted from the shared cache, entities managed by the
+     * current persistence context are not changed.
+     *
+     * @param data
+     *            the new data by id
+     * @return number of updated rows of each chunk
+     */
+    int[] updateDataByIds(Map<Long, String> data);
+
+    /**
+     * (not in CrudRepository) set the data of each entity to its own value,
+     * see {@link #updateDataByIds(Map)}
+     *
+     * @param data
+     *            the new data by id
+     * @param chunkSize
+     *            number of rows per JDBC batch
+     * @return number of updated rows of each chunk
+     */
+    int[] updateDataByIds(Map<Long, String> data, int chunkSize);
+
 }
@@ -1,5 +1,9 @@
 package testJpa.spring.table.dao;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
@@ -8,9 +12,17 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
 
 import testJpa.spring.table.domain.SpringTable;
+import testJpa.support.BulkUpdater;
+import testJpa.support.ChunkProgressListener;
+import testJpa.support.ChunkedFinder;
+import testJpa.support.ChunkedWriter;
+import testJpa.support.CursorStreams;
+import testJpa.support.KeysetPages;
 
 /**
  * implementation for custom queries for table SPRING_TABLE
@@ -21,6 +33,15 @@ public class SpringTableDaoImpl implements SpringTableDaoCustom {
     @PersistenceContext
     EntityManager em;
 
+    @Autowired
+    ChunkedWriter chunkedWriter;
+
+    @Autowired
+    ChunkedFinder chunkedFinder;
+
+    @Autowired
+    BulkUpdater bulkUpdater;
+
     @Override
     public boolean isEmpty() {
         final CriteriaBuilder cb = em.getCriteriaBuilder();
@@ -34,4 +55,97 @@ public class SpringTableDaoImpl implements SpringTableDaoCustom {
         return CollectionUtils.isEmpty(tq.getResultList());
     }
 
+    @Override
+    public List<SpringTable> findAllById(Iterable<Long> ids) {
+        return findAllById(ids, ChunkedFinder.DEFAULT_CHUNK_SIZE, 1);
+    }
+
+    @Override
+    public List<SpringTable> findAllById(Iterable<Long> ids, int chunkSize, int parallelism) {
+        return chunkedFinder.findAllById(SpringTable.class, ids, chunkSize, parallelism);
+    }
+
+    @Override
+    public int updateDataWhere(String oldValue, String newValue) {
+        return bulkUpdater.update(SpringTable.class, "data", newValue,
+                (cb, root) -> oldValue == null ? cb.isNull(root.get("data")) : cb.equal(root.get("data"), oldValue));
+    }
+
+    @Override
+    public int updateDataByIdRange(long fromId, long toId, String newValue) {
+        return bulkUpdater.updateIdRange(SpringTable.class, "data", newValue, fromId, toId);
+    }
+
+    @Override
+    public int[] updateDataByIds(Map<Long, String> data) {
+        return updateDataByIds(data, BulkUpdater.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Override
+    public int[] updateDataByIds(Map<Long, String> data, int chunkSize) {
+        return bulkUpdater.updateByIds(SpringTable.class, "data", data, chunkSize);
+    }
+
+    @Override
+    public long saveAllInBatches(Iterable<SpringTable> entities, int chunkSize) {
+        return chunkedWriter.saveAll(entities, chunkSize, false, ChunkProgressListener.NONE);
+    }
+
+    @Override
+    public long saveAllInBatches(Iterable<SpringTable> entities, int chunkSize, boolean commitPerChunk,
+            ChunkProgressListener listener) {
+        return chunkedWriter.saveAll(entities, chunkSize, commitPerChunk, listener);
+    }
+
+    @Override
+    public Stream<SpringTable> streamAll() {
+        return streamAll(CursorStreams.DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public Stream<SpringTable> streamAll(int fetchSize) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        final CriteriaQuery<SpringTable> cq = cb.createQuery(SpringTable.class);
+        cq.from(SpringTable.class);
+
+        return CursorStreams.stream(em, em.createQuery(cq), SpringTable.class, fetchSize);
+    }
+
+    @Override
+    public Stream<SpringTable> streamByData(String data) {
+        return streamByData(data, CursorStreams.DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public Stream<SpringTable> streamByData(String data, int fetchSize) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        final CriteriaQuery<SpringTable> cq = cb.createQuery(SpringTable.class);
+        final Root<SpringTable> root = cq.from(SpringTable.class);
+        cq.where(cb.equal(root.get("data"), data));
+
+        return CursorStreams.stream(em, em.createQuery(cq), SpringTable.class, fetchSize);
+    }
+
+    @Override
+    public List<SpringTable> findPageAfter(Long lastId, int size) {
+        return KeysetPages.findAfter(em, SpringTable.class, "id", lastId, size, null);
+    }
+
+    @Override
+    public List<SpringTable> findByDataAfter(String data, Long lastId, int size) {
+        if (data == null) {
+            // the condition would not filter at all
+            throw new IllegalArgumentException("data must not be null");
+        }
+        return KeysetPages.findAfter(em, SpringTable.class, "id", lastId, size,
+                (cb, root) -> cb.equal(root.get("data"), data));
+    }
+
+    @Override
+    public Slice<SpringTable> findSliceAfter(Long lastId, int size) {
+        return KeysetPages.findSliceAfter(em, SpringTable.class, "id", lastId, size, null);
+    }
+
 }
@@ -0,0 +1,43 @@
+package testJpa.spring.table.dao;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import testJpa.spring.table.domain.SpringTable;
+import testJpa.support.EntityLoader;
+
+/**
+ * Find by id for many concurrent callers, see {@link EntityLoader}. Cache
+ * misses are loaded by {@link SpringTableDao#findAll(Iterable)}.
+ */
+@Component
+public class SpringTableLoader extends EntityLoader<SpringTable> {
+
+    @Autowired
+    SpringTableDao dao;
+
+    /**
+     * create the loader, it is started by Spring
+     */
+    public SpringTableLoader() {
+        super(SpringTable.class);
+    }
+
+    @Override
+    protected SpringTable find(Long id) {
+        return dao.findOne(id);
+    }
+
+    @Override
+    protected Iterable<SpringTable> findAll(List<Long> ids) {
+        return dao.findAll(ids);
+    }
+
+    @Override
+    protected Long idOf(SpringTable entity) {
+        return entity.getId();
+    }
+
+}
@@ -0,0 +1,264 @@
+package testJpa.spring.table.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.DescriptorEvent;
+import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import testJpa.cache.CacheEvictionListener;
+import testJpa.cache.SharedCacheInvalidator;
+import testJpa.spring.table.domain.SpringTable;
+import testJpa.support.OffHeapStringStore;
+
+/**
+ * Read-through store of {@link SpringTable} outside of the heap, see
+ * {@link OffHeapStringStore}. Read-only transactions are served from the
+ * store, misses are loaded by {@link SpringTableDao} and stored unless an
+ * entity was evicted from the store while loading. Other transactions read by
+ * the DAO, so they see their own changes. The entities returned from the
+ * store are new detached objects.
+ * <p>
+ * Inserts, updates and deletes of single entities remove the ids from the
+ * store, at once and again after the transaction completed. So do the
+ * evictions of the {@link SharedCacheInvalidator}, e.g. for bulk updates and
+ * writes of an {@link testJpa.jdbc.InvalidatingJdbcTemplate}. Bulk deletes like
+ * {@link SpringTableDao#deleteAllInBatch()} and other JDBC writes don't notify
+ * the store, call {@link #clear()} after them.
+ * <p>
+ * Disabled unless "offheap.springTable.enabled=true", the size of the buffer
+ * is "offheap.springTable.capacityBytes" (default 64 MB).
+ */
+@Component
+public class SpringTableOffHeapStore {
+
+    @Autowired
+    SpringTableDao dao;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    Environment env;
+
+    @Autowired
+    SharedCacheInvalidator invalidator;
+
+    private volatile OffHeapStringStore store;
+
+    private final DescriptorEventAdapter invalidation = new DescriptorEventAdapter() {
+        @Override
+        public void postInsert(DescriptorEvent event) {
+            invalidate(event);
+        }
+
+        @Override
+        public void postUpdate(DescriptorEvent event) {
+            invalidate(event);
+        }
+
+        @Override
+        public void postDelete(DescriptorEvent event) {
+            invalidate(event);
+        }
+    };
+
+    private final CacheEvictionListener eviction = new CacheEvictionListener() {
+        @Override
+        public void evicted(Class<?> entity, Collection<?> keys) {
+            if (entity != SpringTable.class) {
+                return;
+            }
+            if (keys == null || !keys.stream().allMatch(Long.class::isInstance)) {
+                clear();
+            } else {
+                keys.forEach(key -> evict((Long) key));
+            }
+        }
+
+        @Override
+        public void evictedAll() {
+            clear();
+        }
+    };
+
+    /**
+     * allocate the store and register for changes of the entities
+     */
+    @PostConstruct
+    public void start() {
+        if (!env.getProperty("offheap.springTable.enabled", Boolean.class, Boolean.FALSE)) {
+            return;
+        }
+        store = new OffHeapStringStore(
+                env.getProperty("offheap.springTable.capacityBytes", Integer.class, 64 * 1024 * 1024));
+        descriptor().getEventManager().addListener(invalidation);
+        invalidator.addListener(eviction);
+    }
+
+    /**
+     * stop listening for changes, the buffer is freed by the garbage
+     * collector
+     */
+    @PreDestroy
+    public void stop() {
+        if (store != null) {
+            descriptor().getEventManager().removeListener(invalidation);
+            invalidator.removeListener(eviction);
+            store = null;
+        }
+    }
+
+    /**
+     * @return true if the store is enabled
+     */
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    /**
+     * @param id
+     *            the id
+     * @return the entity or null if there is none
+     */
+    @Transactional(readOnly = true)
+    public SpringTable findOne(Long id) {
+        final OffHeapStringStore current = storeForTransaction();
+        if (current == null) {
+            return dao.findOne(id);
+        }
+
+        final String data = current.get(id);
+        if (data != null) {
+            return entity(id, data);
+        }
+        // a concurrent eviction after this stamp means the entity may be stale
+        final long stamp = current.invalidationStamp();
+        final SpringTable entity = dao.findOne(id);
+        if (entity != null) {
+            current.putIfNotInvalidatedSince(id, entity.getData(), stamp);
+        }
+        return entity;
+    }
+
+    /**
+     * @param ids
+     *            the ids
+     * @return the entities found, in the order of the ids
+     */
+    @Transactional(readOnly = true)
+    public List<SpringTable> findAll(Iterable<Long> ids) {
+        final OffHeapStringStore current = storeForTransaction();
+        if (current == null) {
+            return dao.findAllById(ids);
+        }
+
+        final Map<Long, SpringTable> found = new HashMap<>();
+        final List<Long> misses = new ArrayList<>();
+        final List<Long> requested = new ArrayList<>();
+        for (Long id : ids) {
+            requested.add(id);
+        }
+        for (Long id : new LinkedHashSet<>(requested)) {
+            final String data = current.get(id);
+            if (data != null) {
+                found.put(id, entity(id, data));
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            final long stamp = current.invalidationStamp();
+            for (SpringTable entity : dao.findAllById(misses)) {
+                current.putIfNotInvalidatedSince(entity.getId(), entity.getData(), stamp);
+                found.put(entity.getId(), entity);
+            }
+        }
+
+        final List<SpringTable> result = new ArrayList<>(requested.size());
+        for (Long id : requested) {
+            final SpringTable entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param id
+     *            the id to remove from the store
+     */
+    public void evict(Long id) {
+        final OffHeapStringStore current = store;
+        if (current != null) {
+            current.remove(id);
+        }
+    }
+
+    /**
+     * remove all entities from the store, e.g. after bulk writes
+     */
+    public void clear() {
+        final OffHeapStringStore current = store;
+        if (current != null) {
+            current.clear();
+        }
+    }
+
+    /**
+     * @return the store, null if disabled
+     */
+    public OffHeapStringStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return the store if enabled and the transaction is read-only, else null
+     */
+    private OffHeapStringStore storeForTransaction() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? store : null;
+    }
+
+    private void invalidate(DescriptorEvent event) {
+        final Long id = ((SpringTable) event.getSource()).getId();
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    private ClassDescriptor descriptor() {
+        return emf.unwrap(JpaEntityManagerFactory.class).getServerSession().getDescriptor(SpringTable.class);
+    }
+
+    private static SpringTable entity(Long id, String data) {
+        final SpringTable entity = new SpringTable();
+        entity.setId(id);
+        entity.setData(data);
+        return entity;
+    }
+
+}
@@ -0,0 +1,263 @@
+package testJpa.spring.table.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.platform.database.DerbyPlatform;
+import org.eclipse.persistence.platform.database.HANAPlatform;
+import org.eclipse.persistence.sessions.server.ServerSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.cache.SharedCacheInvalidator;
+import testJpa.jdbc.InvalidatingJdbcTemplate;
+import testJpa.spring.table.domain.SpringTable;
+import testJpa.support.WriteBehindBuffer;
+
+/**
+ * Write-behind saves of {@link SpringTable}, see {@link WriteBehindBuffer}.
+ * A save returns after the entity is buffered, new entities get their id from
+ * the sequence at once. Every interval the buffered entities are written in one
+ * transaction as JDBC batches: MERGE on Derby, UPSERT on HANA, UPDATE and
+ * INSERT of the missing rows on other databases. Rows without a positive
+ * update count, e.g. SUCCESS_NO_INFO, are looked up before they are inserted. The written entities are
+ * evicted from the shared cache by an {@link InvalidatingJdbcTemplate}.
+ * <p>
+ * Buffered saves are not visible to reads until they are flushed, and are lost
+ * if the node dies before. Use it for data which may arrive late, e.g.
+ * ingested events, not for data read right after the save.
+ * <p>
+ * Disabled unless "writeBehind.springTable.enabled=true", then saves are
+ * passed on to {@link SpringTableDao#save(Object)}. Further properties:
+ * <ul>
+ * <li>"writeBehind.springTable.capacity": maximum number of buffered ids
+ * (default 10000)</li>
+ * <li>"writeBehind.springTable.intervalMillis": time between flushes (default
+ * 200)</li>
+ * <li>"writeBehind.springTable.batchSize": rows per JDBC batch (default
+ * 1000)</li>
+ * <li>"writeBehind.springTable.timeoutMillis": maximum time a save waits while
+ * the buffer is full (default 1000)</li>
+ * </ul>
+ */
+@Component
+public class SpringTableWriteBehind {
+
+    static final String DERBY_UPSERT = "merge into SPRING_TABLE t using SYSIBM.SYSDUMMY1 on t.ID = ?"
+            + " when matched then update set DATA = ? when not matched then insert (ID, DATA) values (?, ?)";
+
+    static final String HANA_UPSERT = "upsert SPRING_TABLE (ID, DATA) values (?, ?) with primary key";
+
+    static final String UPDATE = "update SPRING_TABLE set DATA = ? where ID = ?";
+
+    static final String INSERT = "insert into SPRING_TABLE (ID, DATA) values (?, ?)";
+
+    @Autowired
+    SpringTableDao dao;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    SharedCacheInvalidator invalidator;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    Environment env;
+
+    private JdbcTemplate jdbc;
+
+    private int batchSize;
+
+    private long timeoutMillis;
+
+    private volatile WriteBehindBuffer<String> buffer;
+
+    /**
+     * start the scheduled flushes if enabled
+     */
+    @PostConstruct
+    public void start() {
+        if (!env.getProperty("writeBehind.springTable.enabled", Boolean.class, Boolean.FALSE)) {
+            return;
+        }
+        jdbc = new InvalidatingJdbcTemplate(dataSource, invalidator);
+        batchSize = env.getProperty("writeBehind.springTable.batchSize", Integer.class, 1000);
+        timeoutMillis = env.getProperty("writeBehind.springTable.timeoutMillis", Long.class, 1000L);
+        buffer = new WriteBehindBuffer<>(this::write,
+                env.getProperty("writeBehind.springTable.capacity", Integer.class, 10000),
+                env.getProperty("writeBehind.springTable.intervalMillis", Long.class, 200L), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop the scheduled flushes and write the buffered entities
+     */
+    @PreDestroy
+    public void stop() {
+        final WriteBehindBuffer<String> current = buffer;
+        if (current != null) {
+            buffer = null;
+            current.close();
+        }
+    }
+
+    /**
+     * @return true if saves are buffered
+     */
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    /**
+     * Save an entity later. The entity is not managed, later changes are not
+     * saved unless it is saved again.
+     *
+     * @param entity
+     *            the entity to save
+     * @return the entity, with the id assigned if it is new
+     * @throws IllegalStateException
+     *             if the buffer stays full for the timeout
+     */
+    public SpringTable save(SpringTable entity) {
+        final WriteBehindBuffer<String> current = buffer;
+        if (current == null) {
+            return dao.save(entity);
+        }
+
+        if (entity.getId() == null) {
+            entity.setId(((Number) session().getNextSequenceNumberValue(SpringTable.class)).longValue());
+        }
+        try {
+            if (!current.save(entity.getId(), entity.getData(), timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("write-behind buffer of SpringTable is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the write-behind buffer", e);
+        }
+        return entity;
+    }
+
+    /**
+     * write the buffered entities now, e.g. before reading them
+     *
+     * @return number of written entities
+     */
+    public int flush() {
+        final WriteBehindBuffer<String> current = buffer;
+        return current == null ? 0 : current.flush();
+    }
+
+    /**
+     * @return the buffer with its metrics, null if disabled
+     */
+    public WriteBehindBuffer<String> getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * write the entities of a flush in one transaction
+     */
+    private void write(Map<Long, String> data) {
+        final DatabasePlatform platform = session().getPlatform();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            final List<Object[]> args = new ArrayList<>(Math.min(data.size(), batchSize));
+            for (Map.Entry<Long, String> entry : data.entrySet()) {
+                args.add(platform instanceof DerbyPlatform
+                        ? new Object[] { entry.getKey(), entry.getValue(), entry.getKey(), entry.getValue() }
+                        : new Object[] { entry.getKey(), entry.getValue() });
+                if (args.size() == batchSize) {
+                    writeBatch(platform, args);
+                    args.clear();
+                }
+            }
+            if (!args.isEmpty()) {
+                writeBatch(platform, args);
+            }
+            return null;
+        });
+    }
+
+    private void writeBatch(DatabasePlatform platform, List<Object[]> args) {
+        if (platform instanceof DerbyPlatform) {
+            jdbc.batchUpdate(DERBY_UPSERT, args);
+            return;
+        }
+        if (platform instanceof HANAPlatform) {
+            jdbc.batchUpdate(HANA_UPSERT, args);
+            return;
+        }
+        updateOrInsert(args);
+    }
+
+    /**
+     * update the rows and insert the missing ones
+     *
+     * @param args
+     *            id and data of each row
+     */
+    void updateOrInsert(List<Object[]> args) {
+        final List<Object[]> updates = new ArrayList<>(args.size());
+        args.forEach(row -> updates.add(new Object[] { row[1], row[0] }));
+        final int[] rows = jdbc.batchUpdate(UPDATE, updates);
+
+        // the driver may not know the count of a row, e.g. SUCCESS_NO_INFO
+        final List<Object[]> unknown = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            if (i >= rows.length || rows[i] <= 0) {
+                unknown.add(args.get(i));
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        final Set<Long> existing = new HashSet<>(existingIds(unknown));
+        final List<Object[]> inserts = new ArrayList<>(unknown.size());
+        for (Object[] row : unknown) {
+            if (!existing.contains(row[0])) {
+                inserts.add(row);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbc.batchUpdate(INSERT, inserts);
+        }
+    }
+
+    private List<Long> existingIds(List<Object[]> rows) {
+        final Object[] ids = new Object[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i)[0];
+        }
+        return jdbc.queryForList("select ID from SPRING_TABLE where ID in ("
+                + String.join(", ", Collections.nCopies(ids.length, "?")) + ")", Long.class, ids);
+    }
+
+    private ServerSession session() {
+        return emf.unwrap(JpaEntityManagerFactory.class).getServerSession();
+    }
+
+}
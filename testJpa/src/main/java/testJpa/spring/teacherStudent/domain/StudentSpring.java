@@ -15,11 +15,18 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.eclipse.persistence.annotations.Customizer;
+
+import testJpa.cache.CachePolicy;
+import testJpa.cache.CachePolicy.Eviction;
+import testJpa.cache.CachePolicyCustomizer;
 
 /**
  * A student table with many-to-many relationship to teachers.
  */
 @Entity
+@Customizer(CachePolicyCustomizer.class)
+@CachePolicy(maxBytes = 4 * 1024 * 1024, entityBytes = 400, eviction = Eviction.LFU, timeToLiveMillis = 10 * 60 * 1000)
 @Table(name = "STUDENT_SPRING")
 public class StudentSpring {
 
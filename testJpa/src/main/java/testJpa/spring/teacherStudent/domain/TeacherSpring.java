@@ -17,6 +17,11 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.eclipse.persistence.annotations.Customizer;
+
+import testJpa.cache.CachePolicy;
+import testJpa.cache.CachePolicy.Eviction;
+import testJpa.cache.CachePolicyCustomizer;
 
 /**
  * A teacher table with many-to-many relationship to students. The teacher table
@@ -24,6 +29,8 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
  * students with no teachers assigned.
  */
 @Entity
+@Customizer(CachePolicyCustomizer.class)
+@CachePolicy(maxBytes = 4 * 1024 * 1024, entityBytes = 400, eviction = Eviction.LFU, timeToLiveMillis = 10 * 60 * 1000)
 @Table(name = "TEACHER_SPRING")
 public class TeacherSpring {
 
@@ -0,0 +1,251 @@
+package testJpa.support;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups by id into one query, like the DataLoader of
+ * GraphQL. Requests are collected until the batch has maxBatchSize distinct
+ * ids or the first request has waited maxWait, whichever comes first. Then one
+ * query loads all ids of the batch, e.g. with "WHERE ID IN (...)", and the
+ * future of each request is completed with its entity or null if there is
+ * none.
+ * <p>
+ * The query runs on a thread of the loader, i.e. in a transaction of its own,
+ * so a caller doesn't see changes of its current transaction. Use it for
+ * reads outside of transactions or in read-only transactions.
+ *
+ * @param <T>
+ *            the entity type
+ */
+public class BatchingLoader<T> implements AutoCloseable {
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final Function<List<Long>, ? extends Iterable<T>> batchLoad;
+
+    private final Function<T, Long> idOf;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final BatchingLoaderMetrics metrics;
+
+    private final Object lock = new Object();
+
+    private Batch<T> current;
+
+    /**
+     * @param batchLoad
+     *            loads the entities of a list of ids, missing ids are ignored
+     * @param idOf
+     *            id of an entity
+     * @param maxBatchSize
+     *            maximum number of distinct ids per query
+     * @param maxWait
+     *            maximum time a request waits for more requests
+     * @param unit
+     *            unit of maxWait
+     * @param threads
+     *            number of threads running the queries
+     */
+    public BatchingLoader(Function<List<Long>, ? extends Iterable<T>> batchLoad, Function<T, Long> idOf,
+            int maxBatchSize, long maxWait, TimeUnit unit, int threads) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive, but is " + maxBatchSize);
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive, but is " + threads);
+        }
+
+        this.batchLoad = batchLoad;
+        this.idOf = idOf;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.metrics = new BatchingLoaderMetrics(maxBatchSize);
+
+        executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            final Thread t = new Thread(r, "batching-loader-" + THREAD_NUMBER.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Request an entity. Requests for the same id in the same batch share the
+     * future.
+     *
+     * @param id
+     *            the id
+     * @return future completed with the entity or null if there is none
+     */
+    public CompletableFuture<T> load(Long id) {
+        Batch<T> full = null;
+        CompletableFuture<T> future;
+
+        synchronized (lock) {
+            if (current == null) {
+                final Batch<T> batch = new Batch<>();
+                try {
+                    batch.timeout = executor.schedule(() -> timeout(batch), maxWaitNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    final CompletableFuture<T> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new IllegalStateException("loader is closed", e));
+                    return failed;
+                }
+                current = batch;
+            }
+
+            future = current.futures.get(id);
+            metrics.recordRequest(future != null);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                current.futures.put(id, future);
+            }
+
+            if (current.futures.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+
+        if (full != null) {
+            full.timeout.cancel(false);
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * Request an entity and wait for it.
+     *
+     * @param id
+     *            the id
+     * @return the entity or null if there is none
+     */
+    public T get(Long id) {
+        try {
+            return load(id).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return metrics of this loader
+     */
+    public BatchingLoaderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Dispatch the waiting requests and stop the threads after they are
+     * loaded. Further requests fail.
+     */
+    @Override
+    public void close() {
+        final Batch<T> batch;
+        synchronized (lock) {
+            batch = current;
+            current = null;
+        }
+        if (batch != null) {
+            batch.timeout.cancel(false);
+            dispatch(batch);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * dispatch a full batch or one of {@link #close()} to the threads of the
+     * loader
+     */
+    private void dispatch(Batch<T> batch) {
+        if (!markDispatched(batch)) {
+            return;
+        }
+        try {
+            executor.execute(() -> complete(batch));
+        } catch (RejectedExecutionException e) {
+            fail(batch, new IllegalStateException("loader is closed", e));
+        }
+    }
+
+    /**
+     * the window has expired: already on a thread of the loader
+     */
+    private void timeout(Batch<T> batch) {
+        if (markDispatched(batch)) {
+            complete(batch);
+        }
+    }
+
+    private boolean markDispatched(Batch<T> batch) {
+        synchronized (lock) {
+            if (batch.dispatched) {
+                return false;
+            }
+            batch.dispatched = true;
+            if (current == batch) {
+                current = null;
+            }
+        }
+
+        metrics.recordBatch(batch.futures.size(), System.nanoTime() - batch.start);
+        return true;
+    }
+
+    private void complete(Batch<T> batch) {
+        final Map<Long, T> found = new HashMap<>();
+        try {
+            for (T entity : batchLoad.apply(new ArrayList<>(batch.futures.keySet()))) {
+                found.put(idOf.apply(entity), entity);
+            }
+        } catch (RuntimeException e) {
+            fail(batch, e);
+            return;
+        }
+
+        batch.futures.forEach((id, future) -> future.complete(found.get(id)));
+    }
+
+    private void fail(Batch<T> batch, RuntimeException e) {
+        metrics.recordFailedBatch();
+        batch.futures.values().forEach(future -> future.completeExceptionally(e));
+    }
+
+    /**
+     * requests dispatched together, guarded by the lock of the loader until
+     * dispatched
+     */
+    private static final class Batch<T> {
+
+        final Map<Long, CompletableFuture<T>> futures = new LinkedHashMap<>();
+
+        final long start = System.nanoTime();
+
+        ScheduledFuture<?> timeout;
+
+        boolean dispatched;
+
+    }
+
+}
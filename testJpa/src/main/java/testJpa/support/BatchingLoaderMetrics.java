@@ -0,0 +1,111 @@
+package testJpa.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Requests, batches, batch sizes and wait times of a {@link BatchingLoader}.
+ * The wait time of a batch is the time from its first request until it is
+ * dispatched, so it is at most the window of the loader unless the dispatcher
+ * is late.
+ */
+public class BatchingLoaderMetrics {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder failedBatches = new LongAdder();
+
+    private final Recorder batchSizes;
+
+    private final Recorder waitNanos = new Recorder(HIGHEST_TRACKABLE_NANOS, 2);
+
+    private Histogram batchSizeInterval;
+
+    private Histogram waitInterval;
+
+    BatchingLoaderMetrics(int maxBatchSize) {
+        batchSizes = new Recorder(Math.max(maxBatchSize, 2), 2);
+    }
+
+    void recordRequest(boolean duplicate) {
+        requests.increment();
+        if (duplicate) {
+            coalesced.increment();
+        }
+    }
+
+    void recordBatch(int size, long waitedNanos) {
+        batches.increment();
+        batchSizes.recordValue(size);
+        waitNanos.recordValue(Math.min(Math.max(waitedNanos, 0), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    void recordFailedBatch() {
+        failedBatches.increment();
+    }
+
+    /**
+     * @return number of requested ids
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return number of requests for an id which was already waiting in the
+     *         same batch
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of dispatched batches
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return number of batches whose query failed
+     */
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * @return average number of distinct ids per batch, 0 before the first
+     *         batch
+     */
+    public double getAverageBatchSize() {
+        final long b = getBatches();
+        return b == 0 ? 0 : (double) (getRequests() - getCoalesced()) / b;
+    }
+
+    /**
+     * @return sizes of the batches dispatched since the previous call
+     */
+    public synchronized Histogram intervalBatchSizes() {
+        batchSizeInterval = batchSizes.getIntervalHistogram(batchSizeInterval);
+        return batchSizeInterval.copy();
+    }
+
+    /**
+     * @return wait times in nanoseconds of the batches dispatched since the
+     *         previous call
+     */
+    public synchronized Histogram intervalWaitNanos() {
+        waitInterval = waitNanos.getIntervalHistogram(waitInterval);
+        return waitInterval.copy();
+    }
+
+}
@@ -0,0 +1,242 @@
+package testJpa.support;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import javax.sql.DataSource;
+
+import org.eclipse.persistence.config.CacheUsage;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.jpa.JpaQuery;
+import org.eclipse.persistence.queries.ModifyQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.cache.SharedCacheInvalidator;
+import testJpa.jdbc.InvalidatingJdbcTemplate;
+
+/**
+ * Update all entities matching a condition with one UPDATE statement instead
+ * of loading, changing and flushing them one by one.
+ * <p>
+ * EclipseLink invalidates all cached entities of the type after a bulk update.
+ * Instead only the cached entities matching the condition are evicted by the
+ * {@link SharedCacheInvalidator}, without reading the rows. Its listeners,
+ * e.g. the off-heap store, can't check the condition and evict all entities of
+ * the type. An update of a small range of ids evicts these ids instead, also
+ * from the listeners. Entities already loaded into the persistence context are
+ * not changed, like with any JPQL bulk update. The UPDATE statement is not
+ * added to a JDBC batch, so the returned row count is exact.
+ * <p>
+ * Values which differ per row are written by a JDBC batch of
+ * "UPDATE table SET column = ? WHERE id = ?" through an
+ * {@link InvalidatingJdbcTemplate}, which evicts the ids of the batch.
+ */
+@Component
+public class BulkUpdater {
+
+    /**
+     * number of rows per JDBC batch if not given
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    SharedCacheInvalidator invalidator;
+
+    @Autowired
+    DataSource dataSource;
+
+    private InvalidatingJdbcTemplate jdbc;
+
+    /**
+     * create the JdbcTemplate
+     */
+    @PostConstruct
+    void createJdbcTemplate() {
+        jdbc = new InvalidatingJdbcTemplate(dataSource, invalidator);
+    }
+
+    /**
+     * Set an attribute of all matching entities in the current transaction, or
+     * a new one if none is active.
+     *
+     * @param type
+     *            the entity type, with an id of type Long
+     * @param attribute
+     *            name of the attribute to set
+     * @param value
+     *            the new value
+     * @param condition
+     *            selects the entities to update
+     * @return number of updated rows
+     */
+    public <T> int update(Class<T> type, String attribute, Object value, CriteriaCondition<T> condition) {
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        return tx.execute(status -> {
+            final int rows = execute(type, attribute, value, condition);
+            invalidator.evict(type, selectionCriteria(type, condition));
+            return rows;
+        });
+    }
+
+    /**
+     * Set an attribute of all entities in a range of ids in the current
+     * transaction, or a new one if none is active. Up to
+     * {@link #DEFAULT_CHUNK_SIZE} ids are evicted one by one, larger ranges
+     * like {@link #update(Class, String, Object, CriteriaCondition)}.
+     *
+     * @param type
+     *            the entity type, with an id attribute "id" of type Long
+     * @param attribute
+     *            name of the attribute to set
+     * @param value
+     *            the new value
+     * @param fromId
+     *            first id, inclusive
+     * @param toId
+     *            last id, inclusive
+     * @return number of updated rows
+     */
+    public <T> int updateIdRange(Class<T> type, String attribute, Object value, long fromId, long toId) {
+        final CriteriaCondition<T> condition = (cb, root) -> cb.between(root.<Long> get("id"), fromId, toId);
+        if (toId < fromId || toId - fromId >= DEFAULT_CHUNK_SIZE) {
+            return update(type, attribute, value, condition);
+        }
+
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        return tx.execute(status -> {
+            final int rows = execute(type, attribute, value, condition);
+            final List<Long> ids = new ArrayList<>((int) (toId - fromId + 1));
+            for (long id = fromId; id <= toId; id++) {
+                ids.add(id);
+            }
+            invalidator.evict(type, ids);
+            return rows;
+        });
+    }
+
+    /**
+     * Set an attribute of each entity to its own value in the current
+     * transaction, or a new one if none is active. Pending changes of the
+     * persistence context are flushed first.
+     *
+     * @param type
+     *            the entity type, with an id of type Long in a single column
+     * @param attribute
+     *            name of the attribute to set, mapped to a single column
+     * @param values
+     *            the new value by id
+     * @param chunkSize
+     *            number of rows per JDBC batch
+     * @return number of updated rows of each chunk, or
+     *         {@link Statement#SUCCESS_NO_INFO} if the driver doesn't report
+     *         it
+     */
+    public <T> int[] updateByIds(Class<T> type, String attribute, Map<Long, ?> values, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive, but is " + chunkSize);
+        }
+
+        final ClassDescriptor descriptor = emf.unwrap(JpaEntityManagerFactory.class).getServerSession()
+                .getDescriptor(type);
+        final String sql = "update " + descriptor.getTableName() + " set "
+                + descriptor.getMappingForAttributeName(attribute).getField().getName() + " = ? where "
+                + descriptor.getPrimaryKeyFields().get(0).getName() + " = ?";
+
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        return tx.execute(status -> {
+            // the batches must see the changes of the persistence context
+            em.flush();
+
+            final int[] counts = new int[(values.size() + chunkSize - 1) / chunkSize];
+            final List<Object[]> args = new ArrayList<>(Math.min(values.size(), chunkSize));
+            int chunk = 0;
+            for (Map.Entry<Long, ?> entry : values.entrySet()) {
+                args.add(new Object[] { entry.getValue(), entry.getKey() });
+                if (args.size() == chunkSize) {
+                    counts[chunk++] = sum(jdbc.batchUpdate(sql, args));
+                    args.clear();
+                }
+            }
+            if (!args.isEmpty()) {
+                counts[chunk] = sum(jdbc.batchUpdate(sql, args));
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * @param rowCounts
+     *            row counts of a JDBC batch
+     * @return sum of the row counts, or {@link Statement#SUCCESS_NO_INFO} if
+     *         the driver doesn't report one of them
+     */
+    public static int sum(int[] rowCounts) {
+        int sum = 0;
+        for (int count : rowCounts) {
+            if (count == Statement.SUCCESS_NO_INFO) {
+                return Statement.SUCCESS_NO_INFO;
+            }
+            sum += count;
+        }
+        return sum;
+    }
+
+    private <T> int execute(Class<T> type, String attribute, Object value, CriteriaCondition<T> condition) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaUpdate<T> cu = cb.createCriteriaUpdate(type);
+        final Root<T> root = cu.from(type);
+        cu.set(attribute, value);
+        cu.where(condition.toPredicate(cb, root));
+
+        // don't invalidate all entities of the type
+        final Query query = em.createQuery(cu).setHint(QueryHints.CACHE_USAGE, CacheUsage.NoCache);
+        // with batch writing the statement would be added to the batch and
+        // report 1 row: execute it on its own to get the row count
+        ((ModifyQuery) query.unwrap(JpaQuery.class).getDatabaseQuery()).setIsBatchExecutionSupported(false);
+        return query.executeUpdate();
+    }
+
+    /**
+     * @return the condition as EclipseLink expression, to check the cached
+     *         entities
+     */
+    private <T> Expression selectionCriteria(Class<T> type, CriteriaCondition<T> condition) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<T> cq = cb.createQuery(type);
+        final Root<T> root = cq.from(type);
+        cq.where(condition.toPredicate(cb, root));
+
+        return em.createQuery(cq).unwrap(JpaQuery.class).getDatabaseQuery().getSelectionCriteria();
+    }
+
+}
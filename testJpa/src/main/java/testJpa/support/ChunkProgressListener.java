@@ -0,0 +1,27 @@
+package testJpa.support;
+
+/**
+ * Callback for operations working in chunks, e.g.
+ * {@link ChunkedWriter#saveAll(Iterable, int, boolean, ChunkProgressListener)}.
+ */
+@FunctionalInterface
+public interface ChunkProgressListener {
+
+    /**
+     * listener doing nothing
+     */
+    ChunkProgressListener NONE = (chunks, total) -> {
+    };
+
+    /**
+     * called after a chunk is written, or committed if the operation commits
+     * per chunk
+     *
+     * @param chunks
+     *            number of chunks done so far
+     * @param total
+     *            number of entities processed so far
+     */
+    void chunkCompleted(int chunks, long total);
+
+}
@@ -0,0 +1,175 @@
+package testJpa.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.eclipse.persistence.config.CacheUsage;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.mappings.CollectionMapping;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.cache.SharedCacheInvalidator;
+
+/**
+ * Delete a large number of entities in chunks of ascending ids, each chunk
+ * committed in a transaction of its own. Unlike one DELETE of all rows the
+ * locks and the undo log of a transaction are bounded by the chunk size, also
+ * for the children deleted by an ON DELETE CASCADE foreign key.
+ * <p>
+ * Each chunk selects the next ids matching the condition after the last id of
+ * the previous chunk and deletes the matching rows in this id range. The
+ * deleted entities are evicted from the shared cache, and all entities of the
+ * collections of the type, since the database deletes their rows too.
+ * <p>
+ * A failure rolls back the current chunk only, the chunks committed before
+ * stay deleted. A current transaction is suspended, it doesn't see the
+ * deletes until it has ended.
+ */
+@Component
+public class ChunkedDeleter {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    SharedCacheInvalidator invalidator;
+
+    /**
+     * Delete all entities matching a condition.
+     *
+     * @param type
+     *            the entity type, with an id of type Long
+     * @param condition
+     *            selects the entities to delete
+     * @param chunkSize
+     *            maximum number of entities deleted per transaction
+     * @param pauseMillis
+     *            pause after each chunk to leave the database to other work,
+     *            0 for none
+     * @param listener
+     *            notified after each committed chunk
+     * @return number of deleted entities, without the cascaded children
+     */
+    public <T> long deleteWhere(Class<T> type, CriteriaCondition<T> condition, int chunkSize, long pauseMillis,
+            ChunkProgressListener listener) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive, but is " + chunkSize);
+        }
+        if (pauseMillis < 0) {
+            throw new IllegalArgumentException("pause must not be negative, but is " + pauseMillis);
+        }
+
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        final List<Class<?>> cascaded = collectionTypes(type);
+        long total = 0;
+        int chunks = 0;
+        Long lastId = null;
+
+        while (true) {
+            final Long after = lastId;
+            final List<Long> ids = tx.execute(status -> {
+                final List<Long> chunk = deleteChunk(type, condition, after, chunkSize);
+                if (!chunk.isEmpty()) {
+                    invalidator.evict(type, chunk);
+                    cascaded.forEach(invalidator::evictAll);
+                }
+                return chunk;
+            });
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            total += ids.size();
+            listener.chunkCompleted(++chunks, total);
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+
+            if (pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    // stop after the committed chunks
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * @return ids of the deleted entities, ascending
+     */
+    private <T> List<Long> deleteChunk(Class<T> type, CriteriaCondition<T> condition, Long after, int chunkSize) {
+        final SingularAttribute<? super T, Long> id = emf.getMetamodel().entity(type).getId(Long.class);
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        final Root<T> root = cq.from(type);
+        cq.select(root.get(id));
+        cq.where(after == null ? condition.toPredicate(cb, root)
+                : cb.and(condition.toPredicate(cb, root), cb.greaterThan(root.get(id), after)));
+        cq.orderBy(cb.asc(root.get(id)));
+        final TypedQuery<Long> tq = em.createQuery(cq);
+        tq.setMaxResults(chunkSize);
+
+        final List<Long> ids = tq.getResultList();
+        if (ids.isEmpty()) {
+            return ids;
+        }
+
+        final CriteriaDelete<T> cd = cb.createCriteriaDelete(type);
+        final Root<T> deleted = cd.from(type);
+        final Predicate range = cb.between(deleted.get(id), ids.get(0), ids.get(ids.size() - 1));
+        cd.where(cb.and(condition.toPredicate(cb, deleted), range));
+
+        // evicted by id instead of invalidating all entities of the type
+        em.createQuery(cd).setHint(QueryHints.CACHE_USAGE, CacheUsage.NoCache).executeUpdate();
+
+        return ids;
+    }
+
+    private List<Class<?>> collectionTypes(Class<?> type) {
+        final ClassDescriptor descriptor = emf.unwrap(JpaEntityManagerFactory.class).getServerSession()
+                .getDescriptor(type);
+
+        final List<Class<?>> types = new ArrayList<>();
+        for (DatabaseMapping mapping : descriptor.getMappings()) {
+            if (mapping.isCollectionMapping()) {
+                types.add(((CollectionMapping) mapping).getReferenceClass());
+            }
+        }
+        return types;
+    }
+
+}
@@ -0,0 +1,185 @@
+package testJpa.support;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Find a large number of entities by id. Ids in the shared cache are resolved
+ * without a query, the others are loaded by queries with IN lists of at most
+ * chunkSize ids. The result is in the order of the requested ids.
+ * <p>
+ * With parallelism 1 the chunks are loaded in the current transaction, or a
+ * read-only one if none is active, so the entities are managed. With higher
+ * parallelism each chunk is loaded on a connection of its own in a read-only
+ * transaction of its own: these entities are detached and changes of the
+ * current transaction are not visible to the queries. The entities found in
+ * the shared cache are still managed, so the result mixes managed and
+ * detached entities. Merge an entity before changing it, or use parallelism 1
+ * if the entities are changed.
+ */
+@Component
+public class ChunkedFinder {
+
+    /**
+     * number of ids per IN list if not given
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    @PersistenceContext
+    EntityManager em;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        final Thread t = new Thread(r, "chunked-finder-" + THREAD_NUMBER.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * stop the threads for parallel chunks
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Find entities by id. Missing ids are skipped, an id requested more than
+     * once is returned as often.
+     *
+     * @param type
+     *            the entity type, with an id of type Long
+     * @param ids
+     *            the ids
+     * @param chunkSize
+     *            maximum number of ids per query
+     * @param parallelism
+     *            maximum number of queries running at the same time
+     * @return the entities in the order of the ids, managed with parallelism
+     *         1, otherwise only those found in the shared cache
+     */
+    public <T> List<T> findAllById(Class<T> type, Iterable<Long> ids, int chunkSize, int parallelism) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive, but is " + chunkSize);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive, but is " + parallelism);
+        }
+
+        final List<Long> requested = new ArrayList<>();
+        ids.forEach(requested::add);
+
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+
+        return tx.execute(status -> {
+            final Map<Long, T> found = new ConcurrentHashMap<>();
+
+            final Cache cache = emf.getCache();
+            final List<Long> misses = new ArrayList<>();
+            for (Long id : new LinkedHashSet<>(requested)) {
+                final T entity = cache.contains(type, id) ? em.find(type, id) : null;
+                if (entity != null) {
+                    found.put(id, entity);
+                } else {
+                    misses.add(id);
+                }
+            }
+
+            final List<List<Long>> chunks = new ArrayList<>();
+            for (int from = 0; from < misses.size(); from += chunkSize) {
+                chunks.add(misses.subList(from, Math.min(from + chunkSize, misses.size())));
+            }
+            if (parallelism == 1 || chunks.size() <= 1) {
+                chunks.forEach(chunk -> findChunk(type, chunk, found));
+            } else {
+                findParallel(type, chunks, parallelism, found);
+            }
+
+            final List<T> result = new ArrayList<>(requested.size());
+            for (Long id : requested) {
+                final T entity = found.get(id);
+                if (entity != null) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        });
+    }
+
+    private <T> void findParallel(Class<T> type, List<List<Long>> chunks, int parallelism, Map<Long, T> found) {
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+
+        // each worker takes the next chunk until all are done
+        final AtomicInteger next = new AtomicInteger();
+        final Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < chunks.size(); i = next.getAndIncrement()) {
+                final List<Long> chunk = chunks.get(i);
+                tx.execute(status -> {
+                    findChunk(type, chunk, found);
+                    return null;
+                });
+            }
+        };
+
+        final CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, chunks.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(worker, executor);
+        }
+
+        try {
+            CompletableFuture.allOf(workers).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> void findChunk(Class<T> type, List<Long> chunk, Map<Long, T> found) {
+        final SingularAttribute<? super T, Long> id = emf.getMetamodel().entity(type).getId(Long.class);
+
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<T> cq = cb.createQuery(type);
+        final Root<T> root = cq.from(type);
+        cq.where(root.get(id).in(chunk));
+
+        for (T entity : em.createQuery(cq).getResultList()) {
+            found.put((Long) emf.getPersistenceUnitUtil().getIdentifier(entity), entity);
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package testJpa.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Save a large number of entities with bounded memory. After each chunk the
+ * persistence context is flushed and cleared, so the entities of previous
+ * chunks are no longer managed and change detection at commit only has to
+ * check the current chunk.
+ * <p>
+ * Clearing the persistence context detaches <em>all</em> managed entities,
+ * including the ones the caller has loaded before in the same transaction.
+ */
+@Component
+public class ChunkedWriter {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /**
+     * Save entities: new entities (without id) are persisted, others merged.
+     * <p>
+     * If commitPerChunk is false all chunks are written in the current
+     * transaction, or a new one if none is active. Otherwise each chunk is
+     * committed in a transaction of its own, so a failure only rolls back the
+     * current chunk.
+     *
+     * @param entities
+     *            the entities to save
+     * @param chunkSize
+     *            number of entities after which the persistence context is
+     *            flushed and cleared
+     * @param commitPerChunk
+     *            true to commit after each chunk
+     * @param listener
+     *            notified after each chunk
+     * @return number of entities saved
+     */
+    public <T> long saveAll(Iterable<T> entities, int chunkSize, boolean commitPerChunk,
+            ChunkProgressListener listener) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive, but is " + chunkSize);
+        }
+
+        if (commitPerChunk) {
+            return saveCommitPerChunk(entities, chunkSize, listener);
+        }
+
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        return tx.execute(status -> saveInCurrentTransaction(entities, chunkSize, listener));
+    }
+
+    private <T> long saveInCurrentTransaction(Iterable<T> entities, int chunkSize, ChunkProgressListener listener) {
+        long total = 0;
+        int chunks = 0;
+
+        for (T entity : entities) {
+            save(entity);
+            total++;
+
+            if (total % chunkSize == 0) {
+                endChunk();
+                listener.chunkCompleted(++chunks, total);
+            }
+        }
+
+        if (total % chunkSize != 0) {
+            endChunk();
+            listener.chunkCompleted(++chunks, total);
+        }
+
+        return total;
+    }
+
+    private <T> long saveCommitPerChunk(Iterable<T> entities, int chunkSize, ChunkProgressListener listener) {
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        final List<T> chunk = new ArrayList<>(chunkSize);
+        long total = 0;
+        int chunks = 0;
+
+        for (T entity : entities) {
+            chunk.add(entity);
+
+            if (chunk.size() == chunkSize) {
+                total += saveChunk(tx, chunk);
+                listener.chunkCompleted(++chunks, total);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            total += saveChunk(tx, chunk);
+            listener.chunkCompleted(++chunks, total);
+        }
+
+        return total;
+    }
+
+    private <T> int saveChunk(TransactionTemplate tx, List<T> chunk) {
+        tx.execute(status -> {
+            chunk.forEach(this::save);
+            endChunk();
+            return null;
+        });
+
+        final int size = chunk.size();
+        chunk.clear();
+        return size;
+    }
+
+    private void save(Object entity) {
+        if (em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity) == null) {
+            em.persist(entity);
+        } else {
+            em.merge(entity);
+        }
+    }
+
+    private void endChunk() {
+        em.flush();
+        em.clear();
+    }
+
+}
@@ -0,0 +1,27 @@
+package testJpa.support;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+/**
+ * Condition of a query, bulk update or delete built with the Criteria API.
+ * Unlike a Spring Data Specification it doesn't need a CriteriaQuery, so the
+ * same condition can be used for CriteriaUpdate and CriteriaDelete.
+ *
+ * @param <T>
+ *            the entity type
+ */
+@FunctionalInterface
+public interface CriteriaCondition<T> {
+
+    /**
+     * @param cb
+     *            the criteria builder
+     * @param root
+     *            root of the statement
+     * @return the condition
+     */
+    Predicate toPredicate(CriteriaBuilder cb, Root<T> root);
+
+}
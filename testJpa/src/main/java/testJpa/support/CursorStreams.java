@@ -0,0 +1,99 @@
+package testJpa.support;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.queries.CursoredStream;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Streams the result of a query through an EclipseLink {@link CursoredStream}.
+ * Rows are fetched from the database in chunks of the JDBC fetch size while the
+ * stream is consumed, and each entity is detached before it is handed out, so
+ * the persistence context doesn't grow with the number of rows. The entities
+ * already handed out are released by the cursor after each chunk.
+ * <p>
+ * Unlike a {@link org.eclipse.persistence.queries.ScrollableCursor} the
+ * cursored stream only reads forward and needs no scrollable result set,
+ * which e.g. Derby doesn't support for forward-only cursors.
+ * <p>
+ * The cursor keeps a connection open. Streams must be consumed within a
+ * transaction and closed afterwards, e.g. with try-with-resources.
+ */
+public final class CursorStreams {
+
+    /**
+     * JDBC fetch size used if none is given
+     */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private CursorStreams() {
+    }
+
+    /**
+     * execute the query and stream its results
+     *
+     * @param em
+     *            the entity manager which created the query
+     * @param query
+     *            a query selecting entities of the given type
+     * @param type
+     *            type of the entities
+     * @param fetchSize
+     *            number of rows fetched from the database at once
+     * @return the entities, detached
+     */
+    public static <T> Stream<T> stream(EntityManager em, Query query, Class<T> type, int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetch size must be positive: " + fetchSize);
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new InvalidDataAccessApiUsageException("streaming query results requires a transaction");
+        }
+
+        query.setHint(QueryHints.CURSOR, HintValues.TRUE);
+        query.setHint(QueryHints.CURSOR_PAGE_SIZE, fetchSize);
+        query.setHint(QueryHints.JDBC_FETCH_SIZE, fetchSize);
+
+        final CursoredStream cursor = (CursoredStream) query.getSingleResult();
+
+        final Iterator<T> iterator = new Iterator<T>() {
+
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!cursor.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final T entity = type.cast(cursor.next());
+                em.detach(entity);
+                if (++read % fetchSize == 0) {
+                    cursor.releasePrevious();
+                }
+                return entity;
+            }
+        };
+
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(cursor::close);
+    }
+
+}
@@ -0,0 +1,123 @@
+package testJpa.support;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+
+/**
+ * Find by id for many concurrent callers: lookups which miss the shared cache
+ * are coalesced by a {@link BatchingLoader} into one query of
+ * {@link #findAll(List)}. Configured by "loader.maxBatchSize" (default 100),
+ * "loader.maxWaitMicros" (default 2000) and "loader.threads" (default 4).
+ * <p>
+ * Cache hits are found by {@link #find(Long)} of the caller. Cache misses are
+ * loaded on a thread of the loader in a transaction of its own: these entities
+ * are detached and don't reflect changes of the caller's current transaction
+ * which are not committed yet. If {@link #findAll(List)} runs in a read-only
+ * transaction, a {@link testJpa.jdbc.ReadWriteRoutingDataSource} reads them
+ * from the replica and they are not stored in the shared cache. Use the loader
+ * for reads outside of transactions or in read-only transactions.
+ *
+ * @param <T>
+ *            the entity type
+ */
+public abstract class EntityLoader<T> {
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    Environment env;
+
+    private final Class<T> type;
+
+    private BatchingLoader<T> loader;
+
+    /**
+     * @param type
+     *            the entity type, with an id of type Long
+     */
+    protected EntityLoader(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * @param id
+     *            the id
+     * @return the entity or null if there is none
+     */
+    protected abstract T find(Long id);
+
+    /**
+     * @param ids
+     *            the ids
+     * @return the entities found, missing ids are ignored
+     */
+    protected abstract Iterable<T> findAll(List<Long> ids);
+
+    /**
+     * @param entity
+     *            an entity
+     * @return its id
+     */
+    protected abstract Long idOf(T entity);
+
+    /**
+     * start the loader
+     */
+    @PostConstruct
+    public void start() {
+        loader = new BatchingLoader<>(this::findAll, this::idOf,
+                env.getProperty("loader.maxBatchSize", Integer.class, 100),
+                env.getProperty("loader.maxWaitMicros", Long.class, 2000L), TimeUnit.MICROSECONDS,
+                env.getProperty("loader.threads", Integer.class, 4));
+    }
+
+    /**
+     * load the waiting requests and stop the loader
+     */
+    @PreDestroy
+    public void stop() {
+        loader.close();
+    }
+
+    /**
+     * @param id
+     *            the id
+     * @return future completed with the entity or null if there is none
+     */
+    public CompletableFuture<T> load(Long id) {
+        if (emf.getCache().contains(type, id)) {
+            return CompletableFuture.completedFuture(find(id));
+        }
+        return loader.load(id);
+    }
+
+    /**
+     * @param id
+     *            the id
+     * @return the entity or null if there is none
+     */
+    public T findOne(Long id) {
+        if (emf.getCache().contains(type, id)) {
+            return find(id);
+        }
+        return loader.get(id);
+    }
+
+    /**
+     * @return batch sizes and wait times of the loader
+     */
+    public BatchingLoaderMetrics getMetrics() {
+        return loader.getMetrics();
+    }
+
+}
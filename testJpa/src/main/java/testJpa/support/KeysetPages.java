@@ -0,0 +1,102 @@
+package testJpa.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * Keyset paging by id: a page starts after the last id of the previous page,
+ * so the database seeks the primary key index instead of skipping rows like
+ * offset paging does. The entities are ordered by id.
+ */
+public final class KeysetPages {
+
+    private KeysetPages() {
+    }
+
+    /**
+     * find the next page of entities
+     *
+     * @param em
+     *            the entity manager
+     * @param type
+     *            the entity type
+     * @param idAttribute
+     *            name of the id attribute, of type Long
+     * @param lastId
+     *            last id of the previous page, null for the first page
+     * @param size
+     *            maximum number of entities
+     * @param condition
+     *            additional condition, null for all entities
+     * @return the entities, ordered by id
+     */
+    public static <T> List<T> findAfter(EntityManager em, Class<T> type, String idAttribute, Long lastId, int size,
+            CriteriaCondition<T> condition) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("page size must be positive: " + size);
+        }
+
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        final CriteriaQuery<T> cq = cb.createQuery(type);
+        final Root<T> root = cq.from(type);
+
+        final List<Predicate> predicates = new ArrayList<>(2);
+        if (lastId != null) {
+            predicates.add(cb.greaterThan(root.<Long> get(idAttribute), lastId));
+        }
+        if (condition != null) {
+            predicates.add(condition.toPredicate(cb, root));
+        }
+        cq.where(predicates.toArray(new Predicate[predicates.size()]));
+        cq.orderBy(cb.asc(root.get(idAttribute)));
+
+        final TypedQuery<T> tq = em.createQuery(cq);
+        tq.setMaxResults(size);
+
+        return tq.getResultList();
+    }
+
+    /**
+     * find the next page of entities as a slice, see
+     * {@link #findAfter(EntityManager, Class, String, Long, int, CriteriaCondition)}.
+     * One more row is read to determine {@link Slice#hasNext()}, no count
+     * query is executed.
+     *
+     * @param em
+     *            the entity manager
+     * @param type
+     *            the entity type
+     * @param idAttribute
+     *            name of the id attribute, of type Long
+     * @param lastId
+     *            last id of the previous slice, null for the first slice
+     * @param size
+     *            maximum number of entities
+     * @param condition
+     *            additional condition, null for all entities
+     * @return the entities, ordered by id
+     */
+    public static <T> Slice<T> findSliceAfter(EntityManager em, Class<T> type, String idAttribute, Long lastId,
+            int size, CriteriaCondition<T> condition) {
+        final List<T> content = findAfter(em, type, idAttribute, lastId, size + 1, condition);
+        final boolean hasNext = content.size() > size;
+
+        // keyset paging has no page number, the next slice starts after the last id
+        return new SliceImpl<>(hasNext ? content.subList(0, size) : content,
+                new PageRequest(0, size, Direction.ASC, idAttribute), hasNext);
+    }
+
+}
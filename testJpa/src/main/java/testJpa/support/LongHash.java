@@ -0,0 +1,29 @@
+package testJpa.support;
+
+/**
+ * Hash of long ids for the open addressing tables of primitive arrays, e.g.
+ * {@link OffHeapStringStore} and {@link testJpa.cache.LongCacheKeyMap}.
+ */
+public final class LongHash {
+
+    private LongHash() {
+    }
+
+    /**
+     * spread sequential ids over the table, the finalizer of MurmurHash3
+     *
+     * @param id
+     *            the id
+     * @return the hash, mask it with the table size minus one
+     */
+    public static int hash(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+}
@@ -0,0 +1,42 @@
+package testJpa.support;
+
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+
+/**
+ * Registers queries built with the Criteria API as named queries, so they are
+ * translated to SQL once instead of on every call. Use parameters, e.g.
+ * {@code cb.parameter(String.class, "data")}, for values that change per call
+ * and bind them on the query returned by
+ * {@link EntityManager#createNamedQuery(String, Class)}.
+ * <p>
+ * Max results and hints set on the query are kept for the named query.
+ */
+public final class NamedQueries {
+
+    private NamedQueries() {
+    }
+
+    /**
+     * build a query with a temporary entity manager and register it
+     *
+     * @param emf
+     *            the entity manager factory to register the query at
+     * @param name
+     *            name of the query, by convention "Entity.method"
+     * @param builder
+     *            creates the query
+     */
+    public static void register(EntityManagerFactory emf, String name, Function<EntityManager, Query> builder) {
+        final EntityManager em = emf.createEntityManager();
+        try {
+            emf.addNamedQuery(name, builder.apply(em));
+        } finally {
+            em.close();
+        }
+    }
+
+}
@@ -0,0 +1,363 @@
+package testJpa.support;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Map from long id to string, with the strings in a direct buffer outside of
+ * the heap. The index is an open addressing hash table of primitive arrays, so
+ * the heap holds a few large arrays instead of an entry, a boxed key and a
+ * string per id, and the garbage collector has nothing to trace per id.
+ * <p>
+ * Each record is appended to the buffer: the id, the length of the UTF-8
+ * bytes and the bytes. Replaced and removed records stay in the buffer until
+ * it is full, then the live records are compacted. If they still don't fit,
+ * the store is cleared, it is meant as a cache.
+ * <p>
+ * A read-through cache takes an {@link #invalidationStamp()} before it loads a
+ * missing value and stores it by
+ * {@link #putIfNotInvalidatedSince(long, String, long)}. So a value loaded
+ * before a concurrent writer removed the id is not put back.
+ */
+public class OffHeapStringStore {
+
+    private static final int HEADER_BYTES = Long.BYTES + Short.BYTES;
+
+    private static final int EMPTY = -1;
+
+    private static final int REMOVED = -2;
+
+    private final ByteBuffer data;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private long[] keys;
+
+    /**
+     * offset of the record of the key, or {@link #EMPTY} or {@link #REMOVED}
+     */
+    private int[] offsets;
+
+    private int size;
+
+    /**
+     * used slots including removed ones
+     */
+    private int used;
+
+    private int liveBytes;
+
+    /**
+     * number of removes and clears
+     */
+    private long invalidations;
+
+    /**
+     * @param capacityBytes
+     *            size of the direct buffer
+     */
+    public OffHeapStringStore(int capacityBytes) {
+        if (capacityBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("capacity must be more than " + HEADER_BYTES + ", but is "
+                    + capacityBytes);
+        }
+        data = ByteBuffer.allocateDirect(capacityBytes);
+        resetIndex(16);
+    }
+
+    /**
+     * @param id
+     *            the id
+     * @return the string of the id or null if there is none
+     */
+    public String get(long id) {
+        lock.readLock().lock();
+        try {
+            final int slot = find(id);
+            if (slot < 0) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return read(offsets[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store the string of an id, replacing the previous one.
+     *
+     * @param id
+     *            the id
+     * @param value
+     *            the string, null to remove the id
+     */
+    public void put(long id, String value) {
+        write(id, value, false, 0);
+    }
+
+    /**
+     * Store the string of an id unless any id was removed or the store was
+     * cleared since the stamp was taken.
+     *
+     * @param id
+     *            the id
+     * @param value
+     *            the string, loaded after the stamp was taken
+     * @param stamp
+     *            the {@link #invalidationStamp()} before the value was loaded
+     * @return true if the string is stored
+     */
+    public boolean putIfNotInvalidatedSince(long id, String value, long stamp) {
+        return write(id, value, true, stamp);
+    }
+
+    /**
+     * @return the current count of removes and clears
+     */
+    public long invalidationStamp() {
+        lock.readLock().lock();
+        try {
+            return invalidations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id
+     *            the id to remove
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            invalidations++;
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * remove all ids
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            invalidations++;
+            data.clear();
+            liveBytes = 0;
+            resetIndex(16);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of ids
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes of the live records in the buffer
+     */
+    public int getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return size of the buffer
+     */
+    public int getCapacityBytes() {
+        return data.capacity();
+    }
+
+    /**
+     * @return number of {@link #get(long)} calls which found the id
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of {@link #get(long)} calls which didn't find the id
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private boolean write(long id, String value, boolean conditional, long stamp) {
+        if (value == null) {
+            remove(id);
+            return false;
+        }
+
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        final int recordBytes = HEADER_BYTES + bytes.length;
+        if (bytes.length > Short.MAX_VALUE || recordBytes > data.capacity()) {
+            remove(id);
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (conditional && invalidations != stamp) {
+                return false;
+            }
+
+            removeLocked(id);
+            if (data.remaining() < recordBytes) {
+                compact();
+            }
+            if (data.remaining() < recordBytes) {
+                clear();
+            }
+
+            final int offset = data.position();
+            data.putLong(id).putShort((short) bytes.length).put(bytes);
+            liveBytes += recordBytes;
+            insert(id, offset);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        final int slot = find(id);
+        if (slot >= 0) {
+            liveBytes -= HEADER_BYTES + data.getShort(offsets[slot] + Long.BYTES);
+            offsets[slot] = REMOVED;
+            size--;
+        }
+    }
+
+    private String read(int offset) {
+        final int length = data.getShort(offset + Long.BYTES);
+        final byte[] bytes = new byte[length];
+        final int start = offset + HEADER_BYTES;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * move the live records to the start of the buffer
+     */
+    private void compact() {
+        final int end = data.position();
+        int from = 0;
+        int to = 0;
+        byte[] record = new byte[0];
+        while (from < end) {
+            final long id = data.getLong(from);
+            final int recordBytes = HEADER_BYTES + data.getShort(from + Long.BYTES);
+            final int slot = find(id);
+            if (slot >= 0 && offsets[slot] == from) {
+                if (to != from) {
+                    if (record.length < recordBytes) {
+                        record = new byte[recordBytes];
+                    }
+                    for (int i = 0; i < recordBytes; i++) {
+                        record[i] = data.get(from + i);
+                    }
+                    for (int i = 0; i < recordBytes; i++) {
+                        data.put(to + i, record[i]);
+                    }
+                    offsets[slot] = to;
+                }
+                to += recordBytes;
+            }
+            from += recordBytes;
+        }
+        data.position(to);
+    }
+
+    /**
+     * @return slot of the id or -1
+     */
+    private int find(long id) {
+        final int mask = keys.length - 1;
+        for (int slot = LongHash.hash(id) & mask;; slot = (slot + 1) & mask) {
+            final int offset = offsets[slot];
+            if (offset == EMPTY) {
+                return -1;
+            }
+            if (offset != REMOVED && keys[slot] == id) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(long id, int offset) {
+        if ((used + 1) * 2 > keys.length) {
+            rehash(size + 1 > keys.length / 4 ? keys.length * 2 : keys.length);
+        }
+
+        final int mask = keys.length - 1;
+        int slot = LongHash.hash(id) & mask;
+        while (offsets[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        if (offsets[slot] == EMPTY) {
+            used++;
+        }
+        keys[slot] = id;
+        offsets[slot] = offset;
+        size++;
+    }
+
+    /**
+     * rebuild the index without removed slots
+     */
+    private void rehash(int capacity) {
+        final long[] oldKeys = keys;
+        final int[] oldOffsets = offsets;
+        resetIndex(capacity);
+
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldOffsets[i] >= 0) {
+                int slot = LongHash.hash(oldKeys[i]) & mask;
+                while (offsets[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                offsets[slot] = oldOffsets[i];
+                size++;
+                used++;
+            }
+        }
+    }
+
+    private void resetIndex(int capacity) {
+        keys = new long[capacity];
+        offsets = new int[capacity];
+        Arrays.fill(offsets, EMPTY);
+        size = 0;
+        used = 0;
+    }
+
+}
@@ -0,0 +1,257 @@
+package testJpa.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded buffer of values by id which are written later. A value saved for an
+ * id which is already waiting replaces the waiting one, so only the last value
+ * is written. A thread of the buffer flushes all waiting values every interval
+ * by passing them to the writer at once, e.g. to write them as JDBC batches in
+ * one transaction.
+ * <p>
+ * If capacity ids are waiting, a save of another id waits for the next flush,
+ * at most the given timeout. The ids being written count against the capacity
+ * until the writer returns. If the writer fails, the values are put back
+ * unless a newer value of the same id is waiting, and written by the next
+ * flush, so the buffer never holds more than capacity ids. Flushes never run in
+ * parallel, so the values of an id are written in the order of the saves.
+ *
+ * @param <V>
+ *            the value type
+ */
+public class WriteBehindBuffer<V> implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final Consumer<Map<Long, V>> writer;
+
+    private final int capacity;
+
+    private final WriteBehindMetrics metrics;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Object flushLock = new Object();
+
+    private Map<Long, V> pending = new LinkedHashMap<>();
+
+    /**
+     * values of the running flush
+     */
+    private Map<Long, V> writing = Collections.emptyMap();
+
+    /**
+     * number of pending ids which are also being written
+     */
+    private int overlap;
+
+    /**
+     * @param writer
+     *            writes the values by id, fails with an exception
+     * @param capacity
+     *            maximum number of waiting ids
+     * @param interval
+     *            time between the end of a flush and the start of the next
+     * @param unit
+     *            unit of interval
+     */
+    public WriteBehindBuffer(Consumer<Map<Long, V>> writer, int capacity, long interval, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, but is " + capacity);
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive, but is " + interval);
+        }
+
+        this.writer = writer;
+        this.capacity = capacity;
+        this.metrics = new WriteBehindMetrics(capacity);
+
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread t = new Thread(r, "write-behind-" + THREAD_NUMBER.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::scheduledFlush, interval, interval, unit);
+    }
+
+    /**
+     * Save a value, waiting for a flush while the buffer is full.
+     *
+     * @param id
+     *            the id
+     * @param value
+     *            the value
+     * @param timeout
+     *            maximum time to wait for a flush
+     * @param unit
+     *            unit of timeout
+     * @return true if the value is saved, false if the buffer stayed full
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public boolean save(Long id, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        boolean waited = false;
+
+        lock.lockInterruptibly();
+        try {
+            while (!pending.containsKey(id) && !writing.containsKey(id) && held() >= capacity) {
+                if (nanos <= 0) {
+                    metrics.recordRejected();
+                    return false;
+                }
+                waited = true;
+                nanos = notFull.awaitNanos(nanos);
+            }
+
+            final boolean duplicate = pending.containsKey(id);
+            if (!duplicate && writing.containsKey(id)) {
+                overlap++;
+            }
+            metrics.recordSave(duplicate, waited);
+            pending.put(id, value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the waiting values now on the current thread. If the writer
+     * fails, the values wait for the next flush and the exception is thrown.
+     *
+     * @return number of written values
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            final Map<Long, V> values = drain();
+            if (values.isEmpty()) {
+                return 0;
+            }
+
+            final long start = System.nanoTime();
+            try {
+                writer.accept(values);
+            } catch (RuntimeException | Error e) {
+                metrics.recordFlush(values.size(), System.nanoTime() - start, true);
+                putBack(values);
+                throw e;
+            }
+            metrics.recordFlush(values.size(), System.nanoTime() - start, false);
+            release();
+            return values.size();
+        }
+    }
+
+    /**
+     * @return number of waiting ids, including the ids being written
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return held();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return metrics of this buffer
+     */
+    public WriteBehindMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stop the scheduled flushes and write the waiting values.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // keep the schedule, the values are written by the next flush
+            LOGGER.error("write-behind flush failed, retrying", e);
+        }
+    }
+
+    private Map<Long, V> drain() {
+        lock.lock();
+        try {
+            final Map<Long, V> values = pending;
+            pending = new LinkedHashMap<>();
+            writing = values;
+            overlap = 0;
+            return values;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * put back the values of a failed flush unless a newer value is waiting
+     */
+    private void putBack(Map<Long, V> values) {
+        lock.lock();
+        try {
+            final Map<Long, V> merged = new LinkedHashMap<>(values);
+            merged.putAll(pending);
+            pending = merged;
+            writing = Collections.emptyMap();
+            overlap = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * free the capacity of the written values
+     */
+    private void release() {
+        lock.lock();
+        try {
+            writing = Collections.emptyMap();
+            overlap = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of distinct waiting and written ids, guarded by lock
+     */
+    private int held() {
+        return pending.size() + writing.size() - overlap;
+    }
+
+}
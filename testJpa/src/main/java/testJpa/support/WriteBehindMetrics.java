@@ -0,0 +1,139 @@
+package testJpa.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Saves, flushes, flush latencies and queue depths of a
+ * {@link WriteBehindBuffer}. The queue depth is the number of distinct ids
+ * waiting when a flush starts.
+ */
+public class WriteBehindMetrics {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final LongAdder saves = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder blocked = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder flushes = new LongAdder();
+
+    private final LongAdder failedFlushes = new LongAdder();
+
+    private final LongAdder flushedRows = new LongAdder();
+
+    private final Recorder flushNanos = new Recorder(HIGHEST_TRACKABLE_NANOS, 2);
+
+    private final Recorder queueDepths;
+
+    private final int highestDepth;
+
+    private Histogram flushInterval;
+
+    private Histogram queueDepthInterval;
+
+    WriteBehindMetrics(int capacity) {
+        highestDepth = Math.max(capacity, 2);
+        queueDepths = new Recorder(highestDepth, 2);
+    }
+
+    void recordSave(boolean duplicate, boolean waited) {
+        saves.increment();
+        if (duplicate) {
+            coalesced.increment();
+        }
+        if (waited) {
+            blocked.increment();
+        }
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordFlush(int rows, long nanos, boolean failed) {
+        flushes.increment();
+        if (failed) {
+            failedFlushes.increment();
+        } else {
+            flushedRows.add(rows);
+        }
+        queueDepths.recordValue(Math.min(rows, highestDepth));
+        flushNanos.recordValue(Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    /**
+     * @return number of accepted saves
+     */
+    public long getSaves() {
+        return saves.sum();
+    }
+
+    /**
+     * @return number of saves replacing the value of an id which was already
+     *         waiting
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of accepted saves which had to wait for a flush because
+     *         the buffer was full
+     */
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    /**
+     * @return number of saves rejected because the buffer stayed full
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return number of flushes with at least one row
+     */
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * @return number of flushes which failed, their rows are waiting again
+     */
+    public long getFailedFlushes() {
+        return failedFlushes.sum();
+    }
+
+    /**
+     * @return number of rows written by successful flushes
+     */
+    public long getFlushedRows() {
+        return flushedRows.sum();
+    }
+
+    /**
+     * @return durations in nanoseconds of the flushes since the previous call
+     */
+    public synchronized Histogram intervalFlushNanos() {
+        flushInterval = flushNanos.getIntervalHistogram(flushInterval);
+        return flushInterval.copy();
+    }
+
+    /**
+     * @return queue depths at the start of the flushes since the previous call
+     */
+    public synchronized Histogram intervalQueueDepths() {
+        queueDepthInterval = queueDepths.getIntervalHistogram(queueDepthInterval);
+        return queueDepthInterval.copy();
+    }
+
+}
@@ -0,0 +1,196 @@
+package testJpa;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.IntFunction;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Captures the Derby runtime statistics of the statements a DAO executes, to
+ * verify the query plan.
+ * <p>
+ * Derby reports the statistics of the last statement executed on a
+ * connection. The connection of the current transaction is used, so the DAO
+ * has to run in the same transaction and execute the statement to check as
+ * its last one.
+ */
+public final class DerbyQueryPlan {
+
+    private final Connection con;
+
+    private DerbyQueryPlan(Connection con) {
+        this.con = con;
+    }
+
+    /**
+     * @param em
+     *            entity manager of the current transaction
+     * @return the query plan capture for the connection of the transaction
+     */
+    public static DerbyQueryPlan of(EntityManager em) {
+        final Connection con = em.unwrap(Connection.class);
+        if (con == null) {
+            throw new IllegalStateException("query plans can be captured in a transaction only");
+        }
+        return new DerbyQueryPlan(con);
+    }
+
+    /**
+     * @return true if the database is Derby
+     * @throws SQLException
+     *             on database errors
+     */
+    public boolean isDerby() throws SQLException {
+        return con.getMetaData().getDatabaseProductName().startsWith("Apache Derby");
+    }
+
+    /**
+     * insert test data with a batch
+     *
+     * @param sql
+     *            the insert statement
+     * @param rows
+     *            number of rows
+     * @param params
+     *            parameters of a row by row number
+     * @throws SQLException
+     *             on database errors
+     */
+    public void insert(String sql, int rows, IntFunction<Object[]> params) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < rows; i++) {
+                final Object[] row = params.apply(i);
+                for (int p = 0; p < row.length; p++) {
+                    ps.setObject(p + 1, row[p]);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * update the index statistics, so the optimizer knows the selectivity of
+     * the test data
+     *
+     * @param tables
+     *            the tables to update
+     * @throws SQLException
+     *             on database errors
+     */
+    public void updateStatistics(String... tables) throws SQLException {
+        try (PreparedStatement ps = con
+                .prepareStatement("CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS(CURRENT SCHEMA, ?, NULL)")) {
+            for (String table : tables) {
+                ps.setString(1, table);
+                ps.execute();
+            }
+        }
+    }
+
+    /**
+     * @param action
+     *            the DAO call to capture
+     * @return the runtime statistics of the last statement of the action
+     * @throws SQLException
+     *             on database errors
+     */
+    public String capture(Runnable action) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+            try {
+                action.run();
+
+                try (ResultSet rs = stmt.executeQuery("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()")) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            } finally {
+                stmt.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(0)");
+            }
+        }
+    }
+
+    /**
+     * assert the table is read with the given index
+     *
+     * @param plan
+     *            the runtime statistics
+     * @param table
+     *            the table
+     * @param index
+     *            name of the index
+     */
+    public static void assertIndexScan(String plan, String table, String index) {
+        assertTrue("index " + index + " shall be used:\n" + plan,
+                plan.contains("Index Scan ResultSet for " + table + " using index " + index + " "));
+    }
+
+    /**
+     * assert the table is read with the given index, either by an index scan
+     * or by a hash scan, which builds a hash table from the rows read with
+     * the index, e.g. for the inner table of a join
+     *
+     * @param plan
+     *            the runtime statistics
+     * @param table
+     *            the table
+     * @param index
+     *            name of the index
+     */
+    public static void assertIndexUsed(String plan, String table, String index) {
+        final String usage = " ResultSet for " + table + " using index " + index + " ";
+        assertTrue("index " + index + " shall be used:\n" + plan,
+                plan.contains("Index Scan" + usage) || plan.contains("Hash Scan" + usage));
+    }
+
+    /**
+     * assert the table is read with the index Derby created for a constraint,
+     * e.g. a foreign key
+     *
+     * @param plan
+     *            the runtime statistics
+     * @param table
+     *            the table
+     * @param constraint
+     *            name of the constraint
+     */
+    public static void assertConstraintIndexScan(String plan, String table, String constraint) {
+        assertTrue("index of " + constraint + " shall be used:\n" + plan,
+                plan.contains("Index Scan ResultSet for " + table + " using constraint " + constraint + " "));
+    }
+
+    /**
+     * assert the table is read from the index only, without access to the
+     * table rows
+     *
+     * @param plan
+     *            the runtime statistics
+     * @param table
+     *            the table
+     */
+    public static void assertCovered(String plan, String table) {
+        assertFalse("index shall cover the query:\n" + plan,
+                plan.contains("Index Row to Base Row ResultSet for " + table + ":"));
+    }
+
+    /**
+     * assert the table is not scanned completely
+     *
+     * @param plan
+     *            the runtime statistics
+     * @param table
+     *            the table
+     */
+    public static void assertNoTableScan(String plan, String table) {
+        assertFalse(table + " shall not be scanned:\n" + plan, plan.contains("Table Scan ResultSet for " + table + " "));
+    }
+
+}
@@ -0,0 +1,26 @@
+package testJpa;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Number of SQL statements a test method is expected to execute through
+ * EclipseLink. The shared cache is cleared before the test method, so every
+ * entity has to be read from the database.
+ * <p>
+ * Requires {@link QueryCountTestExecutionListener}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ExpectedQueryCount {
+
+    /**
+     * @return number of statements
+     */
+    int value();
+
+}
@@ -0,0 +1,175 @@
+package testJpa;
+
+import static org.junit.Assert.assertEquals;
+import static testJpa.DerbyQueryPlan.assertConstraintIndexScan;
+import static testJpa.DerbyQueryPlan.assertCovered;
+import static testJpa.DerbyQueryPlan.assertIndexScan;
+import static testJpa.DerbyQueryPlan.assertIndexUsed;
+import static testJpa.DerbyQueryPlan.assertNoTableScan;
+
+import java.sql.SQLException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import testJpa.simple.parentChild.dao.SimpleParentDao;
+import testJpa.simple.parentChild.domain.ParentTable;
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.spring.parentChild.dao.ParentSpringDao;
+import testJpa.spring.parentChild.domain.ParentSpring;
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.teacherStudent.dao.StudentSpringDao;
+import testJpa.spring.teacherStudent.domain.StudentSpring;
+
+/**
+ * Verify the DAO queries use the indexes defined by Liquibase. The tables are
+ * filled with enough rows that a table scan is more expensive than the index.
+ * All changes are rolled back at the end of a test method.
+ * <p>
+ * Runs on Derby only, see {@link DerbyQueryPlan}. Derby creates an index for
+ * each foreign key, so the children are loaded with the index of the foreign
+ * key to the parent. IX_CHILD_TABLE_PARENT and IX_CHILD_SPRING_PARENT are for
+ * databases which don't index foreign keys, e.g. HANA, and can't be verified
+ * here.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+@Transactional
+public class IndexUsageTest {
+
+    private static final int ROWS = 1000;
+
+    private static final int PARENTS = 100;
+
+    private static final long FIRST_ID = 900000000l;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private SimpleTableDao simpleTableDao;
+
+    @Autowired
+    private SpringTableDao springTableDao;
+
+    @Autowired
+    private SimpleParentDao simpleParentDao;
+
+    @Autowired
+    private ParentSpringDao parentSpringDao;
+
+    @Autowired
+    private StudentSpringDao studentDao;
+
+    private DerbyQueryPlan queryPlan;
+
+    @Before
+    public void fillTables() throws SQLException {
+        queryPlan = DerbyQueryPlan.of(em);
+        Assume.assumeTrue(queryPlan.isDerby());
+
+        for (String table : new String[] { "SIMPLE_TABLE", "SPRING_TABLE" }) {
+            queryPlan.insert("INSERT INTO " + table + " (ID, DATA) VALUES (?, ?)", ROWS,
+                    i -> new Object[] { FIRST_ID + i, "data " + i });
+        }
+
+        for (String table : new String[] { "TABLE", "SPRING" }) {
+            queryPlan.insert("INSERT INTO PARENT_" + table + " (ID, DATA) VALUES (?, ?)", PARENTS,
+                    i -> new Object[] { FIRST_ID + i, "parent " + i });
+            queryPlan.insert("INSERT INTO CHILD_" + table + " (ID, DATA, PARENT_ID) VALUES (?, ?, ?)", ROWS,
+                    i -> new Object[] { FIRST_ID + i, "child " + i, FIRST_ID + i % PARENTS });
+        }
+
+        queryPlan.insert("INSERT INTO TEACHER_SPRING (ID, DATA) VALUES (?, ?)", PARENTS,
+                i -> new Object[] { FIRST_ID + i, "teacher " + i });
+        queryPlan.insert("INSERT INTO STUDENT_SPRING (ID, DATA) VALUES (?, ?)", PARENTS,
+                i -> new Object[] { FIRST_ID + i, "student " + i });
+        // each teacher has 10 different students
+        queryPlan.insert("INSERT INTO TEACHERS_STUDENTS_SPRING (TEACHER_ID, STUDENT_ID) VALUES (?, ?)", ROWS,
+                i -> new Object[] { FIRST_ID + i / 10, FIRST_ID + (i / 10 + i % 10 * 7) % PARENTS });
+
+        queryPlan.updateStatistics("SIMPLE_TABLE", "SPRING_TABLE", "PARENT_TABLE", "CHILD_TABLE", "PARENT_SPRING",
+                "CHILD_SPRING", "TEACHER_SPRING", "STUDENT_SPRING", "TEACHERS_STUDENTS_SPRING");
+    }
+
+    @Test
+    public void testSimpleTableFindByData() throws SQLException {
+        final String plan = queryPlan.capture(() -> assertEquals(1, simpleTableDao.findByData("data 500").size()));
+
+        assertIndexScan(plan, "SIMPLE_TABLE", "IX_SIMPLE_TABLE_DATA");
+        assertCovered(plan, "SIMPLE_TABLE");
+    }
+
+    @Test
+    public void testSpringTableFindByData() throws SQLException {
+        final String plan = queryPlan.capture(() -> assertEquals(1, springTableDao.findByData("data 500").size()));
+
+        assertIndexScan(plan, "SPRING_TABLE", "IX_SPRING_TABLE_DATA");
+        assertCovered(plan, "SPRING_TABLE");
+    }
+
+    @Test
+    public void testSimpleParentFindByData() throws SQLException {
+        final String plan = queryPlan.capture(() -> assertEquals(1, simpleParentDao.findByData("parent 50").size()));
+
+        assertIndexScan(plan, "PARENT_TABLE", "IX_PARENT_TABLE_DATA");
+        assertCovered(plan, "PARENT_TABLE");
+    }
+
+    @Test
+    public void testSimpleParentLoadChildren() throws SQLException {
+        final ParentTable parent = simpleParentDao.findOne(FIRST_ID + 50);
+
+        final String plan = queryPlan.capture(() -> assertEquals(10, parent.getChildren().size()));
+
+        // the index of the foreign key, see class comment
+        assertConstraintIndexScan(plan, "CHILD_TABLE", "FK_CHILD_PARENT");
+    }
+
+    @Test
+    public void testParentSpringFindByData() throws SQLException {
+        final String plan = queryPlan.capture(() -> assertEquals(1, parentSpringDao.findByData("parent 50").size()));
+
+        assertIndexScan(plan, "PARENT_SPRING", "IX_PARENT_SPRING_DATA");
+        assertCovered(plan, "PARENT_SPRING");
+    }
+
+    @Test
+    public void testParentSpringLoadChildren() throws SQLException {
+        final ParentSpring parent = parentSpringDao.findOne(FIRST_ID + 50);
+
+        final String plan = queryPlan.capture(() -> assertEquals(10, parent.getChildren().size()));
+
+        // the index of the foreign key, see class comment
+        assertConstraintIndexScan(plan, "CHILD_SPRING", "FK_CHILD_PARENT_SPRING");
+    }
+
+    @Test
+    public void testParentSpringFindByChildrenDataLike() throws SQLException {
+        final String plan = queryPlan
+                .capture(() -> assertEquals(1, parentSpringDao.findByChildrenDataLike("child 512%").size()));
+
+        assertNoTableScan(plan, "CHILD_SPRING");
+    }
+
+    @Test
+    public void testStudentLoadTeachers() throws SQLException {
+        final StudentSpring student = studentDao.findOne(FIRST_ID + 50);
+
+        final String plan = queryPlan.capture(() -> assertEquals(10, student.getTeachers().size()));
+
+        // the primary key starts with TEACHER_ID and can't be used
+        assertIndexUsed(plan, "TEACHERS_STUDENTS_SPRING", "IX_TEACHERS_STUDENTS_STUDENT");
+        assertNoTableScan(plan, "TEACHERS_STUDENTS_SPRING");
+    }
+
+}
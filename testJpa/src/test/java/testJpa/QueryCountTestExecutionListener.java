@@ -0,0 +1,39 @@
+package testJpa;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+import testJpa.jdbc.StatementCountingListener;
+import testJpa.jdbc.StatementStatistics;
+
+/**
+ * Verifies {@link ExpectedQueryCount} of test methods. List it after the
+ * transaction listener, so the statements executed on rollback or by the
+ * DBUnit verification are not counted.
+ */
+public class QueryCountTestExecutionListener extends AbstractTestExecutionListener {
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) throws Exception {
+        if (testContext.getTestMethod().isAnnotationPresent(ExpectedQueryCount.class)) {
+            testContext.getApplicationContext().getBean(EntityManagerFactory.class).getCache().evictAll();
+            StatementCountingListener.startCapture();
+        }
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) throws Exception {
+        final ExpectedQueryCount expected = testContext.getTestMethod().getAnnotation(ExpectedQueryCount.class);
+        final StatementStatistics statistics = StatementCountingListener.stopCapture();
+
+        if (expected != null && testContext.getTestException() == null) {
+            assertEquals("statements executed: " + statistics.getCounts(), expected.value(),
+                    statistics.getStatements());
+        }
+    }
+
+}
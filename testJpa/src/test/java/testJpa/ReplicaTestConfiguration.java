@@ -0,0 +1,78 @@
+package testJpa;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+
+import liquibase.integration.spring.SpringLiquibase;
+import testJpa.jdbc.MeteredPoolDataSource;
+import testJpa.jdbc.ReadWriteRoutingDataSource;
+
+/**
+ * Configuration for tests of read-only transactions on a replica. A second
+ * Derby in-memory database, seeded by the same Liquibase changelog, stands in
+ * for the replica. There is no replication: data written to the primary
+ * database is not visible in read-only transactions.
+ */
+@Configuration
+@Import(TestJpaConfiguration.class)
+@PropertySource({ "classpath:replica.properties", "classpath:database.properties" })
+public class ReplicaTestConfiguration {
+
+    @Autowired
+    Environment env;
+
+    /**
+     * @return pool of the primary database, configured by the "jdbc.*"
+     *         properties
+     */
+    @Bean
+    public MeteredPoolDataSource primaryDataSource() {
+        return MeteredPoolDataSource.fromProperties(env);
+    }
+
+    /**
+     * @return pool of the replica, configured by the "jdbc.replica.*"
+     *         properties. replica.properties sets a Derby in-memory
+     *         database, database.properties may override it.
+     */
+    @Bean
+    public MeteredPoolDataSource replicaDataSource() {
+        return MeteredPoolDataSource.fromProperties(env, "jdbc.replica.");
+    }
+
+    /**
+     * data source to be used by JPA and Liquibase: routes read-only
+     * transactions to the replica
+     *
+     * @return the routing data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        return ReadWriteRoutingDataSource.create(primaryDataSource(), replicaDataSource());
+    }
+
+    /**
+     * setup the schema of the replica like the one of the primary database
+     *
+     * @return the Liquibase bean for the replica
+     */
+    @Bean
+    public SpringLiquibase replicaLiquibase() {
+        final SpringLiquibase lqb = new SpringLiquibase();
+
+        lqb.setDataSource(replicaDataSource());
+        lqb.setChangeLog("classpath:liquibase/db.changelog.xml");
+        lqb.setDropFirst(true);
+
+        return lqb;
+    }
+
+}
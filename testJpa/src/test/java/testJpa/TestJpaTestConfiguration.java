@@ -8,7 +8,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import testJpa.jdbc.MeteredPoolDataSource;
 
 /**
  * Configuration specific for repository tests. Imports the standard repository
@@ -23,21 +24,15 @@ public class TestJpaTestConfiguration {
     Environment env;
 
     /**
-     * data source to be used
+     * data source to be used: a connection pool configured by the "jdbc.*"
+     * properties, see {@link MeteredPoolDataSource#fromProperties}. The pool is
+     * closed with the application context.
      *
      * @return the data source
      */
     @Bean
     public DataSource dataSource() {
-        final DriverManagerDataSource ds = new DriverManagerDataSource();
-        final String url = env.getProperty("jdbc.url");
-        ds.setUrl(url);
-        if (!url.startsWith("jdbc:derby:memory")) {
-            // set other JDBC properties only if not Derby In-Memory test
-            ds.setUsername(env.getProperty("jdbc.username"));
-            ds.setPassword(env.getProperty("jdbc.password"));
-        }
-        return ds;
+        return MeteredPoolDataSource.fromProperties(env);
     }
 
 }
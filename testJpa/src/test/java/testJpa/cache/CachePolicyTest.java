@@ -0,0 +1,168 @@
+package testJpa.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.spring.parentChild.domain.ChildSpring;
+import testJpa.spring.table.domain.SpringTable;
+import testJpa.spring.teacherStudent.domain.TeacherSpring;
+
+/**
+ * Test that the cache policies are applied and the eviction of the identity
+ * maps. The identity maps are tested without database.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+public class CachePolicyTest {
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    private AbstractSession session;
+
+    @Before
+    public void setUp() {
+        session = (AbstractSession) emf.unwrap(JpaEntityManagerFactory.class).getServerSession();
+    }
+
+    @Test
+    public void testPolicyIsApplied() {
+        final ClassDescriptor table = session.getDescriptor(SpringTable.class);
+        assertEquals(LruIdentityMap.class, table.getIdentityMapClass());
+        assertEquals(16 * 1024 * 1024 / 160, table.getIdentityMapSize());
+
+        final ClassDescriptor teacher = session.getDescriptor(TeacherSpring.class);
+        assertEquals(LfuIdentityMap.class, teacher.getIdentityMapClass());
+        assertTrue(teacher.getCacheInvalidationPolicy() instanceof TimeToLiveCacheInvalidationPolicy);
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() throws InterruptedException {
+        final LruIdentityMap map = new LruIdentityMap(3, session.getDescriptor(SpringTable.class), session, false);
+        assertTrue(map.getCacheKeys() instanceof LongCacheKeyMap);
+        final CacheStatistics statistics = CacheStatistics.of(session, "SpringTable");
+        final long evictions = statistics.getEvictions();
+
+        put(map, 1L, 2L, 3L);
+        map.getCacheKey(1L, false);
+        put(map, 4L);
+
+        assertEquals(3, map.getSize());
+        assertNotNull(map.getCacheKey(1L, false));
+        assertNull(map.getCacheKey(2L, false));
+        assertEquals(evictions + 1, statistics.getEvictions());
+    }
+
+    @Test
+    public void testLfuEvictsLeastFrequentlyUsed() throws InterruptedException {
+        final LfuIdentityMap map = new LfuIdentityMap(3, session.getDescriptor(SpringTable.class), session, false);
+
+        put(map, 1L, 2L, 3L);
+        map.getCacheKey(1L, false);
+        map.getCacheKey(1L, false);
+        map.getCacheKey(2L, false);
+        put(map, 4L);
+
+        assertEquals(3, map.getSize());
+        assertNull(map.getCacheKey(3L, false));
+        assertNotNull(map.getCacheKey(4L, false));
+    }
+
+    @Test
+    public void testLruSamplesAllEntities() throws InterruptedException {
+        // with and without long keys
+        for (Class<?> entity : Arrays.asList(SpringTable.class, ChildSpring.class)) {
+            final LruIdentityMap map = new LruIdentityMap(100, session.getDescriptor(entity), session, false);
+            fill(map, 1, 100);
+            // the entity a sample in iteration order would reach last
+            final Object oldest = lastKey(map);
+            Thread.sleep(1);
+            touchAllBut(map, oldest);
+
+            fill(map, 101, 200);
+
+            assertEquals(100, map.getSize());
+            assertNull(map.getCacheKey(oldest, false));
+        }
+    }
+
+    @Test
+    public void testLfuSamplesAllEntities() {
+        for (Class<?> entity : Arrays.asList(SpringTable.class, ChildSpring.class)) {
+            final LfuIdentityMap map = new LfuIdentityMap(100, session.getDescriptor(entity), session, false);
+            fill(map, 1, 100);
+            final Object rarest = lastKey(map);
+            touchAllBut(map, rarest);
+
+            for (long id = 101; id <= 200; id++) {
+                fill(map, id, id);
+                map.getCacheKey(id, false);
+            }
+
+            assertEquals(100, map.getSize());
+            assertNull(map.getCacheKey(rarest, false));
+        }
+    }
+
+    @Test
+    public void testMaxEntries() {
+        assertEquals(16 * 1024 * 1024 / 160,
+                CachePolicyCustomizer.maxEntries(SpringTable.class.getAnnotation(CachePolicy.class)));
+        // the identity map is created on first access
+        session.getIdentityMapAccessor().getFromIdentityMap(1L, SpringTable.class);
+        assertTrue(CacheStatistics.all(session).containsKey("SpringTable"));
+    }
+
+    private static void fill(BudgetedIdentityMap map, long from, long to) {
+        for (long id = from; id <= to; id++) {
+            final SpringTable st = new SpringTable();
+            st.setData("data " + id);
+            map.put(id, st, null, System.currentTimeMillis());
+        }
+    }
+
+    private static Object lastKey(BudgetedIdentityMap map) {
+        Object last = null;
+        for (Object key : map.getCacheKeys().keySet()) {
+            last = key;
+        }
+        return last;
+    }
+
+    private static void touchAllBut(BudgetedIdentityMap map, Object skipped) {
+        for (Object key : map.getCacheKeys().keySet()) {
+            if (!key.equals(skipped)) {
+                map.getCacheKey(key, false);
+            }
+        }
+    }
+
+    private static void put(BudgetedIdentityMap map, Long... ids) throws InterruptedException {
+        for (Long id : ids) {
+            final SpringTable st = new SpringTable();
+            st.setData("data " + id);
+            map.put(id, st, null, System.currentTimeMillis());
+            // distinct access times
+            Thread.sleep(1);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package testJpa.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.spring.table.domain.SpringTable;
+import testJpa.spring.teacherStudent.domain.StudentSpring;
+import testJpa.spring.teacherStudent.domain.TeacherSpring;
+
+/**
+ * Test loading entities into the shared cache. The rows are committed, so the
+ * test cleans up itself.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+public class CacheWarmerTest {
+
+    @Autowired
+    CacheWarmer warmer;
+
+    @Autowired
+    DataSource dataSource;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    private JdbcTemplate jdbc;
+
+    private Cache cache;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        tearDown();
+
+        for (long id = 10001000; id < 10001010; id++) {
+            jdbc.update("insert into SPRING_TABLE (ID, DATA) values (?, ?)", id, "row " + id);
+        }
+        jdbc.update("insert into TEACHER_SPRING (ID, DATA) values (10001000, 'teacher')");
+        jdbc.update("insert into STUDENT_SPRING (ID, DATA) values (10001000, 'student')");
+        jdbc.update("insert into TEACHERS_STUDENTS_SPRING (TEACHER_ID, STUDENT_ID) values (10001000, 10001000)");
+
+        cache = emf.getCache();
+        cache.evictAll();
+    }
+
+    @After
+    public void tearDown() {
+        jdbc.update("delete from TEACHERS_STUDENTS_SPRING");
+        jdbc.update("delete from TEACHER_SPRING");
+        jdbc.update("delete from STUDENT_SPRING");
+        jdbc.update("delete from SPRING_TABLE");
+        emf.getCache().evictAll();
+    }
+
+    @Test
+    public void testNewest() {
+        final Map<String, CacheWarmupProgress> progress = warmer.warmUp(
+                Collections.singletonList(CacheWarmupTask.newest("newest", SpringTable.class, 4)), 10000);
+
+        assertEquals(CacheWarmupProgress.State.COMPLETED, progress.get("newest").getState());
+        assertEquals(4, progress.get("newest").getLoaded());
+        assertTrue(cache.contains(SpringTable.class, 10001009L));
+        assertTrue(cache.contains(SpringTable.class, 10001006L));
+        assertFalse(cache.contains(SpringTable.class, 10001005L));
+    }
+
+    @Test
+    public void testAllWithRelationship() {
+        final Map<String, CacheWarmupProgress> progress = warmer.warmUp(
+                Arrays.asList(CacheWarmupTask.all("teachers", TeacherSpring.class, "students"),
+                        CacheWarmupTask.all("springTable", SpringTable.class, null)),
+                10000);
+
+        assertEquals(CacheWarmupProgress.State.COMPLETED, progress.get("teachers").getState());
+        assertEquals(10, progress.get("springTable").getLoaded());
+        assertTrue(cache.contains(TeacherSpring.class, 10001000L));
+        assertTrue(cache.contains(StudentSpring.class, 10001000L));
+        assertTrue(cache.contains(SpringTable.class, 10001000L));
+    }
+
+    @Test
+    public void testBudgetExhausted() {
+        final Map<String, CacheWarmupProgress> progress = warmer.warmUp(
+                Collections.singletonList(CacheWarmupTask.all("springTable", SpringTable.class, null)), 0);
+
+        // the task may not even have started
+        assertNotEquals(CacheWarmupProgress.State.COMPLETED, progress.get("springTable").getState());
+        assertEquals(0, progress.get("springTable").getLoaded());
+    }
+
+    @Test
+    public void testConfiguredTasks() {
+        assertEquals(2, warmer.configuredTasks().size());
+        assertFalse(warmer.isAutoStartup());
+    }
+
+}
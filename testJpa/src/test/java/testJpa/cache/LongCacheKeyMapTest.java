@@ -0,0 +1,101 @@
+package testJpa.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.junit.Test;
+
+/**
+ * Test the primitive long map against a {@link HashMap}.
+ */
+public class LongCacheKeyMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        final LongCacheKeyMap map = new LongCacheKeyMap(4);
+        final CacheKey one = new CacheKey(1L);
+
+        assertNull(map.putIfAbsent(1L, one));
+        assertSame(one, map.putIfAbsent(1L, new CacheKey(1L)));
+        assertSame(one, map.get(1L));
+        assertSame(one, map.get((Object) Long.valueOf(1L)));
+        assertNull(map.get("1"));
+
+        assertSame(one, map.remove(1L));
+        assertNull(map.get(1L));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        final LongCacheKeyMap map = new LongCacheKeyMap(16);
+        final Map<Long, CacheKey> expected = new HashMap<>();
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            // few distinct ids, so removes and collisions are frequent
+            final long id = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(id), map.remove(id));
+            } else {
+                final CacheKey key = new CacheKey(id);
+                assertSame(expected.put(id, key), map.put(id, key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long id = -1000; id < 1000; id++) {
+            assertSame(expected.get(id), map.get(id));
+        }
+        assertEquals(expected.keySet(), map.keySet());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        final LongCacheKeyMap map = new LongCacheKeyMap(16);
+        for (long id = 0; id < 100; id++) {
+            map.put(id, new CacheKey(id));
+        }
+
+        for (Iterator<CacheKey> values = map.values().iterator(); values.hasNext();) {
+            if ((Long) values.next().getKey() % 2 == 0) {
+                values.remove();
+            }
+        }
+
+        assertEquals(50, map.size());
+        assertNull(map.get(10L));
+        assertEquals(Long.valueOf(11L), map.get(11L).getKey());
+    }
+
+    @Test
+    public void testUsageMovesWithEntries() {
+        final LongCacheKeyMap map = new LongCacheKeyMap(4);
+        for (long id = 0; id < 1000; id++) {
+            map.put(id, new CacheKey(id));
+        }
+        // removes shift entries, the puts above resized the table
+        for (long id = 0; id < 1000; id += 3) {
+            map.remove(id);
+        }
+        for (long id = 0; id < 1000; id++) {
+            if (id != 500) {
+                map.touch(id);
+            }
+        }
+
+        final CacheKey rarest = map.lowest(Integer.MAX_VALUE, -1, (lastAccess, hits) -> hits);
+        assertEquals(500L, rarest.getKey());
+        assertNotSame(rarest, map.lowest(Integer.MAX_VALUE, 500, (lastAccess, hits) -> hits));
+        assertNull(new LongCacheKeyMap(4).lowest(16, -1, (lastAccess, hits) -> hits));
+    }
+
+}
@@ -0,0 +1,182 @@
+package testJpa.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.jdbc.InvalidatingJdbcTemplate;
+import testJpa.spring.parentChild.domain.ParentSpring;
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Test that JDBC writes evict the changed entities from the shared cache. The
+ * writes are committed, so the test cleans up itself.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+public class SharedCacheInvalidatorTest {
+
+    @Autowired
+    SpringTableDao dao;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    SharedCacheInvalidator invalidator;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    private InvalidatingJdbcTemplate jdbc;
+
+    private Cache cache;
+
+    @Before
+    public void setUp() {
+        jdbc = new InvalidatingJdbcTemplate(dataSource, invalidator);
+        cache = emf.getCache();
+        cache.evictAll();
+
+        jdbc.update("delete from SPRING_TABLE");
+        jdbc.update("insert into SPRING_TABLE (ID, DATA) values (10001000, 'one thousand')");
+        jdbc.update("insert into SPRING_TABLE (ID, DATA) values (10001001, 'one thousand one')");
+    }
+
+    @After
+    public void tearDown() {
+        jdbc.update("delete from SPRING_TABLE");
+    }
+
+    @Test
+    public void testUpdateEvictsChangedEntity() {
+        dao.findOne(10001000L);
+        dao.findOne(10001001L);
+        assertTrue(cache.contains(SpringTable.class, 10001000L));
+
+        jdbc.update("update SPRING_TABLE set DATA = ? where ID = ?", "changed", 10001000L);
+
+        assertFalse(cache.contains(SpringTable.class, 10001000L));
+        assertTrue(cache.contains(SpringTable.class, 10001001L));
+        assertEquals("changed", dao.findOne(10001000L).getData());
+    }
+
+    @Test
+    public void testUpdateWithoutKeyEvictsTable() {
+        dao.findOne(10001000L);
+        dao.findOne(10001001L);
+
+        jdbc.update("update SPRING_TABLE set DATA = 'changed' where DATA like 'one%'");
+
+        assertFalse(cache.contains(SpringTable.class, 10001000L));
+        assertFalse(cache.contains(SpringTable.class, 10001001L));
+    }
+
+    @Test
+    public void testUpsertEvictsBatchKeys() {
+        dao.findOne(10001000L);
+        dao.findOne(10001001L);
+
+        // HANA syntax, only parsed
+        invalidator.invalidate("upsert SPRING_TABLE (ID, DATA) values (?, ?) with primary key",
+                Collections.singletonList(new Object[] { 10001001L, "changed" }));
+
+        assertTrue(cache.contains(SpringTable.class, 10001000L));
+        assertFalse(cache.contains(SpringTable.class, 10001001L));
+    }
+
+    @Test
+    public void testBulkUpdateEvictsAffectedEntities() {
+        dao.findOne(10001000L);
+        dao.findOne(10001001L);
+
+        assertEquals(1, dao.updateDataByIdRange(10001001L, 10001009L, "changed"));
+
+        assertTrue(cache.contains(SpringTable.class, 10001000L));
+        assertFalse(cache.contains(SpringTable.class, 10001001L));
+        assertEquals("changed", dao.findOne(10001001L).getData());
+    }
+
+    @Test
+    public void testBulkUpdateEvictsMatchingEntities() {
+        dao.findOne(10001000L);
+        dao.findOne(10001001L);
+
+        assertEquals(1, dao.updateDataWhere("one thousand one", "changed"));
+
+        assertTrue(cache.contains(SpringTable.class, 10001000L));
+        assertFalse(cache.contains(SpringTable.class, 10001001L));
+        assertEquals("changed", dao.findOne(10001001L).getData());
+    }
+
+    @Test
+    public void testBatchUpdateByIdsEvictsAffectedEntities() {
+        dao.findOne(10001000L);
+        dao.findOne(10001001L);
+
+        dao.updateDataByIds(Collections.singletonMap(10001001L, "changed"));
+
+        assertTrue(cache.contains(SpringTable.class, 10001000L));
+        assertFalse(cache.contains(SpringTable.class, 10001001L));
+        assertEquals("changed", dao.findOne(10001001L).getData());
+    }
+
+    @Test
+    public void testEvictionListener() {
+        final List<Object> evicted = new ArrayList<>();
+        final CacheEvictionListener listener = new CacheEvictionListener() {
+            @Override
+            public void evicted(Class<?> entity, Collection<?> keys) {
+                evicted.add(keys);
+            }
+
+            @Override
+            public void evictedAll() {
+                evicted.add("all");
+            }
+        };
+        invalidator.addListener(listener);
+        try {
+            jdbc.update("update SPRING_TABLE set DATA = ? where ID = ?", "changed", 10001000L);
+            jdbc.update("update SPRING_TABLE set DATA = 'changed'");
+        } finally {
+            invalidator.removeListener(listener);
+        }
+
+        assertEquals(Arrays.asList(Collections.singletonList(10001000L), null), evicted);
+    }
+
+    @Test
+    public void testChildEvictsParents() {
+        final Map<String, SharedCacheInvalidator.MappedTable> tables = SharedCacheInvalidator
+                .mapTables(emf.unwrap(JpaEntityManagerFactory.class).getServerSession());
+
+        assertTrue(tables.get("CHILD_SPRING").dependents.contains(ParentSpring.class));
+        assertEquals("ID", tables.get("SPRING_TABLE").keyColumn);
+        assertEquals(2, tables.get("TEACHERS_STUDENTS_SPRING").dependents.size());
+    }
+
+}
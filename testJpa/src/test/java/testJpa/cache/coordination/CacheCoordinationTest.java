@@ -0,0 +1,214 @@
+package testJpa.cache.coordination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.sessions.Session;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.spring.parentChild.dao.ParentSpringDao;
+import testJpa.spring.parentChild.domain.ParentSpring;
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Test that a change on one node reaches the shared cache of another node.
+ * Both nodes are application contexts in this JVM using the same Derby
+ * in-memory database, like several JVMs using one schema. The TCP transport
+ * connects them over localhost like separate JVMs.
+ */
+public class CacheCoordinationTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private final String databaseUrl = "jdbc:derby:memory:test-jpa-coordination-" + UUID.randomUUID();
+
+    private AnnotationConfigApplicationContext nodeA;
+
+    private AnnotationConfigApplicationContext nodeB;
+
+    @After
+    public void tearDown() {
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        try {
+            DriverManager.getConnection(databaseUrl + ";drop=true").close();
+        } catch (SQLException e) {
+            // Derby always signals a successful drop with an exception
+        }
+    }
+
+    @Test
+    public void testInJvmSendsChanges() throws InterruptedException {
+        final String channel = "channel-" + UUID.randomUUID();
+        nodeA = startNode("node-a-" + channel, InJvmTransportManager.class, channel, new HashMap<>());
+        nodeB = startNode("node-b-" + channel, InJvmTransportManager.class, channel, new HashMap<>());
+
+        assertSpringTableChangePropagated();
+    }
+
+    @Test
+    public void testInJvmInvalidates() throws InterruptedException {
+        final String channel = "channel-" + UUID.randomUUID();
+        nodeA = startNode("node-a-" + channel, InJvmTransportManager.class, channel, new HashMap<>());
+        nodeB = startNode("node-b-" + channel, InJvmTransportManager.class, channel, new HashMap<>());
+
+        final ParentSpringDao daoA = nodeA.getBean(ParentSpringDao.class);
+        final ParentSpringDao daoB = nodeB.getBean(ParentSpringDao.class);
+
+        final ParentSpring parent = new ParentSpring();
+        parent.setData("parent");
+        final Long id = daoA.save(parent).getId();
+        assertEquals("parent", daoB.findOne(id).getData());
+
+        final ParentSpring changed = daoA.findOne(id);
+        changed.setData("changed");
+        daoA.save(changed);
+
+        awaitEquals("changed", () -> daoB.findOne(id).getData());
+    }
+
+    @Test
+    public void testTcpSendsChanges() throws Exception {
+        final int portA = freePort();
+        final int portB = freePort();
+        final String channel = "channel-" + UUID.randomUUID();
+
+        final Map<String, Object> propsA = new HashMap<>();
+        propsA.put(CoordinationTransportManager.PROPERTY_PREFIX + "tcp.port", String.valueOf(portA));
+        propsA.put(CoordinationTransportManager.PROPERTY_PREFIX + "tcp.peers", "localhost:" + portB);
+        nodeA = startNode("node-a-" + channel, TcpTransportManager.class, channel, propsA);
+
+        final Map<String, Object> propsB = new HashMap<>();
+        propsB.put(CoordinationTransportManager.PROPERTY_PREFIX + "tcp.port", String.valueOf(portB));
+        propsB.put(CoordinationTransportManager.PROPERTY_PREFIX + "tcp.peers", "localhost:" + portA);
+        nodeB = startNode("node-b-" + channel, TcpTransportManager.class, channel, propsB);
+
+        assertSpringTableChangePropagated();
+    }
+
+    @Test
+    public void testTcpDoesNotWaitForUnreachablePeer() throws Exception {
+        final String channel = "channel-" + UUID.randomUUID();
+        try (ServerSocket unreachable = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            // fill the backlog of the peer, which never accepts, so connecting hangs until the timeout
+            final List<Socket> backlog = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final Socket socket = new Socket();
+                backlog.add(socket);
+                try {
+                    socket.connect(unreachable.getLocalSocketAddress(), 100);
+                } catch (IOException e) {
+                    // the backlog is full
+                }
+            }
+
+            final Map<String, Object> props = new HashMap<>();
+            props.put(CoordinationTransportManager.PROPERTY_PREFIX + "tcp.port", String.valueOf(freePort()));
+            props.put(CoordinationTransportManager.PROPERTY_PREFIX + "tcp.peers",
+                    "localhost:" + unreachable.getLocalPort());
+            props.put(CoordinationTransportManager.PROPERTY_PREFIX + "tcp.queueSize", "1");
+            nodeA = startNode("node-a-" + channel, TcpTransportManager.class, channel, props);
+
+            final SpringTableDao dao = nodeA.getBean(SpringTableDao.class);
+            final SpringTable entity = new SpringTable();
+            entity.setData("data 0");
+            final Long id = dao.save(entity).getId();
+
+            final long start = System.currentTimeMillis();
+            for (int i = 1; i <= 20; i++) {
+                final SpringTable changed = dao.findOne(id);
+                changed.setData("data " + i);
+                dao.save(changed);
+            }
+
+            // sending each message would wait for the connect timeout of a second
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertTrue(CoordinationMetrics.of(session(nodeA)).getDropped() > 0);
+
+            for (Socket socket : backlog) {
+                socket.close();
+            }
+        }
+    }
+
+    private void assertSpringTableChangePropagated() throws InterruptedException {
+        final SpringTableDao daoA = nodeA.getBean(SpringTableDao.class);
+        final SpringTableDao daoB = nodeB.getBean(SpringTableDao.class);
+
+        final SpringTable entity = new SpringTable();
+        entity.setData("original");
+        final Long id = daoA.save(entity).getId();
+
+        // now in the cache of node b
+        assertEquals("original", daoB.findOne(id).getData());
+
+        final SpringTable changed = daoA.findOne(id);
+        changed.setData("changed");
+        daoA.save(changed);
+
+        awaitEquals("changed", () -> daoB.findOne(id).getData());
+
+        final CoordinationMetrics metrics = CoordinationMetrics.of(session(nodeB));
+        assertTrue(metrics.getReceived() > 0);
+        assertTrue(metrics.intervalLagMillis().getTotalCount() > 0);
+    }
+
+    private AnnotationConfigApplicationContext startNode(String sessionName,
+            Class<? extends CoordinationTransportManager> transport, String channel, Map<String, Object> properties) {
+        final Map<String, Object> props = new HashMap<>(properties);
+        props.put("jdbc.url", databaseUrl + ";create=true");
+        props.put("eclipselink.session-name", sessionName);
+        props.put("eclipselink.cache.coordination.protocol", transport.getName());
+        props.put("eclipselink.cache.coordination.channel", channel);
+
+        final AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+        ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource(sessionName, props));
+        ctx.register(TestJpaTestConfiguration.class);
+        ctx.refresh();
+        return ctx;
+    }
+
+    private static Session session(AnnotationConfigApplicationContext node) {
+        return node.getBean(EntityManagerFactory.class).unwrap(JpaEntityManagerFactory.class).getServerSession();
+    }
+
+    private static void awaitEquals(String expected, Supplier<String> actual) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!expected.equals(actual.get()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, actual.get());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+}
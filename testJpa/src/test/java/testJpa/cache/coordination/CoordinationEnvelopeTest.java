@@ -0,0 +1,57 @@
+package testJpa.cache.coordination;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InvalidClassException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test that only the allowed classes are deserialized from a message.
+ */
+public class CoordinationEnvelopeTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final byte[] command = { 1, 2, 3 };
+        final CoordinationEnvelope envelope = CoordinationEnvelope
+                .fromBytes(new CoordinationEnvelope("sender", 42, command).toBytes());
+
+        assertEquals("sender", envelope.sender);
+        assertEquals(42, envelope.sentMillis);
+        assertArrayEquals(command, (byte[]) envelope.command);
+    }
+
+    @Test
+    public void testRoundTripCollections() throws Exception {
+        final Object command = Arrays.asList(1L, "two", new Long[] { 3L });
+        final CoordinationEnvelope envelope = CoordinationEnvelope
+                .fromBytes(new CoordinationEnvelope("sender", 42, command).toBytes());
+
+        assertEquals(3, ((List<?>) envelope.command).size());
+    }
+
+    @Test(expected = InvalidClassException.class)
+    public void testRejectsClassNotAllowed() throws Exception {
+        CoordinationEnvelope.fromBytes(new CoordinationEnvelope("sender", 42, new File("x")).toBytes());
+    }
+
+    @Test
+    public void testIsAllowed() {
+        assertTrue(CoordinationEnvelope.isAllowed("java.lang.Long"));
+        assertTrue(CoordinationEnvelope.isAllowed("[J"));
+        assertTrue(CoordinationEnvelope.isAllowed("[[Ljava.lang.String;"));
+        assertTrue(CoordinationEnvelope.isAllowed("testJpa.spring.table.domain.SpringTable"));
+        assertFalse(CoordinationEnvelope.isAllowed("java.io.File"));
+        assertFalse(CoordinationEnvelope.isAllowed("[Ljava.io.File;"));
+        assertFalse(CoordinationEnvelope.isAllowed("java.lang.invoke.SerializedLambda"));
+        assertFalse(CoordinationEnvelope.isAllowed("org.apache.commons.collections.functors.InvokerTransformer"));
+    }
+
+}
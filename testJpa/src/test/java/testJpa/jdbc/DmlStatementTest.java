@@ -0,0 +1,87 @@
+package testJpa.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import testJpa.jdbc.DmlStatement.Kind;
+
+/**
+ * Test parsing of the affected table and keys.
+ */
+public class DmlStatementTest {
+
+    @Test
+    public void testKindAndTable() {
+        assertEquals(Kind.INSERT, DmlStatement.parse("insert into SIMPLE_TABLE (ID, DATA) values (1, 'a')").getKind());
+        assertEquals("SIMPLE_TABLE", DmlStatement.parse("  insert into app.\"simple_table\" values (1)").getTable());
+        assertEquals(Kind.DELETE, DmlStatement.parse("truncate table SPRING_TABLE").getKind());
+        assertEquals(Kind.QUERY, DmlStatement.parse("select * from SPRING_TABLE").getKind());
+        assertEquals(Kind.OTHER, DmlStatement.parse("call SYSCS_UTIL.SYSCS_COMPRESS_TABLE('APP', 'T', 0)").getKind());
+    }
+
+    @Test
+    public void testKeyParameter() {
+        final DmlStatement st = DmlStatement.parse("update SPRING_TABLE set DATA = ? where ID = ?");
+
+        assertEquals(Kind.UPDATE, st.getKind());
+        assertEquals(Collections.singletonList(7L), st.keys("ID", new Object[] { "new", 7L }));
+    }
+
+    @Test
+    public void testKeyLiteralWithOtherConditions() {
+        final DmlStatement st = DmlStatement
+                .parse("delete from SPRING_TABLE t where t.DATA = 'id = 1 or x' and (t.ID = 10001000)");
+
+        assertEquals(Collections.singletonList(10001000L), st.keys("ID", null));
+    }
+
+    @Test
+    public void testKeyList() {
+        final DmlStatement st = DmlStatement.parse("update SPRING_TABLE set DATA = ? where ID in (?, 5, ?)");
+
+        assertEquals(Arrays.asList(4L, 5L, 6L), st.keys("ID", new Object[] { "x", 4L, 6L }));
+    }
+
+    @Test
+    public void testMergeKey() {
+        final DmlStatement st = DmlStatement.parse("merge into SIMPLE_TABLE t using SYSIBM.SYSDUMMY1 on t.ID = ?"
+                + " when matched then update set DATA = ? when not matched then insert (ID, DATA) values (?, ?)");
+
+        assertEquals(Kind.MERGE, st.getKind());
+        assertEquals("SIMPLE_TABLE", st.getTable());
+        assertEquals(Collections.singletonList(3L), st.keys("ID", new Object[] { 3L, "x", 3L, "x" }));
+        assertNull(DmlStatement.parse("merge into SIMPLE_TABLE t using SOURCE s on t.ID = s.ID when matched"
+                + " then update set DATA = s.DATA").keys("ID", null));
+        assertEquals(Kind.MERGE, DmlStatement.parse("upsert SIMPLE_TABLE (ID, DATA) values (?, ?) with primary key")
+                .getKind());
+    }
+
+    @Test
+    public void testUpsertWithPrimaryKey() {
+        final DmlStatement st = DmlStatement.parse("upsert SIMPLE_TABLE (DATA, ID) values (?, ?) with primary key");
+
+        assertEquals(Collections.singletonList(7L), st.keys("ID", new Object[] { "x", 7L }));
+        assertEquals(Collections.singletonList(8L), DmlStatement
+                .parse("upsert SIMPLE_TABLE (\"ID\", DATA) values (8, 'with primary key') with primary key")
+                .keys("ID", null));
+        assertNull(DmlStatement.parse("upsert SIMPLE_TABLE (ID, DATA) values (?, ?) with primary key").keys("ID",
+                null));
+        assertNull(DmlStatement.parse("upsert SIMPLE_TABLE (DATA) values (?) with primary key").keys("ID",
+                new Object[] { "x" }));
+    }
+
+    @Test
+    public void testUnknownKeys() {
+        assertNull(DmlStatement.parse("delete from SPRING_TABLE").keys("ID", null));
+        assertNull(DmlStatement.parse("delete from SPRING_TABLE where DATA = ?").keys("ID", new Object[] { "x" }));
+        assertNull(DmlStatement.parse("delete from SPRING_TABLE where ID = 1 or ID = 2").keys("ID", null));
+        assertNull(DmlStatement.parse("delete from SPRING_TABLE where ID > 1").keys("ID", null));
+        assertNull(DmlStatement.parse("insert into SPRING_TABLE values (?, ?)").keys("ID", new Object[] { 1L, "x" }));
+    }
+
+}
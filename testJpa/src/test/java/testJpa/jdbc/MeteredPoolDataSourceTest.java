@@ -0,0 +1,75 @@
+package testJpa.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import testJpa.TestJpaTestConfiguration;
+
+/**
+ * Test the metrics of the connection pool. No transaction is active, so every
+ * connection is leased by the test itself.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+public class MeteredPoolDataSourceTest {
+
+    private MeteredPoolDataSource ds;
+
+    /**
+     * @param dataSource
+     *            the pool configured by the test configuration
+     */
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        this.ds = (MeteredPoolDataSource) dataSource;
+    }
+
+    @Before
+    public void resetMetrics() {
+        ds.getMetrics().reset();
+    }
+
+    @Test
+    public void testLeaseAndReturn() throws SQLException {
+        try (Connection con = ds.getConnection()) {
+            assertEquals(1, ds.getMetrics().getLeases());
+            assertEquals(0, ds.getMetrics().getReturns());
+        }
+
+        assertEquals(1, ds.getMetrics().getReturns());
+        assertTrue(ds.getMetrics().getTotalHoldNanos() > 0);
+        assertTrue(ds.getMetrics().getMaxHoldNanos() <= ds.getMetrics().getTotalHoldNanos());
+    }
+
+    @Test
+    public void testCloseTwice() throws SQLException {
+        final Connection con = ds.getConnection();
+        con.close();
+        con.close();
+
+        assertEquals("second close must not count", 1, ds.getMetrics().getReturns());
+    }
+
+    @Test
+    public void testConnectionsArePooled() throws SQLException {
+        try (Connection con1 = ds.getConnection(); Connection con2 = ds.getConnection()) {
+            assertNotSame(con1, con2);
+            assertEquals(2, ds.getNumActive());
+        }
+        assertEquals(0, ds.getNumActive());
+    }
+
+}
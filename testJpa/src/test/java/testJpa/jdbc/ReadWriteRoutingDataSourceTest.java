@@ -0,0 +1,150 @@
+package testJpa.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import testJpa.ReplicaTestConfiguration;
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.spring.table.dao.SpringTableDao;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Test that read-only transactions use the replica and all others the primary
+ * database. Primary and replica contain different rows, so the result shows
+ * which database was used.
+ * <p>
+ * The primary database is not the one of the other tests, because Liquibase
+ * drops the schema on startup. The session name differs from the one of the
+ * other tests, so EclipseLink doesn't reuse their session.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = ReplicaTestConfiguration.class)
+@TestPropertySource(properties = { "jdbc.url=jdbc:derby:memory:test-jpa-primary;create=true",
+        "eclipselink.session-name=testJpa-replica" })
+@DirtiesContext
+public class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    SpringTableDao springDao;
+
+    @Autowired
+    SimpleTableDao simpleDao;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeteredPoolDataSource primaryDataSource;
+
+    @Autowired
+    MeteredPoolDataSource replicaDataSource;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    @Before
+    public void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+
+        clear();
+
+        primary.update("insert into SPRING_TABLE (ID, DATA) values (10001000, 'primary')");
+        primary.update("insert into SIMPLE_TABLE (ID, DATA) values (10001000, 'primary')");
+        replica.update("insert into SPRING_TABLE (ID, DATA) values (10001000, 'replica')");
+        replica.update("insert into SIMPLE_TABLE (ID, DATA) values (10001000, 'replica')");
+    }
+
+    @After
+    public void clear() {
+        for (JdbcTemplate jdbc : new JdbcTemplate[] { primary, replica }) {
+            jdbc.update("delete from SPRING_TABLE");
+            jdbc.update("delete from SIMPLE_TABLE");
+        }
+        emf.getCache().evictAll();
+    }
+
+    @Test
+    public void testReadOnlyTransactionUsesReplica() {
+        final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+
+        tx.execute(status -> {
+            assertEquals(1, springDao.findByData("replica").size());
+            assertTrue(springDao.findByData("primary").isEmpty());
+            return null;
+        });
+    }
+
+    @Test
+    public void testReadWriteTransactionUsesPrimary() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            assertEquals(1, springDao.findByData("primary").size());
+            assertTrue(springDao.findByData("replica").isEmpty());
+            return null;
+        });
+    }
+
+    @Test
+    public void testReplicaReadsAreNotCached() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        assertEquals("replica", readOnly.execute(status -> springDao.findOne(10001000L).getData()));
+        assertFalse(emf.getCache().contains(SpringTable.class, 10001000L));
+        assertEquals(1, readOnly.execute(status -> springDao.findByData("replica")).size());
+        assertFalse(emf.getCache().contains(SpringTable.class, 10001000L));
+        assertEquals("primary",
+                new TransactionTemplate(transactionManager).execute(status -> springDao.findOne(10001000L).getData()));
+    }
+
+    @Test
+    public void testPrimaryReadsAreCached() {
+        assertEquals("primary",
+                new TransactionTemplate(transactionManager).execute(status -> springDao.findOne(10001000L).getData()));
+
+        assertTrue(emf.getCache().contains(SpringTable.class, 10001000L));
+    }
+
+    @Test
+    public void testQueryMethodsAreReadOnly() {
+        assertEquals(1, springDao.findByData("replica").size());
+        assertEquals(1, simpleDao.findByData("replica").size());
+        assertEquals("replica", simpleDao.findOne(10001000L).getData());
+    }
+
+    @Test
+    public void testWritesUsePrimary() {
+        final SpringTable st = new SpringTable();
+        st.setData("written");
+
+        springDao.save(st);
+
+        assertEquals(1, primary.queryForObject("select count(*) from SPRING_TABLE where DATA = 'written'",
+                Integer.class).intValue());
+        assertEquals(0, replica.queryForObject("select count(*) from SPRING_TABLE where DATA = 'written'",
+                Integer.class).intValue());
+    }
+
+}
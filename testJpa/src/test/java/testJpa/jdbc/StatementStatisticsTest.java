@@ -0,0 +1,37 @@
+package testJpa.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Test the grouping of statements by shape.
+ */
+public class StatementStatisticsTest {
+
+    @Test
+    public void testShapeReplacesLiterals() {
+        assertEquals("SELECT ID FROM T0 WHERE (ID = ?) AND (DATA = ?)",
+                StatementStatistics.shapeOf("SELECT ID FROM T0 WHERE (ID = 10001000) AND (DATA = 'it''s')"));
+    }
+
+    @Test
+    public void testRepeatedSelects() {
+        final StatementStatistics statistics = new StatementStatistics();
+        statistics.record("SELECT ID, DATA FROM PARENT_SPRING");
+        for (int i = 0; i < 3; i++) {
+            statistics.record("SELECT ID, DATA, PARENT_ID FROM CHILD_SPRING WHERE (PARENT_ID = ?)");
+            statistics.record("UPDATE CHILD_SPRING SET DATA = ? WHERE (ID = ?)");
+        }
+
+        assertEquals(7, statistics.getStatements());
+        assertEquals(4, statistics.getSelects());
+        assertEquals(Collections.singletonMap("SELECT ID, DATA, PARENT_ID FROM CHILD_SPRING WHERE (PARENT_ID = ?)", 3),
+                statistics.getRepeatedSelects(3));
+        assertTrue(statistics.getRepeatedSelects(4).isEmpty());
+    }
+
+}
@@ -0,0 +1,102 @@
+package testJpa.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.simple.table.dao.SimpleTableDao;
+import testJpa.spring.table.dao.SpringTableDao;
+
+/**
+ * Test that calls of hand-written and Spring Data repositories are recorded.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+@Transactional
+public class RepositoryMetricsTest {
+
+    @Autowired
+    RepositoryMetrics metrics;
+
+    @Autowired
+    SimpleTableDao simpleDao;
+
+    @Autowired
+    SpringTableDao springDao;
+
+    @Test
+    public void testSimpleRepository() {
+        final long before = callsOf("simpleTableDaoImpl.findOne");
+
+        simpleDao.findOne(-1L);
+        simpleDao.findOne(-2L);
+
+        assertEquals(before + 2, callsOf("simpleTableDaoImpl.findOne"));
+    }
+
+    @Test
+    public void testSpringDataRepository() {
+        final long before = callsOf("springTableDao.findOne");
+
+        springDao.findOne(-1L);
+
+        assertEquals(before + 1, callsOf("springTableDao.findOne"));
+    }
+
+    @Test
+    public void testErrorsAreCounted() {
+        final long before = errorsOf("springTableDao.delete");
+
+        try {
+            springDao.delete(-1L);
+            fail("deleting a missing entity must fail");
+        } catch (DataAccessException e) {
+            // expected
+        }
+
+        assertEquals(before + 1, errorsOf("springTableDao.delete"));
+    }
+
+    @Test
+    public void testExport() {
+        simpleDao.count();
+
+        final AtomicLong exported = new AtomicLong();
+        metrics.export((method, latencies) -> {
+            if ("simpleTableDaoImpl.count".equals(method.getName())) {
+                exported.addAndGet(latencies.getTotalCount());
+                assertTrue(latencies.getMaxValue() > 0);
+            }
+        });
+        assertTrue(exported.get() >= 1);
+
+        // the interval starts again after an export
+        metrics.export((method, latencies) -> {
+            if ("simpleTableDaoImpl.count".equals(method.getName())) {
+                assertEquals(0, latencies.getTotalCount());
+            }
+        });
+    }
+
+    private long callsOf(String name) {
+        final MethodMetrics method = metrics.get(name);
+        return method == null ? 0 : method.getCalls();
+    }
+
+    private long errorsOf(String name) {
+        final MethodMetrics method = metrics.get(name);
+        return method == null ? 0 : method.getErrors();
+    }
+
+}
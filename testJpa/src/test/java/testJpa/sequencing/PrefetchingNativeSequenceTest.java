@@ -0,0 +1,87 @@
+package testJpa.sequencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.sessions.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.simple.table.domain.SimpleTable;
+
+/**
+ * Test the prefetching of sequence blocks. All changes are rolled back at the
+ * end of a test method, the sequence values are not.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+@Transactional
+public class PrefetchingNativeSequenceTest {
+
+    private static final String SEQUENCE = "SEQ_SIMPLE_TABLE_ID";
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    public void testBlocksArePrefetched() throws InterruptedException {
+        final Session session = em.unwrap(JpaEntityManager.class).getServerSession();
+        final SequencePrefetchMetrics metrics = SequencePrefetchMetrics.of(session, SEQUENCE);
+        final Set<Long> ids = new HashSet<>();
+
+        // the first block may stall, the following ones are prefetched while
+        // the test waits
+        persist(ALLOCATION_SIZE, ids);
+        awaitPrefetch(metrics);
+        final long stalls = metrics.getStalls();
+        final long blocks = metrics.getBlocks();
+
+        for (int i = 0; i < 3; i++) {
+            persist(ALLOCATION_SIZE, ids);
+            awaitPrefetch(metrics);
+        }
+
+        assertEquals("ids shall be unique", 4 * ALLOCATION_SIZE, ids.size());
+        assertEquals("no stall once prefetched", stalls, metrics.getStalls());
+        assertEquals(blocks + 3, metrics.getBlocks());
+        assertTrue(metrics.getPrefetched() >= 3);
+        assertSame(metrics, SequencePrefetchMetrics.all(session).get(SEQUENCE));
+
+        em.flush();
+    }
+
+    private void persist(int count, Set<Long> ids) {
+        for (int i = 0; i < count; i++) {
+            final SimpleTable st = new SimpleTable();
+            st.setData("prefetch " + i);
+            em.persist(st);
+            ids.add(st.getId());
+        }
+    }
+
+    /**
+     * wait until the background thread fetched the blocks requested so far
+     */
+    private void awaitPrefetch(SequencePrefetchMetrics metrics) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getPrefetched() + metrics.getFailures() < metrics.getBlocks() - metrics.getStalls()
+                + metrics.getDepth() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -3,16 +3,25 @@ package testJpa.simple.table.dao;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -27,6 +36,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestExecutionListeners;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -85,6 +95,50 @@ public class SimpleTableTest {
         assertEquals(4, dao.count());
     }
 
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testSavePersistsNewEntity() {
+        final SimpleTable st = new SimpleTable();
+        st.setData("new entry");
+
+        assertSame(st, dao.save(st));
+        assertTrue(em.contains(st));
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testUpsertAll() {
+        final SimpleTable existing = new SimpleTable();
+        existing.setId(10001000L);
+        existing.setData("changed");
+        final SimpleTable newWithId = new SimpleTable();
+        newWithId.setId(10001005L);
+        newWithId.setData("one thousand five");
+        final SimpleTable newWithoutId = new SimpleTable();
+        newWithoutId.setData("new entry");
+
+        assertEquals(3, dao.upsertAll(Arrays.asList(existing, newWithId, newWithoutId)));
+
+        assertEquals(5, dao.count());
+        assertEquals("changed", dao.findOne(10001000L).getData());
+        assertEquals("one thousand five", dao.findOne(10001005L).getData());
+        assertNotNull(newWithoutId.getId());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testUpsertAllDetachesStaleEntities() {
+        final SimpleTable managed = dao.findOne(10001000L);
+        final SimpleTable changed = new SimpleTable();
+        changed.setId(10001000L);
+        changed.setData("changed");
+
+        assertEquals(1, dao.upsertAll(Collections.singletonList(changed)));
+
+        assertFalse(em.contains(managed));
+        assertEquals("changed", dao.findOne(10001000L).getData());
+    }
+
     @Test
     @DatabaseSetup("setup_SimpleTable.xml")
     public void testExists() {
@@ -105,6 +159,24 @@ public class SimpleTableTest {
         assertEquals(3, list.size());
     }
 
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testFindAllByIds() {
+        final List<SimpleTable> list = dao.findAll(Arrays.asList(10001000L, 10001002L, -1L));
+
+        assertEquals(2, list.size());
+        assertTrue(dao.findAll(Collections.<Long> emptyList()).isEmpty());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testFindOnePrimitive() {
+        final SimpleTable entity = dao.findOne(Long.valueOf(10001000L));
+
+        assertSame(entity, dao.findOne(10001000L));
+        assertNull(dao.findOne(999L));
+    }
+
     @Test
     @DatabaseSetup("setup_SimpleTable.xml")
     public void testFindByData() {
@@ -252,4 +324,124 @@ public class SimpleTableTest {
         }
     }
 
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testUpdateDataWhere() {
+        assertEquals(1, dao.updateDataWhere("one thousand one", "updated"));
+        assertEquals(0, dao.updateDataWhere("missing", "updated"));
+
+        assertEquals("updated", dao.findOne(10001001L).getData());
+        assertEquals("one thousand", dao.findOne(10001000L).getData());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testUpdateDataByIdRange() {
+        assertEquals(2, dao.updateDataByIdRange(10001001L, 10001005L, "updated"));
+
+        assertEquals("one thousand", dao.findOne(10001000L).getData());
+        assertEquals("updated", dao.findOne(10001001L).getData());
+        assertEquals("updated", dao.findOne(10001002L).getData());
+    }
+
+    /**
+     * update in chunks of two: the missing id doesn't update a row
+     */
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testUpdateDataByIds() {
+        final Map<Long, String> data = new LinkedHashMap<>();
+        data.put(10001000L, "updated 1000");
+        data.put(10001001L, "updated 1001");
+        data.put(10001009L, "updated 1009");
+
+        assertArrayEquals(new int[] { 2, 0 }, dao.updateDataByIds(data, 2));
+
+        assertEquals("updated 1000", dao.findOne(10001000L).getData());
+        assertEquals("updated 1001", dao.findOne(10001001L).getData());
+        assertEquals("one thousand two", dao.findOne(10001002L).getData());
+    }
+
+    /**
+     * save in chunks: the last chunk is smaller than the chunk size
+     */
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testSaveAllInBatches() {
+        final List<SimpleTable> entities = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            final SimpleTable st = new SimpleTable();
+            st.setData("batch " + i);
+            entities.add(st);
+        }
+
+        final List<Long> progress = new ArrayList<>();
+        final long saved = dao.saveAllInBatches(entities, 50, false, (chunks, total) -> progress.add(total));
+
+        assertEquals(120, saved);
+        assertEquals(Arrays.asList(50l, 100l, 120l), progress);
+        assertFalse("persistence context is cleared", em.contains(entities.get(0)));
+        assertEquals(123, dao.count());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testStreamAll() {
+        try (Stream<SimpleTable> stream = dao.streamAll(2)) {
+            final List<SimpleTable> list = stream.collect(Collectors.toList());
+
+            assertEquals(3, list.size());
+            assertFalse("entities are detached", em.contains(list.get(0)));
+        }
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testStreamByData() {
+        try (Stream<SimpleTable> stream = dao.streamByData("one thousand")) {
+            final List<Long> ids = stream.map(SimpleTable::getId).collect(Collectors.toList());
+
+            assertEquals(Arrays.asList(10001000l), ids);
+        }
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testFindPageAfter() {
+        final List<SimpleTable> first = dao.findPageAfter(null, 2);
+        assertEquals(2, first.size());
+        assertEquals(10001000, first.get(0).getId().longValue());
+        assertEquals(10001001, first.get(1).getId().longValue());
+
+        final List<SimpleTable> second = dao.findPageAfter(first.get(1).getId(), 2);
+        assertEquals(1, second.size());
+        assertEquals(10001002, second.get(0).getId().longValue());
+
+        assertTrue(dao.findPageAfter(10001002l, 2).isEmpty());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testFindByDataAfter() {
+        assertEquals(1, dao.findByDataAfter("one thousand one", null, 2).size());
+        assertTrue(dao.findByDataAfter("one thousand one", 10001001l, 2).isEmpty());
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testFindByDataAfterNull() {
+        dao.findByDataAfter(null, null, 2);
+    }
+
+    @Test
+    @DatabaseSetup("setup_SimpleTable.xml")
+    public void testFindSliceAfter() {
+        final Slice<SimpleTable> first = dao.findSliceAfter(null, 2);
+        assertEquals(2, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+
+        final Slice<SimpleTable> second = dao.findSliceAfter(first.getContent().get(1).getId(), 2);
+        assertEquals(1, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+    }
+
 }
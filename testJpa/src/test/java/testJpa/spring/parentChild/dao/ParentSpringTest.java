@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +31,8 @@ import com.github.springtestdbunit.annotation.DatabaseSetup;
 import com.github.springtestdbunit.annotation.ExpectedDatabase;
 import com.github.springtestdbunit.assertion.DatabaseAssertionMode;
 
+import testJpa.ExpectedQueryCount;
+import testJpa.QueryCountTestExecutionListener;
 import testJpa.TestJpaTestConfiguration;
 import testJpa.spring.parentChild.domain.ChildSpring;
 import testJpa.spring.parentChild.domain.ParentSpring;
@@ -43,7 +46,7 @@ import testJpa.spring.parentChild.domain.ParentSpring;
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = TestJpaTestConfiguration.class)
 @TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, DirtiesContextTestExecutionListener.class,
-        TransactionDbUnitTestExecutionListener.class })
+        TransactionDbUnitTestExecutionListener.class, QueryCountTestExecutionListener.class })
 @Transactional
 public class ParentSpringTest {
 
@@ -71,6 +74,7 @@ public class ParentSpringTest {
     @Test
     @DatabaseSetup("setup_ParentSpring.xml")
     @DatabaseSetup("setup_ChildSpring.xml")
+    @ExpectedQueryCount(4)
     public void testFindAll() {
         final List<ParentSpring> list = dao.findAll();
 
@@ -78,10 +82,8 @@ public class ParentSpringTest {
 
         // Assert child elements are lazily loaded.
 
-        // EclipseLink logging level
-        // FINE should show four SELECTs: one for the parent table and one per
-        // parent record to retrieve the children (n+1). See also
-        // testBatchFetch().
+        // Four SELECTs: one for the parent table and one per parent record to
+        // retrieve the children (n+1). See also testBatchFetchAll().
         for (ParentSpring pt : list) {
             assertFalse(puu.isLoaded(pt, "children"));
             assertEquals(3, pt.getChildren().size());
@@ -92,6 +94,22 @@ public class ParentSpringTest {
     @Test
     @DatabaseSetup("setup_ParentSpring.xml")
     @DatabaseSetup("setup_ChildSpring.xml")
+    @ExpectedQueryCount(3)
+    public void testFindAllById() {
+        // one query per chunk of one id, also for the missing id, which is not
+        // returned
+        final List<ParentSpring> list = dao.findAllById(Arrays.asList(10001002L, -1L, 10001000L), 1, 1);
+
+        assertEquals(2, list.size());
+        assertEquals(10001002, list.get(0).getId().longValue());
+        assertEquals(10001000, list.get(1).getId().longValue());
+        assertFalse(puu.isLoaded(list.get(0), "children"));
+    }
+
+    @Test
+    @DatabaseSetup("setup_ParentSpring.xml")
+    @DatabaseSetup("setup_ChildSpring.xml")
+    @ExpectedQueryCount(2)
     public void testFindByData() {
         final List<ParentSpring> list = dao.findByData("one thousand");
 
@@ -105,6 +123,7 @@ public class ParentSpringTest {
     @Test
     @DatabaseSetup("setup_ParentSpring.xml")
     @DatabaseSetup("setup_ChildSpring.xml")
+    @ExpectedQueryCount(2)
     public void testFindByChildData() {
         final List<ParentSpring> list = dao.findByChildrenDataLike("%twelve%");
 
@@ -246,12 +265,12 @@ public class ParentSpringTest {
     }
 
     /**
-     * Test batch fetching all parents. See FINE logging level of EclipseLink to
-     * verify there are only two SELECTs.
+     * Test batch fetching all parents. There are only two SELECTs.
      */
     @Test
     @DatabaseSetup("setup_ParentSpring.xml")
     @DatabaseSetup("setup_ChildSpring.xml")
+    @ExpectedQueryCount(2)
     public void testBatchFetchAll() {
         final List<ParentSpring> st = dao.findAllBatchFetch();
 
@@ -271,12 +290,12 @@ public class ParentSpringTest {
     }
 
     /**
-     * Test batch fetching parents by data. See FINE logging level of
-     * EclipseLink to verify there are only two SELECTs.
+     * Test batch fetching parents by data. There are only two SELECTs.
      */
     @Test
     @DatabaseSetup("setup_ParentSpring.xml")
     @DatabaseSetup("setup_ChildSpring.xml")
+    @ExpectedQueryCount(2)
     public void testBatchFetchByData() {
         final List<ParentSpring> st = dao.findByDataBatchFetch("one thousand");
         assertEquals(1, st.size());
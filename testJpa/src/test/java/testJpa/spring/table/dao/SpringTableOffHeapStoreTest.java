@@ -0,0 +1,132 @@
+package testJpa.spring.table.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Test reading through the off-heap store and its invalidation. The database
+ * is not the one of the other tests, because Liquibase drops the schema on
+ * startup. The writes are committed, so the test cleans up itself.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+@TestPropertySource(properties = { "jdbc.url=jdbc:derby:memory:test-jpa-offheap;create=true",
+        "eclipselink.session-name=testJpa-offheap", "offheap.springTable.enabled=true" })
+@DirtiesContext
+public class SpringTableOffHeapStoreTest {
+
+    @Autowired
+    SpringTableOffHeapStore store;
+
+    @Autowired
+    SpringTableDao dao;
+
+    @Autowired
+    DataSource dataSource;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("insert into SPRING_TABLE (ID, DATA) values (10001000, 'one thousand')");
+        jdbc.update("insert into SPRING_TABLE (ID, DATA) values (10001001, 'one thousand one')");
+        clearCaches();
+    }
+
+    @After
+    public void tearDown() {
+        jdbc.update("delete from SPRING_TABLE");
+        clearCaches();
+    }
+
+    /**
+     * the JDBC statements bypass the shared cache and the store
+     */
+    private void clearCaches() {
+        emf.getCache().evictAll();
+        store.clear();
+    }
+
+    @Test
+    public void testReadThrough() {
+        assertTrue(store.isEnabled());
+        // the counters are not reset by clear()
+        final long misses = store.getStore().getMisses();
+        final long hits = store.getStore().getHits();
+
+        assertEquals("one thousand", store.findOne(10001000L).getData());
+        assertEquals(misses + 1, store.getStore().getMisses());
+        assertEquals("one thousand", store.findOne(10001000L).getData());
+        assertEquals(hits + 1, store.getStore().getHits());
+        assertNull(store.findOne(10001009L));
+    }
+
+    @Test
+    public void testFindAll() {
+        store.findOne(10001001L);
+
+        final List<SpringTable> found = store.findAll(Arrays.asList(10001001L, 10001009L, 10001000L));
+
+        assertEquals(2, found.size());
+        assertEquals(Long.valueOf(10001001L), found.get(0).getId());
+        assertEquals(Long.valueOf(10001000L), found.get(1).getId());
+        assertEquals(2, store.getStore().size());
+    }
+
+    @Test
+    public void testSaveInvalidates() {
+        store.findOne(10001000L);
+
+        final SpringTable entity = dao.findOne(10001000L);
+        entity.setData("changed");
+        dao.save(entity);
+
+        assertEquals(0, store.getStore().size());
+        assertEquals("changed", store.findOne(10001000L).getData());
+
+        dao.delete(10001000L);
+        assertNull(store.findOne(10001000L));
+    }
+
+    @Test
+    public void testBulkUpdateInvalidates() {
+        store.findOne(10001000L);
+        store.findOne(10001001L);
+
+        assertEquals(1, dao.updateDataByIdRange(10001000L, 10001000L, "changed"));
+
+        assertEquals(1, store.getStore().size());
+        assertEquals("changed", store.findOne(10001000L).getData());
+
+        // the store can't check a condition
+        assertEquals(1, dao.updateDataWhere("one thousand one", "changed"));
+        assertEquals(0, store.getStore().size());
+    }
+
+}
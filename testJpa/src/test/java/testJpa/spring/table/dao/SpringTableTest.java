@@ -1,5 +1,6 @@
 package testJpa.spring.table.dao;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -8,8 +9,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -19,6 +25,8 @@ import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestExecutionListeners;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -88,6 +96,19 @@ public class SpringTableTest {
         assertFalse(dao.exists(999l));
     }
 
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testFindAllById() {
+        final List<Long> ids = Arrays.asList(10001002L, 10001000L, -1L, 10001002L);
+
+        final List<Long> found = dao.findAllById(ids).stream().map(SpringTable::getId).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(10001002L, 10001000L, 10001002L), found);
+
+        // the same with one query per id
+        assertEquals(found, dao.findAllById(ids, 1, 1).stream().map(SpringTable::getId).collect(Collectors.toList()));
+    }
+
     @Test
     @DatabaseSetup("setup_SpringTable.xml")
     public void testFindAll() {
@@ -190,4 +211,124 @@ public class SpringTableTest {
         LOGGER.info("end test update unmanaged");
     }
 
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testUpdateDataWhere() {
+        assertEquals(1, dao.updateDataWhere("one thousand one", "updated"));
+        assertEquals(0, dao.updateDataWhere("missing", "updated"));
+
+        assertEquals("updated", dao.findOne(10001001L).getData());
+        assertEquals("one thousand", dao.findOne(10001000L).getData());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testUpdateDataByIdRange() {
+        assertEquals(2, dao.updateDataByIdRange(10001001L, 10001005L, "updated"));
+
+        assertEquals("one thousand", dao.findOne(10001000L).getData());
+        assertEquals("updated", dao.findOne(10001001L).getData());
+        assertEquals("updated", dao.findOne(10001002L).getData());
+    }
+
+    /**
+     * update in chunks of two: the missing id doesn't update a row
+     */
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testUpdateDataByIds() {
+        final Map<Long, String> data = new LinkedHashMap<>();
+        data.put(10001000L, "updated 1000");
+        data.put(10001001L, "updated 1001");
+        data.put(10001009L, "updated 1009");
+
+        assertArrayEquals(new int[] { 2, 0 }, dao.updateDataByIds(data, 2));
+
+        assertEquals("updated 1000", dao.findOne(10001000L).getData());
+        assertEquals("updated 1001", dao.findOne(10001001L).getData());
+        assertEquals("one thousand two", dao.findOne(10001002L).getData());
+    }
+
+    /**
+     * save in chunks: the last chunk is smaller than the chunk size
+     */
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testSaveAllInBatches() {
+        final List<SpringTable> entities = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            final SpringTable st = new SpringTable();
+            st.setData("batch " + i);
+            entities.add(st);
+        }
+
+        final List<Long> progress = new ArrayList<>();
+        final long saved = dao.saveAllInBatches(entities, 50, false, (chunks, total) -> progress.add(total));
+
+        assertEquals(120, saved);
+        assertEquals(Arrays.asList(50l, 100l, 120l), progress);
+        assertFalse("persistence context is cleared", em.contains(entities.get(0)));
+        assertEquals(123, dao.count());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testStreamAll() {
+        try (Stream<SpringTable> stream = dao.streamAll(2)) {
+            final List<SpringTable> list = stream.collect(Collectors.toList());
+
+            assertEquals(3, list.size());
+            assertFalse("entities are detached", em.contains(list.get(0)));
+        }
+    }
+
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testStreamByData() {
+        try (Stream<SpringTable> stream = dao.streamByData("one thousand")) {
+            final List<Long> ids = stream.map(SpringTable::getId).collect(Collectors.toList());
+
+            assertEquals(Arrays.asList(10001000l), ids);
+        }
+    }
+
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testFindPageAfter() {
+        final List<SpringTable> first = dao.findPageAfter(null, 2);
+        assertEquals(2, first.size());
+        assertEquals(10001000, first.get(0).getId().longValue());
+        assertEquals(10001001, first.get(1).getId().longValue());
+
+        final List<SpringTable> second = dao.findPageAfter(first.get(1).getId(), 2);
+        assertEquals(1, second.size());
+        assertEquals(10001002, second.get(0).getId().longValue());
+
+        assertTrue(dao.findPageAfter(10001002l, 2).isEmpty());
+    }
+
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testFindByDataAfter() {
+        assertEquals(1, dao.findByDataAfter("one thousand one", null, 2).size());
+        assertTrue(dao.findByDataAfter("one thousand one", 10001001l, 2).isEmpty());
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testFindByDataAfterNull() {
+        dao.findByDataAfter(null, null, 2);
+    }
+
+    @Test
+    @DatabaseSetup("setup_SpringTable.xml")
+    public void testFindSliceAfter() {
+        final Slice<SpringTable> first = dao.findSliceAfter(null, 2);
+        assertEquals(2, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+
+        final Slice<SpringTable> second = dao.findSliceAfter(first.getContent().get(1).getId(), 2);
+        assertEquals(1, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+    }
+
 }
@@ -0,0 +1,122 @@
+package testJpa.spring.table.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.spring.table.domain.SpringTable;
+
+/**
+ * Test the write-behind saves. The scheduled flush is far in the future, the
+ * tests flush themselves. The database is not the one of the other tests,
+ * because Liquibase drops the schema on startup. The writes are committed, so
+ * the test cleans up itself.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+@TestPropertySource(properties = { "jdbc.url=jdbc:derby:memory:test-jpa-writebehind;create=true",
+        "eclipselink.session-name=testJpa-writebehind", "writeBehind.springTable.enabled=true",
+        "writeBehind.springTable.capacity=2", "writeBehind.springTable.intervalMillis=3600000",
+        "writeBehind.springTable.timeoutMillis=10" })
+@DirtiesContext
+public class SpringTableWriteBehindTest {
+
+    @Autowired
+    SpringTableWriteBehind writeBehind;
+
+    @Autowired
+    SpringTableDao dao;
+
+    @Autowired
+    DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("insert into SPRING_TABLE (ID, DATA) values (10001000, 'one thousand')");
+    }
+
+    @After
+    public void tearDown() {
+        writeBehind.flush();
+        jdbc.update("delete from SPRING_TABLE");
+    }
+
+    @Test
+    public void testSaveCoalescesAndFlushes() {
+        assertTrue(writeBehind.isEnabled());
+
+        final SpringTable created = new SpringTable();
+        created.setData("first");
+        writeBehind.save(created);
+        assertNotNull(created.getId());
+        created.setData("second");
+        writeBehind.save(created);
+
+        assertEquals(1, dao.count());
+        assertEquals(1, writeBehind.flush());
+
+        assertEquals(2, dao.count());
+        assertEquals("second", dao.findOne(created.getId()).getData());
+        assertEquals(1, writeBehind.getBuffer().getMetrics().getCoalesced());
+    }
+
+    @Test
+    public void testFlushUpdatesCachedEntity() {
+        assertEquals("one thousand", dao.findOne(10001000L).getData());
+
+        final SpringTable changed = new SpringTable();
+        changed.setId(10001000L);
+        changed.setData("changed");
+        writeBehind.save(changed);
+        writeBehind.flush();
+
+        assertEquals("changed", dao.findOne(10001000L).getData());
+    }
+
+    @Test
+    public void testUpdateOrInsert() {
+        writeBehind.updateOrInsert(Arrays.asList(new Object[] { 10001000L, "updated" },
+                new Object[] { 10001001L, "inserted" }));
+
+        final String select = "select DATA from SPRING_TABLE where ID = ?";
+        assertEquals("updated", jdbc.queryForObject(select, String.class, 10001000L));
+        assertEquals("inserted", jdbc.queryForObject(select, String.class, 10001001L));
+    }
+
+    @Test
+    public void testFullBufferRejectsSave() {
+        for (int i = 0; i < 3; i++) {
+            final SpringTable entity = new SpringTable();
+            entity.setData("entity " + i);
+            try {
+                writeBehind.save(entity);
+            } catch (IllegalStateException e) {
+                assertEquals(2, i);
+                assertEquals(1, writeBehind.getBuffer().getMetrics().getRejected());
+                return;
+            }
+        }
+        fail("buffer is full");
+    }
+
+}
@@ -43,6 +43,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import testJpa.ExpectedQueryCount;
+import testJpa.QueryCountTestExecutionListener;
 import testJpa.TestJpaTestConfiguration;
 import testJpa.spring.teacherStudent.domain.StudentSpring;
 import testJpa.spring.teacherStudent.domain.TeacherSpring;
@@ -63,7 +65,7 @@ import testJpa.spring.teacherStudent.domain.TeacherSpring;
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = TestJpaTestConfiguration.class)
 @TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, DirtiesContextTestExecutionListener.class,
-        TransactionDbUnitTestExecutionListener.class })
+        TransactionDbUnitTestExecutionListener.class, QueryCountTestExecutionListener.class })
 @Transactional
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 @DirtiesContext
@@ -93,6 +95,7 @@ public class TeacherStudentSpringTest {
     @DatabaseSetup("setup_TeacherSpring.xml")
     @DatabaseSetup("setup_StudentSpring.xml")
     @DatabaseSetup("setup_TeacherStudent.xml")
+    @ExpectedQueryCount(4)
     public void testStudentsByTeacher() {
         List<TeacherSpring> teachers = teacherDao.findAll();
 
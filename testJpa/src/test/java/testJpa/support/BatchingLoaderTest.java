@@ -0,0 +1,123 @@
+package testJpa.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test coalescing of lookups without a database: the entities are the ids
+ * themselves, negative ids don't exist.
+ */
+public class BatchingLoaderTest {
+
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+
+    private BatchingLoader<Long> loader;
+
+    @After
+    public void tearDown() {
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    private List<Long> load(List<Long> ids) {
+        batches.add(ids);
+        return ids.stream().filter(id -> id >= 0).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFullBatchIsDispatched() {
+        loader = new BatchingLoader<>(this::load, id -> id, 5, 1, TimeUnit.MINUTES, 1);
+
+        final List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (long id = 0; id < 10; id++) {
+            futures.add(loader.load(id));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(Long.valueOf(i), futures.get(i).join());
+        }
+        assertEquals(2, batches.size());
+        assertEquals(5, batches.get(0).size());
+        assertEquals(2, loader.getMetrics().getBatches());
+        assertEquals(5.0, loader.getMetrics().getAverageBatchSize(), 0.0);
+        assertEquals(2, loader.getMetrics().intervalBatchSizes().getTotalCount());
+    }
+
+    @Test
+    public void testBatchIsDispatchedAfterWait() {
+        loader = new BatchingLoader<>(this::load, id -> id, 100, 10, TimeUnit.MILLISECONDS, 1);
+
+        final CompletableFuture<Long> first = loader.load(1L);
+        final CompletableFuture<Long> second = loader.load(2L);
+
+        assertEquals(Long.valueOf(1), first.join());
+        assertEquals(Long.valueOf(2), second.join());
+        assertEquals(Collections.singletonList(Arrays.asList(1L, 2L)), batches);
+        assertTrue(loader.getMetrics().intervalWaitNanos().getMaxValue() >= TimeUnit.MILLISECONDS.toNanos(9));
+    }
+
+    @Test
+    public void testSameIdIsCoalesced() {
+        loader = new BatchingLoader<>(this::load, id -> id, 100, 200, TimeUnit.MILLISECONDS, 1);
+
+        final CompletableFuture<Long> first = loader.load(1L);
+        final CompletableFuture<Long> second = loader.load(1L);
+
+        assertSame(first, second);
+        assertEquals(Long.valueOf(1), loader.get(1L));
+        assertEquals(1, batches.get(0).size());
+        assertEquals(2, loader.getMetrics().getCoalesced());
+    }
+
+    @Test
+    public void testMissingIdIsNull() {
+        loader = new BatchingLoader<>(this::load, id -> id, 100, 1, TimeUnit.MILLISECONDS, 1);
+
+        assertNull(loader.get(-1L));
+    }
+
+    @Test
+    public void testFailureCompletesAllRequests() {
+        loader = new BatchingLoader<>(ids -> {
+            throw new IllegalStateException("database down");
+        }, id -> id, 2, 1, TimeUnit.MINUTES, 1);
+
+        final CompletableFuture<Long> first = loader.load(1L);
+        try {
+            loader.get(2L);
+            fail("failure of the batch must be thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("database down", e.getMessage());
+        }
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(1, loader.getMetrics().getFailedBatches());
+    }
+
+    @Test
+    public void testCloseDispatchesWaitingRequests() {
+        loader = new BatchingLoader<>(this::load, id -> id, 100, 1, TimeUnit.MINUTES, 1);
+
+        final CompletableFuture<Long> waiting = loader.load(1L);
+        loader.close();
+
+        assertEquals(Long.valueOf(1), waiting.join());
+        assertTrue(loader.load(2L).isCompletedExceptionally());
+    }
+
+}
@@ -0,0 +1,117 @@
+package testJpa.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import testJpa.TestJpaTestConfiguration;
+import testJpa.simple.parentChild.dao.SimpleParentDao;
+import testJpa.spring.parentChild.dao.ParentSpringDao;
+import testJpa.spring.parentChild.domain.ChildSpring;
+import testJpa.spring.parentChild.domain.ParentSpring;
+
+/**
+ * Test deleting parents in chunks. Each chunk is committed, so the test cleans
+ * up itself.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestJpaTestConfiguration.class)
+public class ChunkedDeleterTest {
+
+    @Autowired
+    SimpleParentDao simpleDao;
+
+    @Autowired
+    ParentSpringDao springDao;
+
+    @Autowired
+    DataSource dataSource;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        tearDown();
+        for (String table : Arrays.asList("TABLE", "SPRING")) {
+            for (int i = 0; i < 5; i++) {
+                jdbc.update("insert into PARENT_" + table + " (ID, DATA) values (?, ?)", 10001000 + i,
+                        i % 2 == 0 ? "even" : "odd");
+                jdbc.update("insert into CHILD_" + table + " (ID, DATA, PARENT_ID) values (?, 'child', ?)",
+                        20001000 + i, 10001000 + i);
+            }
+        }
+        emf.getCache().evictAll();
+    }
+
+    @After
+    public void tearDown() {
+        jdbc.update("delete from PARENT_TABLE");
+        jdbc.update("delete from PARENT_SPRING");
+    }
+
+    /**
+     * three matching parents in chunks of two: the children are deleted by
+     * the database
+     */
+    @Test
+    public void testDeleteWhere() {
+        final List<Long> progress = new ArrayList<>();
+
+        final long deleted = simpleDao.deleteWhere((cb, root) -> cb.equal(root.get("data"), "even"), 2, 1,
+                (chunks, total) -> progress.add(total));
+
+        assertEquals(3, deleted);
+        assertEquals(Arrays.asList(2l, 3l), progress);
+        assertEquals(2, simpleDao.count());
+        assertEquals(Integer.valueOf(2), jdbc.queryForObject("select count(*) from CHILD_TABLE", Integer.class));
+        assertNull(simpleDao.findOne(10001000L));
+        assertEquals("odd", simpleDao.findOne(10001001L).getData());
+    }
+
+    @Test
+    public void testPurgeOlderThan() {
+        springDao.findOne(10001000L).getChildren().size();
+        springDao.findOne(10001004L);
+
+        final long deleted = springDao.purgeOlderThan(10001003L, 2, 0, ChunkProgressListener.NONE);
+
+        assertEquals(3, deleted);
+        assertEquals(2, springDao.count());
+        assertEquals(Integer.valueOf(2), jdbc.queryForObject("select count(*) from CHILD_SPRING", Integer.class));
+
+        final Cache cache = emf.getCache();
+        assertFalse(cache.contains(ParentSpring.class, 10001000L));
+        assertFalse(cache.contains(ChildSpring.class, 20001000L));
+        assertNull(springDao.findOne(10001000L));
+        assertEquals(10001004L, springDao.findOne(10001004L).getId().longValue());
+    }
+
+    @Test
+    public void testNothingToDelete() {
+        assertEquals(0, simpleDao.deleteWhere((cb, root) -> cb.equal(root.get("data"), "none"), 10));
+        assertEquals(5, simpleDao.count());
+    }
+
+}
@@ -0,0 +1,103 @@
+package testJpa.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test the off-heap store with its index and compaction.
+ */
+public class OffHeapStringStoreTest {
+
+    @Test
+    public void testPutGetRemove() {
+        final OffHeapStringStore store = new OffHeapStringStore(1024);
+
+        store.put(1, "one");
+        store.put(2, "zwei \u00fcber");
+        assertEquals("one", store.get(1));
+        assertEquals("zwei \u00fcber", store.get(2));
+        assertNull(store.get(3));
+
+        store.put(1, "uno");
+        assertEquals("uno", store.get(1));
+        assertEquals(2, store.size());
+
+        store.remove(1);
+        assertNull(store.get(1));
+        assertEquals(1, store.size());
+        assertEquals(3, store.getHits());
+        assertEquals(2, store.getMisses());
+    }
+
+    @Test
+    public void testStaleLoadIsNotPut() {
+        final OffHeapStringStore store = new OffHeapStringStore(1024);
+
+        // a reader misses and loads the old row, a writer removes the id
+        final long stamp = store.invalidationStamp();
+        store.remove(1);
+        assertFalse(store.putIfNotInvalidatedSince(1, "old", stamp));
+        assertNull(store.get(1));
+
+        // a load after the remove is stored
+        assertTrue(store.putIfNotInvalidatedSince(1, "new", store.invalidationStamp()));
+        assertEquals("new", store.get(1));
+
+        final long beforeClear = store.invalidationStamp();
+        store.clear();
+        assertFalse(store.putIfNotInvalidatedSince(2, "old", beforeClear));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testManyIds() {
+        final OffHeapStringStore store = new OffHeapStringStore(1024 * 1024);
+
+        for (long id = 0; id < 10000; id++) {
+            store.put(id, "row " + id);
+        }
+        for (long id = 0; id < 10000; id += 2) {
+            store.remove(id);
+        }
+
+        assertEquals(5000, store.size());
+        for (long id = 0; id < 10000; id++) {
+            assertEquals(id % 2 == 0 ? null : "row " + id, store.get(id));
+        }
+    }
+
+    @Test
+    public void testCompaction() {
+        // 10 bytes header + 8 bytes string per record, room for 5 records
+        final OffHeapStringStore store = new OffHeapStringStore(90);
+
+        for (int i = 0; i < 20; i++) {
+            store.put(1, "value " + (i % 10) + "!");
+            store.put(2, "other " + (i % 10) + "!");
+        }
+
+        assertEquals(2, store.size());
+        assertEquals("value 9!", store.get(1));
+        assertEquals("other 9!", store.get(2));
+        assertEquals(36, store.getLiveBytes());
+    }
+
+    @Test
+    public void testClearedWhenFull() {
+        final OffHeapStringStore store = new OffHeapStringStore(90);
+
+        for (long id = 1; id <= 6; id++) {
+            store.put(id, "value " + id + "!");
+        }
+
+        // the sixth record didn't fit with the others
+        assertEquals(1, store.size());
+        assertEquals("value 6!", store.get(6));
+        assertNull(store.get(1));
+    }
+
+}
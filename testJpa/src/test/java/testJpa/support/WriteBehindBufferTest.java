@@ -0,0 +1,150 @@
+package testJpa.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test coalescing, backpressure and retries of the write-behind buffer. The
+ * scheduled flush is far in the future, the tests flush themselves.
+ */
+public class WriteBehindBufferTest {
+
+    private final List<Map<Long, String>> written = new ArrayList<>();
+
+    private boolean failing;
+
+    private Runnable duringWrite;
+
+    private final WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(values -> {
+        if (duringWrite != null) {
+            duringWrite.run();
+        }
+        if (failing) {
+            throw new IllegalStateException("database down");
+        }
+        written.add(values);
+    }, 2, 1, TimeUnit.HOURS);
+
+    @After
+    public void tearDown() {
+        failing = false;
+        duringWrite = null;
+        buffer.close();
+    }
+
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        assertTrue(buffer.save(1L, "a", 0, TimeUnit.MILLISECONDS));
+        assertTrue(buffer.save(2L, "b", 0, TimeUnit.MILLISECONDS));
+        assertTrue(buffer.save(1L, "c", 0, TimeUnit.MILLISECONDS));
+
+        assertEquals(2, buffer.size());
+        assertEquals(2, buffer.flush());
+        assertEquals(0, buffer.flush());
+
+        final Map<Long, String> expected = new LinkedHashMap<>();
+        expected.put(1L, "c");
+        expected.put(2L, "b");
+        assertEquals(1, written.size());
+        assertEquals(expected, written.get(0));
+        assertEquals(3, buffer.getMetrics().getSaves());
+        assertEquals(1, buffer.getMetrics().getCoalesced());
+        assertEquals(1, buffer.getMetrics().getFlushes());
+        assertEquals(2, buffer.getMetrics().getFlushedRows());
+    }
+
+    @Test
+    public void testFullBufferWaitsForFlush() throws InterruptedException {
+        buffer.save(1L, "a", 0, TimeUnit.MILLISECONDS);
+        buffer.save(2L, "b", 0, TimeUnit.MILLISECONDS);
+
+        assertFalse(buffer.save(3L, "c", 10, TimeUnit.MILLISECONDS));
+        assertEquals(1, buffer.getMetrics().getRejected());
+
+        final CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return buffer.save(3L, "c", 10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (buffer.getMetrics().getSaves() == 2 && !waiting.isDone()) {
+            buffer.flush();
+            Thread.sleep(1);
+        }
+
+        assertTrue(waiting.join());
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() throws InterruptedException {
+        buffer.save(1L, "a", 0, TimeUnit.MILLISECONDS);
+        buffer.save(2L, "b", 0, TimeUnit.MILLISECONDS);
+        failing = true;
+
+        try {
+            buffer.flush();
+            fail("writer failed");
+        } catch (IllegalStateException e) {
+            assertEquals("database down", e.getMessage());
+        }
+
+        // the newer value wins over the one put back
+        buffer.save(1L, "c", 0, TimeUnit.MILLISECONDS);
+        failing = false;
+        assertEquals(2, buffer.flush());
+
+        assertEquals("c", written.get(0).get(1L));
+        assertEquals("b", written.get(0).get(2L));
+        assertEquals(1, buffer.getMetrics().getFailedFlushes());
+    }
+
+    @Test
+    public void testWrittenValuesCountAgainstCapacity() throws InterruptedException {
+        buffer.save(1L, "a", 0, TimeUnit.MILLISECONDS);
+        buffer.save(2L, "b", 0, TimeUnit.MILLISECONDS);
+
+        final List<Boolean> saved = new ArrayList<>();
+        duringWrite = () -> {
+            try {
+                saved.add(buffer.save(3L, "c", 0, TimeUnit.MILLISECONDS));
+                saved.add(buffer.save(1L, "d", 0, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        failing = true;
+
+        try {
+            buffer.flush();
+            fail("writer failed");
+        } catch (IllegalStateException e) {
+            assertEquals("database down", e.getMessage());
+        }
+
+        // the put back values still fit
+        assertEquals(Arrays.asList(false, true), saved);
+        assertEquals(2, buffer.size());
+
+        duringWrite = null;
+        failing = false;
+        assertEquals(2, buffer.flush());
+        assertEquals("d", written.get(0).get(1L));
+        assertEquals("b", written.get(0).get(2L));
+    }
+
+}